@@ -0,0 +1,167 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.ViewTreeObserver;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.ui.activity.FileDisplayActivity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the cold start of the app: the time from the start of the process, which runs the application
+ * initialization with its critical {@link com.owncloud.android.utils.StartupScheduler} stages, to the first frame of
+ * the launcher activity.
+ *
+ * The process is started for this test, so it has to run on its own, e.g. with
+ * {@code -e class com.owncloud.android.StartupBenchmarkIT}. The time includes the start of the test runner and
+ * depends on the device, so it is reported, in the log and as instrumentation status, but not asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class StartupBenchmarkIT {
+    private static final String TAG = StartupBenchmarkIT.class.getSimpleName();
+
+    private static final long FIRST_FRAME_TIMEOUT_SECONDS = 10;
+    private static final String STATUS_COLD_START_MILLIS = "cold_start_millis";
+
+    private static boolean launched;
+
+    @Test
+    public void testColdStartToFirstFrame() throws InterruptedException {
+        // start time of the process is only known since Nougat; a second launch would not be a cold start
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        assumeTrue(!launched);
+        launched = true;
+
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Application application = (Application) instrumentation.getTargetContext().getApplicationContext();
+
+        long coldStart = launchUntilFirstFrame(instrumentation, application) - Process.getStartElapsedRealtime();
+
+        Log_OC.i(TAG, "Cold start to first frame: " + coldStart + " ms");
+
+        Bundle status = new Bundle();
+        status.putLong(STATUS_COLD_START_MILLIS, coldStart);
+        instrumentation.sendStatus(0, status);
+    }
+
+    /**
+     * @return elapsed realtime of the first frame drawn by the launched activity or by the activity it redirected to,
+     * e.g. the login without account
+     */
+    private long launchUntilFirstFrame(Instrumentation instrumentation, Application application)
+            throws InterruptedException {
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        long[] firstFrameTime = new long[1];
+
+        Application.ActivityLifecycleCallbacks callbacks = new FirstFrameCallbacks(() -> {
+            if (firstFrame.getCount() > 0) {
+                firstFrameTime[0] = SystemClock.elapsedRealtime();
+                firstFrame.countDown();
+            }
+        });
+        application.registerActivityLifecycleCallbacks(callbacks);
+
+        Intent intent = new Intent(application, FileDisplayActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+
+        Activity activity = instrumentation.startActivitySync(intent);
+        try {
+            assertTrue("No frame drawn", firstFrame.await(FIRST_FRAME_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            application.unregisterActivityLifecycleCallbacks(callbacks);
+            activity.finish();
+            instrumentation.waitForIdleSync();
+        }
+
+        return firstFrameTime[0];
+    }
+
+    private static class FirstFrameCallbacks implements Application.ActivityLifecycleCallbacks {
+        private final Runnable onFirstFrame;
+
+        private FirstFrameCallbacks(Runnable onFirstFrame) {
+            this.onFirstFrame = onFirstFrame;
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            ViewTreeObserver observer = activity.getWindow().getDecorView().getViewTreeObserver();
+            observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    activity.getWindow().getDecorView().getViewTreeObserver().removeOnPreDrawListener(this);
+                    onFirstFrame.run();
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+            // not needed
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+            // not needed
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+            // not needed
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            // not needed
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            // not needed
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            // not needed
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
+import com.owncloud.android.lib.common.network.WebdavEntry;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.MimeType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares mapping a seeded cursor with {@link OCFileCursorMapper} against looking up every column on every row and
+ * checking the default save path of every file without local path, as done before.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class OCFileCursorMapperBenchmarkIT {
+    private static final String TAG = OCFileCursorMapperBenchmarkIT.class.getSimpleName();
+
+    private static final int ROWS = 50000;
+    private static final String ACCOUNT_NAME = "benchmark@server";
+
+    private MatrixCursor cursor;
+
+    @Before
+    public void setUp() {
+        cursor = new MatrixCursor(OCFileCursorMapper.PROJECTION, ROWS);
+
+        for (int i = 0; i < ROWS; i++) {
+            MatrixCursor.RowBuilder row = cursor.newRow();
+            for (String column : OCFileCursorMapper.PROJECTION) {
+                row.add(valueFor(column, i));
+            }
+        }
+    }
+
+    private static Object valueFor(String column, int i) {
+        switch (column) {
+            case ProviderTableMeta._ID:
+                return i + 1;
+            case ProviderTableMeta.FILE_PATH:
+                return "/folder/file" + i + ".jpg";
+            case ProviderTableMeta.FILE_NAME:
+                return "file" + i + ".jpg";
+            case ProviderTableMeta.FILE_CONTENT_TYPE:
+                return MimeType.JPEG;
+            case ProviderTableMeta.FILE_STORAGE_PATH:
+                // most files are not downloaded
+                return i % 10 == 0 ? "/sdcard/file" + i + ".jpg" : null;
+            case ProviderTableMeta.FILE_ETAG:
+            case ProviderTableMeta.FILE_REMOTE_ID:
+                return Integer.toHexString(i);
+            case ProviderTableMeta.FILE_PERMISSIONS:
+                return "RGDNVW";
+            case ProviderTableMeta.FILE_ENCRYPTED_NAME:
+            case ProviderTableMeta.FILE_PUBLIC_LINK:
+            case ProviderTableMeta.FILE_ETAG_IN_CONFLICT:
+                return null;
+            default:
+                return 0;
+        }
+    }
+
+    @Test
+    public void testMappingThroughput() {
+        long start = System.nanoTime();
+        List<OCFile> previous = mapPerRowLookup();
+        long perRowLookup = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<OCFile> mapped = mapWithMapper();
+        long mapper = System.nanoTime() - start;
+
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, "Mapping %d rows: %d ms with lookups per row, %d ms with mapper",
+                                    ROWS, perRowLookup / 1000000, mapper / 1000000));
+
+        assertEquals(ROWS, mapped.size());
+        for (int i = 0; i < ROWS; i += 997) {
+            assertEquals(previous.get(i).getFileId(), mapped.get(i).getFileId());
+            assertEquals(previous.get(i).getRemotePath(), mapped.get(i).getRemotePath());
+            assertEquals(previous.get(i).getRemoteId(), mapped.get(i).getRemoteId());
+            assertEquals(previous.get(i).getStoragePath(), mapped.get(i).getStoragePath());
+        }
+
+        assertTrue("Mapper should be faster than looking up columns on every row", mapper < perRowLookup);
+    }
+
+    private List<OCFile> mapWithMapper() {
+        List<OCFile> files = new ArrayList<>(ROWS);
+        cursor.moveToPosition(-1);
+
+        OCFileCursorMapper mapper = new OCFileCursorMapper(cursor, ACCOUNT_NAME);
+        while (cursor.moveToNext()) {
+            files.add(mapper.map());
+        }
+
+        return files;
+    }
+
+    /**
+     * Former mapping of FileDataStorageManager, kept as baseline.
+     */
+    private List<OCFile> mapPerRowLookup() {
+        List<OCFile> files = new ArrayList<>(ROWS);
+        cursor.moveToPosition(-1);
+
+        while (cursor.moveToNext()) {
+            Cursor c = cursor;
+            OCFile file = new OCFile(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PATH)));
+            file.setFileId(c.getLong(c.getColumnIndex(ProviderTableMeta._ID)));
+            file.setParentId(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_PARENT)));
+            file.setEncryptedFileName(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ENCRYPTED_NAME)));
+            file.setMimeType(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE)));
+            file.setStoragePath(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH)));
+            if (file.getStoragePath() == null) {
+                File f = new File(FileStorageUtils.getDefaultSavePathFor(ACCOUNT_NAME, file));
+                if (f.exists()) {
+                    file.setStoragePath(f.getAbsolutePath());
+                    file.setLastSyncDateForData(f.lastModified());
+                }
+            }
+            file.setFileLength(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_CONTENT_LENGTH)));
+            file.setCreationTimestamp(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_CREATION)));
+            file.setModificationTimestamp(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_MODIFIED)));
+            file.setModificationTimestampAtLastSyncForData(c.getLong(
+                    c.getColumnIndex(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA)));
+            file.setLastSyncDateForProperties(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE)));
+            file.setLastSyncDateForData(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA)));
+            file.setAvailableOffline(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_KEEP_IN_SYNC)) == 1);
+            file.setEtag(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ETAG)));
+            file.setSharedViaLink(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_SHARED_VIA_LINK)) == 1);
+            file.setSharedWithSharee(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_SHARED_WITH_SHAREE)) == 1);
+            file.setPublicLink(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PUBLIC_LINK)));
+            file.setPermissions(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PERMISSIONS)));
+            file.setRemoteId(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_REMOTE_ID)));
+            file.setUpdateThumbnailNeeded(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_UPDATE_THUMBNAIL)) == 1);
+            file.setDownloading(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_IS_DOWNLOADING)) == 1);
+            file.setEtagInConflict(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ETAG_IN_CONFLICT)));
+            file.setFavorite(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_FAVORITE)) == 1);
+            file.setEncrypted(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_IS_ENCRYPTED)) == 1);
+            if (file.isEncrypted()) {
+                file.setFileName(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_NAME)));
+            }
+            file.setMountType(WebdavEntry.MountType.values()[c.getInt(
+                    c.getColumnIndex(ProviderTableMeta.FILE_MOUNT_TYPE))]);
+            file.setPreviewAvailable(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_HAS_PREVIEW)) == 1);
+
+            files.add(file);
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,153 @@
+package com.owncloud.android.providers;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.MimeType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Random;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the latency of opening a folder against a seeded files table, before and after creating the indexes
+ * of {@link FileContentProvider}.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class FolderOpenBenchmarkIT {
+    private static final String TAG = FolderOpenBenchmarkIT.class.getSimpleName();
+
+    private static final int ROWS = 500000;
+    private static final int ACCOUNTS = 5;
+    private static final int CHILDREN_PER_FOLDER = 500;
+    private static final int FOLDERS = ROWS / CHILDREN_PER_FOLDER;
+    private static final int ITERATIONS = 100;
+
+    private static final String FOLDER_CONTENT_QUERY = "SELECT * FROM " + ProviderTableMeta.FILE_TABLE_NAME
+            + " WHERE " + ProviderTableMeta.FILE_PARENT + "=? AND " + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?"
+            + " ORDER BY " + ProviderTableMeta.FILE_DEFAULT_SORT_ORDER;
+
+    private File databaseFile;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        databaseFile = context.getDatabasePath("folder_open_benchmark");
+        SQLiteDatabase.deleteDatabase(databaseFile);
+        databaseFile.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+
+        db.execSQL("CREATE TABLE " + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta._ID + " INTEGER PRIMARY KEY, "
+                + ProviderTableMeta.FILE_NAME + " TEXT, "
+                + ProviderTableMeta.FILE_PATH + " TEXT, "
+                + ProviderTableMeta.FILE_PARENT + " INTEGER, "
+                + ProviderTableMeta.FILE_CONTENT_TYPE + " TEXT, "
+                + ProviderTableMeta.FILE_ACCOUNT_OWNER + " TEXT, "
+                + ProviderTableMeta.FILE_KEEP_IN_SYNC + " INTEGER );");
+
+        seed();
+    }
+
+    private void seed() {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta._ID + ", "
+                + ProviderTableMeta.FILE_NAME + ", "
+                + ProviderTableMeta.FILE_PATH + ", "
+                + ProviderTableMeta.FILE_PARENT + ", "
+                + ProviderTableMeta.FILE_CONTENT_TYPE + ", "
+                + ProviderTableMeta.FILE_ACCOUNT_OWNER + ", "
+                + ProviderTableMeta.FILE_KEEP_IN_SYNC + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+        db.beginTransaction();
+        try {
+            for (long id = 1; id <= ROWS; id++) {
+                long parent = id % FOLDERS + 1;
+                String name = "file" + id + ".jpg";
+
+                insert.clearBindings();
+                insert.bindLong(1, id);
+                insert.bindString(2, name);
+                insert.bindString(3, "/folder" + parent + "/" + name);
+                insert.bindLong(4, parent);
+                insert.bindString(5, MimeType.JPEG);
+                insert.bindString(6, accountFor(parent));
+                insert.bindLong(7, id % 1000 == 0 ? 1 : 0);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+
+    private static String accountFor(long folderId) {
+        return "user" + folderId % ACCOUNTS + "@server";
+    }
+
+    @Test
+    public void testFolderOpenLatency() {
+        long unindexed = measureFolderOpen();
+
+        FileContentProvider.createFilesTableIndexes(db);
+        db.execSQL("ANALYZE");
+
+        long indexed = measureFolderOpen();
+
+        Log_OC.d(TAG, String.format(Locale.ENGLISH,
+                "Folder open over %d rows: %d us without indexes, %d us with indexes",
+                ROWS, unindexed / 1000, indexed / 1000));
+
+        assertTrue("Indexed folder open should be faster than a full table scan", indexed < unindexed);
+    }
+
+    /**
+     * @return average time in nanoseconds to read the full content of a random folder
+     */
+    private long measureFolderOpen() {
+        Random random = new Random(ROWS);
+        long total = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long parent = random.nextInt(FOLDERS) + 1;
+
+            long start = System.nanoTime();
+            Cursor cursor = db.rawQuery(FOLDER_CONTENT_QUERY, new String[]{String.valueOf(parent), accountFor(parent)});
+            int count = 0;
+            while (cursor.moveToNext()) {
+                count++;
+            }
+            cursor.close();
+            total += System.nanoTime() - start;
+
+            assertEquals(CHILDREN_PER_FOLDER, count);
+        }
+
+        return total / ITERATIONS;
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+}
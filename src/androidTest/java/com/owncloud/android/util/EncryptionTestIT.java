@@ -34,6 +34,7 @@ import com.owncloud.android.utils.EncryptionUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.spongycastle.crypto.InvalidCipherTextException;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -221,6 +222,47 @@ public class EncryptionTestIT {
                         .getAuthenticationTag())));
     }
 
+    @Test
+    public void cryptFileStreaming() throws Exception {
+        byte[] key = EncryptionUtils.decodeStringToBase64Bytes("WANM0gRv+DhaexIsI0T3Lg==");
+        byte[] iv = EncryptionUtils.decodeStringToBase64Bytes("gKm3n+mJzeY26q4OfuZEqg==");
+        byte[] authTag = EncryptionUtils.decodeStringToBase64Bytes("PboI9tqHHX3QeAA22PIu4w==");
+        String md5 = "78f42172166f9dc8fd1a7156b1753353";
+
+        File file = getFile("ia7OEEEyXMoRa1QWQk8r");
+        File encryptedFile = File.createTempFile("file", "tmp");
+        File decryptedFile = File.createTempFile("file", "dec");
+
+        String authenticationTag = EncryptionUtils.encryptFile(file, encryptedFile, key, iv);
+
+        // same result as encrypting in memory
+        assertTrue(Arrays.equals(authTag, EncryptionUtils.decodeStringToBase64Bytes(authenticationTag)));
+        assertTrue(Arrays.equals(EncryptionUtils.encryptFile(file, key, iv).encryptedBytes,
+                                 FileUtils.readFileToByteArray(encryptedFile)));
+
+        EncryptionUtils.decryptFile(encryptedFile, decryptedFile, key, iv, authTag);
+
+        assertEquals(md5, EncryptionUtils.getMD5Sum(decryptedFile));
+    }
+
+    @Test(expected = InvalidCipherTextException.class)
+    public void cryptFileStreamingTampered() throws Exception {
+        byte[] key = EncryptionUtils.decodeStringToBase64Bytes("WANM0gRv+DhaexIsI0T3Lg==");
+        byte[] iv = EncryptionUtils.decodeStringToBase64Bytes("gKm3n+mJzeY26q4OfuZEqg==");
+
+        File encryptedFile = File.createTempFile("file", "tmp");
+        String authenticationTag = EncryptionUtils.encryptFile(getFile("ia7OEEEyXMoRa1QWQk8r"), encryptedFile, key,
+                                                               iv);
+
+        // flip a bit of the content, keeping the appended tag
+        byte[] encryptedBytes = FileUtils.readFileToByteArray(encryptedFile);
+        encryptedBytes[0] ^= 1;
+        FileUtils.writeByteArrayToFile(encryptedFile, encryptedBytes);
+
+        EncryptionUtils.decryptFile(encryptedFile, File.createTempFile("file", "dec"), key, iv,
+                                    EncryptionUtils.decodeStringToBase64Bytes(authenticationTag));
+    }
+
     /**
      * generates new keys and tests if they are unique
      */
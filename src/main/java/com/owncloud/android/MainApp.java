@@ -34,6 +34,8 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.StrictMode;
 import android.text.TextUtils;
 import android.view.WindowManager;
@@ -68,6 +70,7 @@ import com.owncloud.android.utils.FilesSyncHelper;
 import com.owncloud.android.utils.PermissionUtil;
 import com.owncloud.android.utils.ReceiversHelper;
 import com.owncloud.android.utils.SecurityUtils;
+import com.owncloud.android.utils.StartupScheduler;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -101,6 +104,8 @@ public class MainApp extends MultiDexApplication {
 
     private static final String AUTH_ON = "on";
 
+    private static final String STAGE_AUTO_UPLOAD_MIGRATIONS = "auto upload migrations";
+
     @SuppressWarnings("unused")
     private static final String POLICY_SINGLE_SESSION_PER_ACCOUNT = "single session per account";
     @SuppressWarnings("unused")
@@ -123,6 +128,67 @@ public class MainApp extends MultiDexApplication {
         JobManager.create(this).addJobCreator(new NCJobCreator());
         MainApp.mContext = getApplicationContext();
 
+        StartupScheduler startupScheduler = new StartupScheduler();
+        startupScheduler.runCritical("storage", this::initStorage);
+        startupScheduler.runCritical("clients", this::initClients);
+        startupScheduler.runCritical("logging", this::initLogging);
+        // channels have to exist before any service started by the first activity notifies
+        startupScheduler.runCritical("notification channels", MainApp::notificationChannels);
+
+        startupScheduler
+                .defer(STAGE_AUTO_UPLOAD_MIGRATIONS, MainApp::migrateAutoUploadEntries)
+                .defer("sync jobs", MainApp::scheduleSyncJobs, STAGE_AUTO_UPLOAD_MIGRATIONS)
+                .defer("media folders detection", MainApp::scheduleMediaFoldersDetection,
+                       STAGE_AUTO_UPLOAD_MIGRATIONS)
+                .defer("receivers", MainApp::registerReceivers)
+                .defer("contacts backup", MainApp::initContactsBackup)
+                .start();
+
+        // register global protection with pass code
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onCreate(Bundle) starting");
+                WhatsNewActivity.runIfNeeded(activity);
+                PassCodeManager.getPassCodeManager().onActivityCreated(activity);
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onStart() starting");
+                PassCodeManager.getPassCodeManager().onActivityStarted(activity);
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onResume() starting");
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onPause() ending");
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onStop() ending");
+                PassCodeManager.getPassCodeManager().onActivityStopped(activity);
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onSaveInstanceState(Bundle) starting");
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                Log_OC.d(activity.getClass().getSimpleName(), "onDestroy() ending");
+            }
+        });
+    }
+
+    private void initStorage() {
         new SecurityUtils();
         DisplayUtils.useCompatVectorIfNeeded();
 
@@ -132,7 +198,9 @@ public class MainApp extends MultiDexApplication {
 
         MainApp.storagePath = appPrefs.getString(Preferences.PreferenceKeys.STORAGE_PATH,
                 getApplicationContext().getFilesDir().getAbsolutePath());
+    }
 
+    private void initClients() {
         boolean isSamlAuth = AUTH_ON.equals(getString(R.string.auth_method_saml_web_sso));
 
         OwnCloudClientManagerFactory.setUserAgent(getUserAgent());
@@ -146,8 +214,9 @@ public class MainApp extends MultiDexApplication {
 
         // initialise thumbnails cache on background thread
         new ThumbnailsCacheManager.InitDiskCacheTask().execute();
+    }
 
-
+    private void initLogging() {
         if (BuildConfig.DEBUG || getApplicationContext().getResources().getBoolean(R.bool.logger_enabled) ||
                 appPrefs.getBoolean(Preferences.PREFERENCE_EXPERT_MODE, false)) {
             // use app writable dir, no permissions needed
@@ -163,12 +232,9 @@ public class MainApp extends MultiDexApplication {
                 Log_OC.d("Debug", "Failed to disable uri exposure");
             }
         }
+    }
 
-        initSyncOperations();
-        initContactsBackup();
-        notificationChannels();
-
-
+    private static void scheduleMediaFoldersDetection() {
         new JobRequest.Builder(MediaFoldersDetectionJob.TAG)
                 .setPeriodic(TimeUnit.MINUTES.toMillis(15), TimeUnit.MINUTES.toMillis(5))
                 .setUpdateCurrent(true)
@@ -180,50 +246,6 @@ public class MainApp extends MultiDexApplication {
                 .setUpdateCurrent(false)
                 .build()
                 .schedule();
-
-
-        // register global protection with pass code
-        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
-
-            @Override
-            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onCreate(Bundle) starting");
-                WhatsNewActivity.runIfNeeded(activity);
-                PassCodeManager.getPassCodeManager().onActivityCreated(activity);
-            }
-
-            @Override
-            public void onActivityStarted(Activity activity) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onStart() starting");
-                PassCodeManager.getPassCodeManager().onActivityStarted(activity);
-            }
-
-            @Override
-            public void onActivityResumed(Activity activity) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onResume() starting");
-            }
-
-            @Override
-            public void onActivityPaused(Activity activity) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onPause() ending");
-            }
-
-            @Override
-            public void onActivityStopped(Activity activity) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onStop() ending");
-                PassCodeManager.getPassCodeManager().onActivityStopped(activity);
-            }
-
-            @Override
-            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onSaveInstanceState(Bundle) starting");
-            }
-
-            @Override
-            public void onActivityDestroyed(Activity activity) {
-                Log_OC.d(activity.getClass().getSimpleName(), "onDestroy() ending");
-            }
-        });
     }
 
     public static void initContactsBackup() {
@@ -294,6 +316,16 @@ public class MainApp extends MultiDexApplication {
     }
 
     public static void initSyncOperations() {
+        migrateAutoUploadEntries();
+        scheduleSyncJobs();
+        registerReceivers();
+    }
+
+    /**
+     * Runs the one-time migrations of the auto upload entries in the order they were introduced. Synchronized, as the
+     * boot receiver may run them while the deferred startup stage does.
+     */
+    private static synchronized void migrateAutoUploadEntries() {
         updateToAutoUpload();
         cleanOldEntries();
         updateAutoUploadEntries();
@@ -306,13 +338,17 @@ public class MainApp extends MultiDexApplication {
                 PreferenceManager.setAutoUploadSplitEntries(getAppContext(), true);
             }
         }
+    }
 
+    private static void scheduleSyncJobs() {
         initiateExistingAutoUploadEntries();
 
         FilesSyncHelper.scheduleFilesSyncIfNeeded(mContext);
         FilesSyncHelper.restartJobsIfNeeded();
         FilesSyncHelper.scheduleOfflineSyncIfNeeded();
+    }
 
+    private static void registerReceivers() {
         ReceiversHelper.registerNetworkChangeReceiver();
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
@@ -527,23 +563,25 @@ public class MainApp extends MultiDexApplication {
                         .remove("instant_video_upload_on_charging")
                         .remove("prefs_instant_behaviour").apply();
 
-                // show info pop-up
-                try {
-                    new AlertDialog.Builder(context, R.style.Theme_ownCloud_Dialog)
-                            .setTitle(R.string.drawer_synced_folders)
-                            .setMessage(R.string.synced_folders_new_info)
-                            .setPositiveButton(R.string.drawer_open, (dialog, which) -> {
-                                // show Auto Upload
-                                Intent folderSyncIntent = new Intent(context, SyncedFoldersActivity.class);
-                                dialog.dismiss();
-                                context.startActivity(folderSyncIntent);
-                            })
-                            .setNegativeButton(R.string.drawer_close, (dialog, which) -> dialog.dismiss())
-                            .setIcon(R.drawable.nav_synced_folders)
-                            .show();
-                } catch (WindowManager.BadTokenException e) {
-                    Log_OC.i(TAG, "Error showing Auto Upload Update dialog, so skipping it: " + e.getMessage());
-                }
+                // show info pop-up, on the main thread as migrations run in background on startup
+                new Handler(Looper.getMainLooper()).post(() -> {
+                    try {
+                        new AlertDialog.Builder(context, R.style.Theme_ownCloud_Dialog)
+                                .setTitle(R.string.drawer_synced_folders)
+                                .setMessage(R.string.synced_folders_new_info)
+                                .setPositiveButton(R.string.drawer_open, (dialog, which) -> {
+                                    // show Auto Upload
+                                    Intent folderSyncIntent = new Intent(context, SyncedFoldersActivity.class);
+                                    dialog.dismiss();
+                                    context.startActivity(folderSyncIntent);
+                                })
+                                .setNegativeButton(R.string.drawer_close, (dialog, which) -> dialog.dismiss())
+                                .setIcon(R.drawable.nav_synced_folders)
+                                .show();
+                    } catch (WindowManager.BadTokenException e) {
+                        Log_OC.i(TAG, "Error showing Auto Upload Update dialog, so skipping it: " + e.getMessage());
+                    }
+                });
             }
     }
 
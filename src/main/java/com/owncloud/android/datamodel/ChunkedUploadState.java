@@ -0,0 +1,43 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Chunks of a chunked upload confirmed by the server, stored along with the upload to resume it.
+ */
+@Getter
+@AllArgsConstructor
+public class ChunkedUploadState {
+    /**
+     * Id of the transfer the chunks were sent in, part of their remote names.
+     */
+    private long transferId;
+
+    /**
+     * Modification time of the local file when the chunks were read; chunks of a changed file are sent again.
+     */
+    private long fileModified;
+
+    private Set<Integer> confirmedChunks;
+}
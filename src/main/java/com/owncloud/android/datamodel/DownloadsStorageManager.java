@@ -0,0 +1,153 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.accounts.Account;
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+
+import com.owncloud.android.MainApp;
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.providers.FileContentProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent queue of the downloads requested in batches, e.g. the files of a synchronized folder.
+ *
+ * Downloads are stored when requested and removed once performed or cancelled, so that the downloads still queued
+ * when the process dies are resumed the next time the download service starts.
+ */
+public class DownloadsStorageManager {
+    private static final String TAG = DownloadsStorageManager.class.getSimpleName();
+
+    private final ContentResolver contentResolver;
+
+    public DownloadsStorageManager(ContentResolver contentResolver) {
+        if (contentResolver == null) {
+            throw new IllegalArgumentException("Cannot create an instance with a NULL contentResolver");
+        }
+        this.contentResolver = contentResolver;
+    }
+
+    /**
+     * Queues the download of several files of an account in a single transaction.
+     *
+     * @return true if the downloads were stored
+     */
+    public boolean storeDownloads(Account account, Collection<OCFile> files) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(files.size());
+        for (OCFile file : files) {
+            operations.add(ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI_DOWNLOADS)
+                               .withValue(ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME, account.name)
+                               .withValue(ProviderTableMeta.DOWNLOADS_FILE_ID, file.getFileId())
+                               .withValue(ProviderTableMeta.DOWNLOADS_REMOTE_PATH, file.getRemotePath())
+                               .build());
+        }
+
+        if (operations.isEmpty()) {
+            return false;
+        }
+
+        try {
+            contentResolver.applyBatch(MainApp.getAuthority(), operations);
+            return true;
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, "Failed to queue " + files.size() + " downloads of " + account.name, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return ids of the files queued for download by account name, in the order they were requested
+     */
+    public Map<String, List<Long>> getQueuedDownloads() {
+        Map<String, List<Long>> downloads = new LinkedHashMap<>();
+
+        try (Cursor cursor = contentResolver.query(ProviderTableMeta.CONTENT_URI_DOWNLOADS,
+                                                   new String[]{ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME,
+                                                       ProviderTableMeta.DOWNLOADS_FILE_ID},
+                                                   null, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    String accountName = cursor.getString(0);
+                    List<Long> fileIds = downloads.get(accountName);
+                    if (fileIds == null) {
+                        fileIds = new ArrayList<>();
+                        downloads.put(accountName, fileIds);
+                    }
+                    fileIds.add(cursor.getLong(1));
+                }
+            }
+        }
+
+        return downloads;
+    }
+
+    /**
+     * Removes a performed or cancelled download from the queue.
+     */
+    public void removeDownload(String accountName, String remotePath) {
+        contentResolver.delete(ProviderTableMeta.CONTENT_URI_DOWNLOADS,
+                               ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + "=? AND " +
+                                   ProviderTableMeta.DOWNLOADS_REMOTE_PATH + "=?",
+                               new String[]{accountName, remotePath});
+    }
+
+    /**
+     * Removes the download of a file that does not exist anymore from the queue.
+     */
+    public void removeDownload(String accountName, long fileId) {
+        contentResolver.delete(ProviderTableMeta.CONTENT_URI_DOWNLOADS,
+                               ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + "=? AND " +
+                                   ProviderTableMeta.DOWNLOADS_FILE_ID + "=?",
+                               new String[]{accountName, String.valueOf(fileId)});
+    }
+
+    /**
+     * Removes the downloads of the descendants of a folder from the queue.
+     *
+     * @param folderPath remote path of the folder, ending with a separator
+     */
+    public void removeFolderDownloads(String accountName, String folderPath) {
+        contentResolver.delete(ProviderTableMeta.CONTENT_URI_DOWNLOADS,
+                               ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + "=? AND " +
+                                   ProviderTableMeta.DOWNLOADS_REMOTE_PATH + ">=? AND " +
+                                   ProviderTableMeta.DOWNLOADS_REMOTE_PATH + "<?",
+                               new String[]{accountName, folderPath,
+                                   FileContentProvider.getPrefixUpperBound(folderPath)});
+    }
+
+    /**
+     * Removes all the downloads of an account from the queue.
+     */
+    public void removeDownloads(String accountName) {
+        contentResolver.delete(ProviderTableMeta.CONTENT_URI_DOWNLOADS,
+                               ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + "=?",
+                               new String[]{accountName});
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.text.TextUtils;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.MimeType;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
+
+/**
+ * Reads the EXIF dates of the images of a synced folder. Of JPEG images only the EXIF segment is read; reading and
+ * parsing is thread safe.
+ */
+public final class ExifDateReader {
+    private static final String TAG = ExifDateReader.class.getSimpleName();
+
+    /**
+     * Returned for images without EXIF date.
+     */
+    public static final long NO_EXIF_DATE = -1;
+
+    private static final int JPEG_MARKER_PREFIX = 0xFF;
+    private static final int JPEG_SOI = 0xD8;
+    private static final int JPEG_EOI = 0xD9;
+    private static final int JPEG_SOS = 0xDA;
+    private static final int JPEG_APP1 = 0xE1;
+    private static final int MAX_SEGMENT_LENGTH = 0xFFFF;
+    private static final int SEGMENT_HEADER_LENGTH = 6;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final byte[] EXIF_IDENTIFIER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private static final ThreadLocal<SimpleDateFormat> formatters = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat formatter = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.ENGLISH);
+            formatter.setTimeZone(TimeZone.getTimeZone(TimeZone.getDefault().getID()));
+            return formatter;
+        }
+    };
+
+    private static final ThreadLocal<byte[]> segmentBuffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_SEGMENT_LENGTH + SEGMENT_HEADER_LENGTH];
+        }
+    };
+
+    private ExifDateReader() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * Reads the EXIF date of a JPEG or TIFF image. Of JPEG images only the EXIF segment is read.
+     *
+     * @return EXIF date in milliseconds, or {@link #NO_EXIF_DATE}
+     */
+    public static long readExifDate(File file) {
+        try {
+            ExifInterface exifInterface;
+            if (MimeType.TIFF.equalsIgnoreCase(FileStorageUtils.getMimeTypeFromName(file.getName()))) {
+                exifInterface = new ExifInterface(file.getAbsolutePath());
+            } else {
+                exifInterface = readJpegExifSegment(file);
+            }
+
+            if (exifInterface == null) {
+                return NO_EXIF_DATE;
+            }
+
+            String exifDate = exifInterface.getAttribute(ExifInterface.TAG_DATETIME);
+            if (!TextUtils.isEmpty(exifDate)) {
+                Date dateTime = formatters.get().parse(exifDate, new ParsePosition(0));
+                if (dateTime != null) {
+                    return dateTime.getTime();
+                }
+            }
+        } catch (Exception e) {
+            Log_OC.d(TAG, "Failed to get the proper time " + e.getLocalizedMessage());
+        }
+
+        return NO_EXIF_DATE;
+    }
+
+    /**
+     * Walks the JPEG segments up to the image data and parses only the APP1 segment holding the EXIF data.
+     *
+     * @return parsed EXIF data, or null if the image has none
+     */
+    @Nullable
+    private static ExifInterface readJpegExifSegment(File file) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE))) {
+            if (inputStream.readUnsignedByte() != JPEG_MARKER_PREFIX || inputStream.readUnsignedByte() != JPEG_SOI) {
+                return null;
+            }
+
+            while (true) {
+                int marker = inputStream.readUnsignedByte();
+                if (marker != JPEG_MARKER_PREFIX) {
+                    return null;
+                }
+                do {
+                    // markers may be preceded by fill bytes
+                    marker = inputStream.readUnsignedByte();
+                } while (marker == JPEG_MARKER_PREFIX);
+
+                if (marker == JPEG_SOS || marker == JPEG_EOI) {
+                    return null;
+                }
+
+                int length = inputStream.readUnsignedShort();
+                if (length < 2) {
+                    return null;
+                }
+
+                if (marker == JPEG_APP1) {
+                    byte[] segment = segmentBuffers.get();
+                    int dataLength = length - 2;
+                    inputStream.readFully(segment, SEGMENT_HEADER_LENGTH, dataLength);
+
+                    if (isExifSegment(segment, SEGMENT_HEADER_LENGTH, dataLength)) {
+                        // minimal JPEG stream: SOI, APP1 and EOI
+                        segment[0] = (byte) JPEG_MARKER_PREFIX;
+                        segment[1] = (byte) JPEG_SOI;
+                        segment[2] = (byte) JPEG_MARKER_PREFIX;
+                        segment[3] = (byte) JPEG_APP1;
+                        segment[4] = (byte) (length >> 8);
+                        segment[5] = (byte) length;
+                        segment[SEGMENT_HEADER_LENGTH + dataLength] = (byte) JPEG_MARKER_PREFIX;
+                        segment[SEGMENT_HEADER_LENGTH + dataLength + 1] = (byte) JPEG_EOI;
+
+                        return new ExifInterface(new ByteArrayInputStream(segment, 0,
+                                                                         SEGMENT_HEADER_LENGTH + dataLength + 2));
+                    }
+                } else if (inputStream.skipBytes(length - 2) != length - 2) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static boolean isExifSegment(byte[] segment, int offset, int length) {
+        if (length < EXIF_IDENTIFIER.length) {
+            return false;
+        }
+        for (int i = 0; i < EXIF_IDENTIFIER.length; i++) {
+            if (segment[offset + i] != EXIF_IDENTIFIER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -31,6 +31,8 @@ import android.content.Intent;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
 import android.os.RemoteException;
 import android.provider.MediaStore;
 import android.text.TextUtils;
@@ -47,6 +49,7 @@ import com.owncloud.android.lib.resources.shares.ShareType;
 import com.owncloud.android.lib.resources.status.CapabilityBooleanType;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.RemoteOperationFailedException;
+import com.owncloud.android.providers.FileContentProvider;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
@@ -56,10 +59,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import androidx.annotation.Nullable;
@@ -323,24 +328,39 @@ public class FileDataStorageManager {
         Log_OC.d(TAG, "Saving folder " + folder.getRemotePath() + " with " + updatedFiles.size()
                 + " children and " + filesToRemove.size() + " files to remove");
 
-        ArrayList<ContentProviderOperation> operations = new ArrayList<>(updatedFiles.size());
+        // resolve inserts against updates with a single query for the current content of the folder
+        Map<String, Long> existingIds = getFolderContentIds(folder);
+        Set<Long> existingIdsSet = new HashSet<>(existingIds.values());
 
-        // prepare operations to insert or update files to save in the given folder
+        // children moved into this folder keep their id; check all of them at once instead of one by one
+        Set<Long> movedIds = new HashSet<>();
+        for (OCFile file : updatedFiles) {
+            if (file.getFileId() != -1 && !existingIdsSet.contains(file.getFileId()) &&
+                    !existingIds.containsKey(file.getRemotePath())) {
+                movedIds.add(file.getFileId());
+            }
+        }
+        existingIdsSet.addAll(getExistingFileIds(movedIds));
+
+        ArrayList<ContentValues> filesValues = new ArrayList<>(updatedFiles.size());
         for (OCFile file : updatedFiles) {
             ContentValues cv = createContentValueForFile(file, folder);
 
-            if (fileExists(file.getFileId()) || fileExists(file.getRemotePath())) {
-                // updating an existing file
-                operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
-                        .withValues(cv)
-                        .withSelection(ProviderTableMeta._ID + "=?", new String[]{String.valueOf(file.getFileId())})
-                        .build());
-            } else {
-                // adding a new file
-                operations.add(ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI).withValues(cv).build());
+            Long existingId = existingIds.get(file.getRemotePath());
+            if (file.getFileId() != -1 && existingIdsSet.contains(file.getFileId())) {
+                // updating an existing file, maybe moved into this folder
+                cv.put(ProviderTableMeta._ID, file.getFileId());
+            } else if (existingId != null) {
+                // updating an existing file known only by its path
+                cv.put(ProviderTableMeta._ID, existingId);
             }
+            // else adding a new file
+
+            filesValues.add(cv);
         }
 
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(filesToRemove.size() + 1);
+
         // prepare operations to remove files in the given folder
         String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + "=?";
         String[] whereArgs;
@@ -378,41 +398,157 @@ public class FileDataStorageManager {
                 .withSelection(ProviderTableMeta._ID + "=?", new String[]{String.valueOf(folder.getFileId())})
                 .build());
 
-        // apply operations in batch
-        ContentProviderResult[] results = null;
-        Log_OC.d(TAG, String.format(Locale.ENGLISH, SENDING_TO_FILECONTENTPROVIDER_MSG, operations.size()));
+        // apply all the changes in a single transaction
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, SENDING_TO_FILECONTENTPROVIDER_MSG,
+                                    filesValues.size() + operations.size()));
+        long[] ids = upsertFiles(filesValues, operations);
+
+        // update new id in file objects for insertions
+        if (ids != null) {
+            Iterator<OCFile> filesIt = updatedFiles.iterator();
+            for (int i = 0; i < ids.length && filesIt.hasNext(); i++) {
+                OCFile file = filesIt.next();
+                if (ids[i] > 0) {
+                    file.setFileId(ids[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return ids of the files currently stored as children of the given folder, keyed by remote path
+     */
+    private Map<String, Long> getFolderContentIds(OCFile folder) {
+        Map<String, Long> ids = new HashMap<>();
+        String[] projection = new String[]{ProviderTableMeta._ID, ProviderTableMeta.FILE_PATH};
+        String selection = ProviderTableMeta.FILE_PARENT + AND + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?";
+        String[] selectionArgs = new String[]{String.valueOf(folder.getFileId()), account.name};
+
+        Cursor c;
+        if (getContentResolver() != null) {
+            c = getContentResolver().query(ProviderTableMeta.CONTENT_URI, projection, selection, selectionArgs, null);
+        } else {
+            try {
+                c = getContentProviderClient().query(ProviderTableMeta.CONTENT_URI, projection, selection,
+                                                     selectionArgs, null);
+            } catch (RemoteException e) {
+                Log_OC.e(TAG, "Could not get folder content: " + e.getMessage(), e);
+                c = null;
+            }
+        }
+
+        if (c != null) {
+            int idIndex = c.getColumnIndex(ProviderTableMeta._ID);
+            int pathIndex = c.getColumnIndex(ProviderTableMeta.FILE_PATH);
+            while (c.moveToNext()) {
+                ids.put(c.getString(pathIndex), c.getLong(idIndex));
+            }
+            c.close();
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return subset of the given ids that belong to files currently stored for the account, in a single query
+     */
+    private Set<Long> getExistingFileIds(Collection<Long> fileIds) {
+        Set<Long> existing = new HashSet<>();
+        if (fileIds.isEmpty()) {
+            return existing;
+        }
 
+        String[] projection = new String[]{ProviderTableMeta._ID};
+        String selection = ProviderTableMeta.FILE_ACCOUNT_OWNER + "=? AND " + ProviderTableMeta._ID + " IN (" +
+                TextUtils.join(",", fileIds) + ")";
+        String[] selectionArgs = new String[]{account.name};
+
+        Cursor c;
+        if (getContentResolver() != null) {
+            c = getContentResolver().query(ProviderTableMeta.CONTENT_URI, projection, selection, selectionArgs, null);
+        } else {
+            try {
+                c = getContentProviderClient().query(ProviderTableMeta.CONTENT_URI, projection, selection,
+                                                     selectionArgs, null);
+            } catch (RemoteException e) {
+                Log_OC.e(TAG, "Could not check existing files: " + e.getMessage(), e);
+                c = null;
+            }
+        }
+
+        if (c != null) {
+            int idIndex = c.getColumnIndex(ProviderTableMeta._ID);
+            while (c.moveToNext()) {
+                existing.add(c.getLong(idIndex));
+            }
+            c.close();
+        }
+
+        return existing;
+    }
+
+    /**
+     * Inserts or updates the given rows of the files table and applies the given operations, in one transaction.
+     *
+     * Rows including {@link ProviderTableMeta#_ID} are updated, the rest are inserted.
+     *
+     * @return ids of the written rows, in the same order as filesValues; null if the write failed
+     */
+    @Nullable
+    private long[] upsertFiles(ArrayList<ContentValues> filesValues, ArrayList<ContentProviderOperation> operations) {
+        Bundle extras = new Bundle();
+        extras.putParcelableArrayList(FileContentProvider.EXTRA_FILES_VALUES, filesValues);
+        extras.putParcelableArrayList(FileContentProvider.EXTRA_OPERATIONS, operations);
+
+        Bundle result = null;
         try {
             if (getContentResolver() != null) {
-                results = getContentResolver().applyBatch(MainApp.getAuthority(), operations);
-
+                result = getContentResolver().call(ProviderTableMeta.CONTENT_URI,
+                                                   FileContentProvider.METHOD_UPSERT_FILES, null, extras);
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                result = getContentProviderClient().call(FileContentProvider.METHOD_UPSERT_FILES, null, extras);
             } else {
-                results = getContentProviderClient().applyBatch(operations);
+                return upsertFilesInBatch(filesValues, operations);
             }
-
-        } catch (OperationApplicationException | RemoteException e) {
+        } catch (RemoteException e) {
             Log_OC.e(TAG, EXCEPTION_MSG + e.getMessage(), e);
         }
 
-        // update new id in file objects for insertions
-        if (results != null) {
-            long newId;
-            Iterator<OCFile> filesIt = updatedFiles.iterator();
-            OCFile file;
-            for (ContentProviderResult result : results) {
-                if (filesIt.hasNext()) {
-                    file = filesIt.next();
-                } else {
-                    file = null;
-                }
-                if (result.uri != null) {
-                    newId = Long.parseLong(result.uri.getPathSegments().get(1));
-                    //updatedFiles.get(i).setFileId(newId);
-                    if (file != null) {
-                        file.setFileId(newId);
-                    }
-                }
+        return result == null ? null : result.getLongArray(FileContentProvider.EXTRA_FILE_IDS);
+    }
+
+    /**
+     * Fallback of {@link #upsertFiles(ArrayList, ArrayList)} for content provider clients not supporting calls.
+     */
+    @Nullable
+    private long[] upsertFilesInBatch(ArrayList<ContentValues> filesValues,
+                                      ArrayList<ContentProviderOperation> operations) {
+        ArrayList<ContentProviderOperation> batch = new ArrayList<>(filesValues.size() + operations.size());
+        for (ContentValues cv : filesValues) {
+            Long id = cv.getAsLong(ProviderTableMeta._ID);
+            if (id != null) {
+                batch.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                        .withValues(cv)
+                        .withSelection(ProviderTableMeta._ID + "=?", new String[]{String.valueOf(id)})
+                        .build());
+            } else {
+                batch.add(ContentProviderOperation.newInsert(ProviderTableMeta.CONTENT_URI).withValues(cv).build());
+            }
+        }
+        batch.addAll(operations);
+
+        try {
+            ContentProviderResult[] results = getContentProviderClient().applyBatch(batch);
+
+            long[] ids = new long[filesValues.size()];
+            for (int i = 0; i < ids.length; i++) {
+                Long id = filesValues.get(i).getAsLong(ProviderTableMeta._ID);
+                ids[i] = id != null ? id : ContentUris.parseId(results[i].uri);
             }
+            return ids;
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, EXCEPTION_MSG + e.getMessage(), e);
+            return null;
         }
     }
 
@@ -656,9 +792,10 @@ public class FileDataStorageManager {
             if (c.moveToFirst()) {
                 int lengthOfOldPath = file.getRemotePath().length();
                 int lengthOfOldStoragePath = defaultSavePath.length() + lengthOfOldPath;
+                OCFileCursorMapper mapper = new OCFileCursorMapper(c, account.name);
                 do {
                     ContentValues cv = new ContentValues(); // keep construction in the loop
-                    OCFile child = createFileInstance(c);
+                    OCFile child = mapper.map();
                     cv.put(
                             ProviderTableMeta.FILE_PATH,
                             targetPath + child.getRemotePath().substring(lengthOfOldPath)
@@ -753,27 +890,38 @@ public class FileDataStorageManager {
 
     public void migrateStoredFiles(String srcPath, String dstPath)
             throws RemoteException, OperationApplicationException {
-        Cursor cursor;
-        try {
-            if (getContentResolver() != null) {
-                cursor = getContentResolver().query(ProviderTableMeta.CONTENT_URI_FILE,
-                        null,
-                        ProviderTableMeta.FILE_STORAGE_PATH + " IS NOT NULL",
-                        null,
-                        null);
+        Bundle extras = new Bundle();
+        extras.putString(FileContentProvider.EXTRA_SOURCE_PATH, srcPath);
+        extras.putString(FileContentProvider.EXTRA_TARGET_PATH, dstPath);
 
-            } else {
-                cursor = getContentProviderClient().query(ProviderTableMeta.CONTENT_URI_FILE,
-                        new String[]{ProviderTableMeta._ID, ProviderTableMeta.FILE_STORAGE_PATH},
-                        ProviderTableMeta.FILE_STORAGE_PATH + " IS NOT NULL",
-                        null,
-                        null);
-            }
-        } catch (RemoteException e) {
-            Log_OC.e(TAG, e.getMessage(), e);
-            throw e;
+        // a single statement in the provider, instead of an update per stored file
+        Bundle result;
+        if (getContentResolver() != null) {
+            result = getContentResolver().call(ProviderTableMeta.CONTENT_URI,
+                                               FileContentProvider.METHOD_MIGRATE_STORAGE_PATHS, null, extras);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            result = getContentProviderClient().call(FileContentProvider.METHOD_MIGRATE_STORAGE_PATHS, null, extras);
+        } else {
+            migrateStoredFilesInBatch(srcPath, dstPath);
+            return;
         }
 
+        if (result == null) {
+            throw new OperationApplicationException("Local paths of files not migrated from " + srcPath);
+        }
+    }
+
+    /**
+     * Migrates the local paths with an update per stored file, where the provider can't be called.
+     */
+    private void migrateStoredFilesInBatch(String srcPath, String dstPath)
+            throws RemoteException, OperationApplicationException {
+        Cursor cursor = getContentProviderClient().query(ProviderTableMeta.CONTENT_URI_FILE,
+                new String[]{ProviderTableMeta._ID, ProviderTableMeta.FILE_STORAGE_PATH},
+                ProviderTableMeta.FILE_STORAGE_PATH + ">=? AND " + ProviderTableMeta.FILE_STORAGE_PATH + "<?",
+                new String[]{srcPath, FileContentProvider.getPrefixUpperBound(srcPath)},
+                null);
+
         ArrayList<ContentProviderOperation> operations = new ArrayList<>(cursor.getCount());
         if (cursor.moveToFirst()) {
             do {
@@ -782,27 +930,19 @@ public class FileDataStorageManager {
                 String oldFileStoragePath =
                         cursor.getString(cursor.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH));
 
-                if (oldFileStoragePath.startsWith(srcPath)) {
+                cv.put(ProviderTableMeta.FILE_STORAGE_PATH, dstPath + oldFileStoragePath.substring(srcPath.length()));
 
-                    cv.put(ProviderTableMeta.FILE_STORAGE_PATH, oldFileStoragePath.replaceFirst(srcPath, dstPath));
-
-                    operations.add(
-                            ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI).
-                                    withValues(cv).
-                                    withSelection(ProviderTableMeta._ID + "=?", new String[]{String.valueOf(fileId)})
-                                    .build());
-                }
+                operations.add(
+                        ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI).
+                                withValues(cv).
+                                withSelection(ProviderTableMeta._ID + "=?", new String[]{String.valueOf(fileId)})
+                                .build());
 
             } while (cursor.moveToNext());
         }
         cursor.close();
 
-        /// 3. apply updates in batch
-        if (getContentResolver() != null) {
-            getContentResolver().applyBatch(MainApp.getAuthority(), operations);
-        } else {
-            getContentProviderClient().applyBatch(operations);
-        }
+        getContentProviderClient().applyBatch(operations);
     }
 
     private List<OCFile> getFolderContent(long parentId, boolean onlyOnDevice) {
@@ -816,9 +956,9 @@ public class FileDataStorageManager {
             try {
                 c = getContentProviderClient().query(
                         req_uri,
-                        null,
-                        ProviderTableMeta.FILE_PARENT + "=?",
-                        new String[]{String.valueOf(parentId)},
+                        OCFileCursorMapper.PROJECTION,
+                        ProviderTableMeta.FILE_PARENT + AND + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?",
+                        new String[]{String.valueOf(parentId), account.name},
                         null
                 );
             } catch (RemoteException e) {
@@ -828,17 +968,18 @@ public class FileDataStorageManager {
         } else {
             c = getContentResolver().query(
                     req_uri,
-                    null,
-                    ProviderTableMeta.FILE_PARENT + "=?",
-                    new String[]{String.valueOf(parentId)},
+                    OCFileCursorMapper.PROJECTION,
+                    ProviderTableMeta.FILE_PARENT + AND + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?",
+                    new String[]{String.valueOf(parentId), account.name},
                     null
             );
         }
 
         if (c != null) {
             if (c.moveToFirst()) {
+                OCFileCursorMapper mapper = new OCFileCursorMapper(c, account.name);
                 do {
-                    OCFile child = createFileInstance(c);
+                    OCFile child = mapper.map();
                     if (!onlyOnDevice || child.existsOnDevice()) {
                         ret.add(child);
                     }
@@ -914,61 +1055,10 @@ public class FileDataStorageManager {
         return c;
     }
 
-    @Nullable
-    private OCFile createFileInstanceFromVirtual(Cursor c) {
-        OCFile file = null;
-        if (c != null) {
-            long fileId = c.getLong(c.getColumnIndex(ProviderTableMeta.VIRTUAL_OCFILE_ID));
-            file = getFileById(fileId);
-        }
-
-        return file;
-    }
-
     private OCFile createFileInstance(Cursor c) {
         OCFile file = null;
         if (c != null) {
-            file = new OCFile(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PATH)));
-            file.setFileId(c.getLong(c.getColumnIndex(ProviderTableMeta._ID)));
-            file.setParentId(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_PARENT)));
-            file.setEncryptedFileName(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ENCRYPTED_NAME)));
-            file.setMimeType(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE)));
-            file.setStoragePath(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH)));
-            if (file.getStoragePath() == null) {
-                // try to find existing file and bind it with current account;
-                // with the current update of SynchronizeFolderOperation, this won't be
-                // necessary anymore after a full synchronization of the account
-                File f = new File(FileStorageUtils.getDefaultSavePathFor(account.name, file));
-                if (f.exists()) {
-                    file.setStoragePath(f.getAbsolutePath());
-                    file.setLastSyncDateForData(f.lastModified());
-                }
-            }
-            file.setFileLength(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_CONTENT_LENGTH)));
-            file.setCreationTimestamp(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_CREATION)));
-            file.setModificationTimestamp(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_MODIFIED)));
-            file.setModificationTimestampAtLastSyncForData(c.getLong(
-                    c.getColumnIndex(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA)));
-            file.setLastSyncDateForProperties(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE)));
-            file.setLastSyncDateForData(c.getLong(c.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA)));
-            file.setAvailableOffline(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_KEEP_IN_SYNC)) == 1);
-            file.setEtag(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ETAG)));
-            file.setSharedViaLink(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_SHARED_VIA_LINK)) == 1);
-            file.setSharedWithSharee(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_SHARED_WITH_SHAREE)) == 1);
-            file.setPublicLink(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PUBLIC_LINK)));
-            file.setPermissions(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_PERMISSIONS)));
-            file.setRemoteId(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_REMOTE_ID)));
-            file.setUpdateThumbnailNeeded(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_UPDATE_THUMBNAIL)) == 1);
-            file.setDownloading(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_IS_DOWNLOADING)) == 1);
-            file.setEtagInConflict(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_ETAG_IN_CONFLICT)));
-            file.setFavorite(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_FAVORITE)) == 1);
-            file.setEncrypted(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_IS_ENCRYPTED)) == 1);
-            if (file.isEncrypted()) {
-                file.setFileName(c.getString(c.getColumnIndex(ProviderTableMeta.FILE_NAME)));
-            }
-            file.setMountType(WebdavEntry.MountType.values()[c.getInt(
-                    c.getColumnIndex(ProviderTableMeta.FILE_MOUNT_TYPE))]);
-            file.setPreviewAvailable(c.getInt(c.getColumnIndex(ProviderTableMeta.FILE_HAS_PREVIEW)) == 1);
+            file = new OCFileCursorMapper(c, account.name).map();
         }
         return file;
     }
@@ -2145,58 +2235,47 @@ public class FileDataStorageManager {
         }
     }
 
+    /**
+     * Queries the files of a virtual folder joined with their entries, filtering images in the query if needed.
+     */
     public List<OCFile> getVirtualFolderContent(VirtualFolderType type, boolean onlyImages) {
         List<OCFile> ocFiles = new ArrayList<>();
-        Uri req_uri = ProviderTableMeta.CONTENT_URI_VIRTUAL;
-        Cursor c;
+        Uri uri = ProviderTableMeta.CONTENT_URI_VIRTUAL_FILES;
+
+        String selection = ProviderTableMeta.VIRTUAL_TYPE + AND + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?";
+        String[] selectionArgs;
+        if (onlyImages) {
+            // same as MimeTypeUtil.isImage
+            selection += " AND lower(" + ProviderTableMeta.FILE_CONTENT_TYPE + ") LIKE ? AND lower("
+                    + ProviderTableMeta.FILE_CONTENT_TYPE + ") NOT LIKE ?";
+            selectionArgs = new String[]{String.valueOf(type), account.name, "image/%", "%djvu%"};
+        } else {
+            selectionArgs = new String[]{String.valueOf(type), account.name};
+        }
 
+        Cursor c;
         if (getContentProviderClient() != null) {
             try {
-                c = getContentProviderClient().query(
-                        req_uri,
-                        null,
-                        ProviderTableMeta.VIRTUAL_TYPE + "=?",
-                        new String[]{String.valueOf(type)},
-                        null
-                );
+                c = getContentProviderClient().query(uri, OCFileCursorMapper.PROJECTION, selection, selectionArgs,
+                                                     null);
             } catch (RemoteException e) {
                 Log_OC.e(TAG, e.getMessage(), e);
                 return ocFiles;
             }
         } else {
-            c = getContentResolver().query(
-                    req_uri,
-                    null,
-                    ProviderTableMeta.VIRTUAL_TYPE + "=?",
-                    new String[]{String.valueOf(type)},
-                    null
-            );
+            c = getContentResolver().query(uri, OCFileCursorMapper.PROJECTION, selection, selectionArgs, null);
         }
 
         if (c != null) {
             if (c.moveToFirst()) {
+                OCFileCursorMapper mapper = new OCFileCursorMapper(c, account.name);
                 do {
-                    OCFile child = createFileInstanceFromVirtual(c);
-
-                    if (child != null) {
-                        ocFiles.add(child);
-                    }
+                    ocFiles.add(mapper.map());
                 } while (c.moveToNext());
             }
             c.close();
         }
 
-        if (onlyImages) {
-            List<OCFile> temp = new ArrayList<>();
-
-            for (OCFile file : ocFiles) {
-                if (MimeTypeUtil.isImage(file)) {
-                    temp.add(file);
-                }
-            }
-            ocFiles = temp;
-        }
-
         if (ocFiles.size() > 0) {
             Collections.sort(ocFiles);
         }
@@ -44,4 +44,5 @@ public class FileSystemDataSet {
     private long foundAt;
     private long syncedFolderId;
     @Nullable private String crc32;
+    private long fileSize;
 }
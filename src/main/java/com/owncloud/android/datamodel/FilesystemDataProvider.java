@@ -19,21 +19,25 @@
  */
 package com.owncloud.android.datamodel;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
-import android.net.Uri;
+import android.os.RemoteException;
 
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.CRC32;
+
+import androidx.annotation.Nullable;
 
 /**
  * Provider for stored filesystem data.
@@ -41,6 +45,7 @@ import java.util.zip.CRC32;
 public class FilesystemDataProvider {
 
     static private final String TAG = FilesystemDataProvider.class.getSimpleName();
+    static final long UNKNOWN_SIZE = -1;
 
     private ContentResolver contentResolver;
 
@@ -106,123 +111,155 @@ public class FilesystemDataProvider {
         return localPathsToUpload;
     }
 
-    public void storeOrUpdateFileValue(String localPath, long modifiedAt, boolean isFolder, SyncedFolder syncedFolder) {
-
-        FileSystemDataSet data = getFilesystemDataSet(localPath, syncedFolder);
-
-        int isFolderValue = 0;
-        if (isFolder) {
-            isFolderValue = 1;
-        }
-
-        ContentValues cv = new ContentValues();
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, System.currentTimeMillis());
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
-
-        if (data == null) {
-
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolderValue);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, false);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
-
-            long newCrc32 = getFileChecksum(localPath);
-            if (newCrc32 != -1) {
-                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-            }
+    /**
+     * Same modification time and size prove a file unchanged without reading it; size is unknown for entries stored
+     * before it was tracked.
+     */
+    static boolean isUnchanged(FileSystemDataSet data, long modifiedAt, long fileSize) {
+        return data.getModifiedAt() == modifiedAt && (data.getFileSize() == UNKNOWN_SIZE ||
+                data.getFileSize() == fileSize);
+    }
 
-            Uri result = contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM, cv);
+    /**
+     * @return all the entries stored for the given synced folder, keyed by local path
+     */
+    public Map<String, FileSystemDataSet> getFilesystemDataSets(SyncedFolder syncedFolder) {
+        Map<String, FileSystemDataSet> dataSets = new HashMap<>();
 
-            if (result == null) {
-                Log_OC.v(TAG, "Failed to insert filesystem data with local path: " + localPath);
-            }
-        } else {
+        Cursor cursor = contentResolver.query(
+                ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
+                null,
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
+                new String[]{Long.toString(syncedFolder.getId())},
+                null
+        );
 
-            if (data.getModifiedAt() != modifiedAt) {
-                long newCrc32 = getFileChecksum(localPath);
-                if (data.getCrc32() == null || (newCrc32 != -1 && !data.getCrc32().equals(Long.toString(newCrc32)))) {
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                FileSystemDataSet dataSet = createFilesystemDataSet(cursor, syncedFolder);
+                if (dataSet != null) {
+                    dataSets.put(dataSet.getLocalPath(), dataSet);
                 }
             }
+            cursor.close();
+        } else {
+            Log_OC.e(TAG, "DB error restoring filesystem values.");
+        }
 
+        return dataSets;
+    }
 
-            int result = contentResolver.update(
-                    ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
-                    cv,
-                    ProviderMeta.ProviderTableMeta._ID + "=?",
-                    new String[]{String.valueOf(data.getId())}
-            );
+    /**
+     * Applies the changes found while indexing a synced folder in a single transaction.
+     *
+     * @param added    new entries to insert
+     * @param modified stored entries whose modification time or size changed, but not their content; their stored
+     *                 upload state is kept
+     * @param reset    stored entries whose content changed, to be uploaded again
+     * @param removed  stored entries whose file does not exist anymore
+     * @return number of written rows
+     */
+    public int applyChanges(SyncedFolder syncedFolder, Collection<FileSystemDataSet> added,
+                            Collection<FileSystemDataSet> modified, Collection<FileSystemDataSet> reset,
+                            Collection<FileSystemDataSet> removed) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(added.size() + modified.size() +
+                                                                             reset.size() + removed.size());
+        long foundAt = System.currentTimeMillis();
+
+        for (FileSystemDataSet dataSet : added) {
+            ContentValues cv = createContentValues(dataSet, foundAt);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, dataSet.isSentForUpload() ? 1 : 0);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, dataSet.getLocalPath());
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, dataSet.isFolder() ? 1 : 0);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
 
-            if (result == 0) {
-                Log_OC.v(TAG, "Failed to update filesystem data with local path: " + localPath);
-            }
+            operations.add(ContentProviderOperation.newInsert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                               .withValues(cv)
+                               .build());
         }
-    }
 
-    private FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
+        for (FileSystemDataSet dataSet : modified) {
+            // upload state is not written, it may have changed since the entries were loaded
+            operations.add(ContentProviderOperation.newUpdate(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                               .withValues(createContentValues(dataSet, foundAt))
+                               .withSelection(ProviderMeta.ProviderTableMeta._ID + "=?",
+                                              new String[]{String.valueOf(dataSet.getId())})
+                               .build());
+        }
 
-        Cursor cursor = contentResolver.query(
-                ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
-                null,
-                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " = ? and " +
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
-                new String[]{localPathParam, Long.toString(syncedFolder.getId())},
-                null
-        );
+        for (FileSystemDataSet dataSet : reset) {
+            ContentValues cv = createContentValues(dataSet, foundAt);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
 
-        FileSystemDataSet dataSet = null;
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int id = cursor.getInt(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta._ID));
-                String localPath = cursor.getString(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
-                long modifiedAt = cursor.getLong(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
-                boolean isFolder = false;
-                if (cursor.getInt(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0) {
-                    isFolder = true;
-                }
-                long foundAt = cursor.getLong(cursor.getColumnIndex(ProviderMeta.
-                        ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
+            operations.add(ContentProviderOperation.newUpdate(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                               .withValues(cv)
+                               .withSelection(ProviderMeta.ProviderTableMeta._ID + "=?",
+                                              new String[]{String.valueOf(dataSet.getId())})
+                               .build());
+        }
 
-                boolean isSentForUpload = false;
-                if (cursor.getInt(cursor.getColumnIndex(
-                        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0) {
-                    isSentForUpload = true;
-                }
+        for (FileSystemDataSet dataSet : removed) {
+            operations.add(ContentProviderOperation.newDelete(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                               .withSelection(ProviderMeta.ProviderTableMeta._ID + "=?",
+                                              new String[]{String.valueOf(dataSet.getId())})
+                               .build());
+        }
 
-                String crc32 = cursor.getString(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
+        if (operations.isEmpty()) {
+            return 0;
+        }
 
-                if (id == -1) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                } else {
-                    dataSet = new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
-                            syncedFolder.getId(), crc32);
-                }
-            }
-            cursor.close();
-        } else {
-            Log_OC.e(TAG, "DB error restoring arbitrary values.");
+        try {
+            return contentResolver.applyBatch(MainApp.getAuthority(), operations).length;
+        } catch (OperationApplicationException | RemoteException e) {
+            Log_OC.e(TAG, "Failed to store filesystem data of synced folder " + syncedFolder.getLocalPath(), e);
+            return 0;
         }
+    }
 
-        return dataSet;
+    private ContentValues createContentValues(FileSystemDataSet dataSet, long foundAt) {
+        ContentValues cv = new ContentValues();
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, foundAt);
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, dataSet.getModifiedAt());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE, dataSet.getFileSize());
+        if (dataSet.getCrc32() != null) {
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, dataSet.getCrc32());
+        }
+        return cv;
     }
 
-    private long getFileChecksum(String filepath) {
+    @Nullable
+    private FileSystemDataSet createFilesystemDataSet(Cursor cursor, SyncedFolder syncedFolder) {
+        int id = cursor.getInt(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta._ID));
+        String localPath = cursor.getString(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
+        long modifiedAt = cursor.getLong(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
+        boolean isFolder = false;
+        if (cursor.getInt(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0) {
+            isFolder = true;
+        }
+        long foundAt = cursor.getLong(cursor.getColumnIndex(ProviderMeta.
+                ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
 
-        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(filepath))){
-            CRC32 crc = new CRC32();
-            int cnt;
-            while ((cnt = inputStream.read()) != -1) {
-                crc.update(cnt);
-            }
+        boolean isSentForUpload = false;
+        if (cursor.getInt(cursor.getColumnIndex(
+                ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0) {
+            isSentForUpload = true;
+        }
+
+        String crc32 = cursor.getString(cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
 
-            return crc.getValue();
+        int fileSizeIndex = cursor.getColumnIndex(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE);
+        long fileSize = cursor.isNull(fileSizeIndex) ? UNKNOWN_SIZE : cursor.getLong(fileSizeIndex);
 
-        } catch (IOException e) {
-            return -1;
+        if (id == -1) {
+            Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
+            return null;
         }
+
+        return new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
+                                     syncedFolder.getId(), crc32, fileSize);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.utils.ChecksumUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+/**
+ * Incremental indexer of the files in a synced folder.
+ *
+ * Loads the stored entries of the synced folder once, collects the files found while scanning it and computes the
+ * added, changed and removed entries in memory, to store them in a single transaction on {@link #commit()}.
+ */
+public class FilesystemIndexer {
+    private static final String TAG = FilesystemIndexer.class.getSimpleName();
+
+    private final FilesystemDataProvider filesystemDataProvider;
+    private final SyncedFolder syncedFolder;
+    private final Map<String, FileSystemDataSet> storedDataSets;
+    private final Set<String> foundPaths = new HashSet<>();
+    private final List<FileSystemDataSet> added = new ArrayList<>();
+    private final List<FileSystemDataSet> modified = new ArrayList<>();
+    private final List<FileSystemDataSet> reset = new ArrayList<>();
+    private final long startTime;
+    private boolean scanComplete = true;
+
+    @Getter private int filesScanned;
+    @Getter private int rowsWritten;
+    @Getter private long elapsedTime;
+
+    public FilesystemIndexer(FilesystemDataProvider filesystemDataProvider, SyncedFolder syncedFolder) {
+        this.filesystemDataProvider = filesystemDataProvider;
+        this.syncedFolder = syncedFolder;
+        startTime = System.currentTimeMillis();
+        storedDataSets = filesystemDataProvider.getFilesystemDataSets(syncedFolder);
+    }
+
+    /**
+     * Marks a file as still existing, without indexing it.
+     */
+    public void onFileSkipped(String localPath) {
+        filesScanned++;
+        foundPaths.add(localPath);
+    }
+
+    /**
+     * Marks the scan as partial, so that stored entries not found in it are kept. To be called when the scan could
+     * not be run, or some file or folder could not be read.
+     */
+    public void onScanFailed() {
+        scanComplete = false;
+    }
+
+    public void onFileFound(String localPath, long modifiedAt, long fileSize, boolean isFolder) {
+        onFileSkipped(localPath);
+
+        FileSystemDataSet stored = storedDataSets.get(localPath);
+        if (stored == null) {
+            added.add(new FileSystemDataSet(0, localPath, modifiedAt, isFolder, false, 0, syncedFolder.getId(), null,
+                                            fileSize));
+        } else if (!FilesystemDataProvider.isUnchanged(stored, modifiedAt, fileSize)) {
+            stored.setModifiedAt(modifiedAt);
+            stored.setFileSize(fileSize);
+            modified.add(stored);
+        }
+    }
+
+    /**
+     * Computes the checksums of new and changed files and stores all the changes in a single transaction.
+     */
+    public void commit() {
+        List<String> pathsToHash = new ArrayList<>(added.size() + modified.size());
+        for (FileSystemDataSet dataSet : added) {
+            if (!dataSet.isFolder()) {
+                pathsToHash.add(dataSet.getLocalPath());
+            }
+        }
+        for (FileSystemDataSet dataSet : modified) {
+            pathsToHash.add(dataSet.getLocalPath());
+        }
+
+        Map<String, Long> checksums = ChecksumUtils.getCRC32s(pathsToHash);
+        if (Thread.currentThread().isInterrupted()) {
+            // checksums are incomplete, nothing is stored and next run indexes the same changes
+            Log_OC.d(TAG, "Indexing of " + syncedFolder.getLocalPath() + " interrupted");
+            return;
+        }
+
+        for (FileSystemDataSet dataSet : added) {
+            Long checksum = checksums.get(dataSet.getLocalPath());
+            if (checksum != null && checksum != ChecksumUtils.NO_CHECKSUM) {
+                dataSet.setCrc32(Long.toString(checksum));
+            }
+        }
+        Iterator<FileSystemDataSet> modifiedIt = modified.iterator();
+        while (modifiedIt.hasNext()) {
+            FileSystemDataSet dataSet = modifiedIt.next();
+            Long checksum = checksums.get(dataSet.getLocalPath());
+            String crc32 = checksum == null || checksum == ChecksumUtils.NO_CHECKSUM ? null : Long.toString(checksum);
+            if (dataSet.getCrc32() == null || (crc32 != null && !dataSet.getCrc32().equals(crc32))) {
+                // content changed, upload it again
+                dataSet.setCrc32(crc32);
+                dataSet.setSentForUpload(false);
+                modifiedIt.remove();
+                reset.add(dataSet);
+            }
+        }
+
+        // an empty scan of a folder with stored entries is more likely a missing or unavailable media store than
+        // a folder emptied since the last run; keep the entries rather than uploading everything again later
+        List<FileSystemDataSet> removed = new ArrayList<>();
+        if (scanComplete && filesScanned > 0) {
+            for (Map.Entry<String, FileSystemDataSet> entry : storedDataSets.entrySet()) {
+                if (!foundPaths.contains(entry.getKey())) {
+                    removed.add(entry.getValue());
+                }
+            }
+        } else if (!storedDataSets.isEmpty()) {
+            Log_OC.d(TAG, "Incomplete scan of " + syncedFolder.getLocalPath() + ", keeping entries not found");
+        }
+
+        rowsWritten = filesystemDataProvider.applyChanges(syncedFolder, added, modified, reset, removed);
+        elapsedTime = System.currentTimeMillis() - startTime;
+
+        Log_OC.d(TAG, "Indexed " + syncedFolder.getLocalPath() + ": " + filesScanned + " files scanned, "
+                + added.size() + " added, " + (modified.size() + reset.size()) + " changed, " + removed.size() + " removed, "
+                + rowsWritten + " rows written in " + elapsedTime + " ms");
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+
+import com.owncloud.android.MainApp;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Discovers the media folders of one type in a single pass over MediaStore, ordered by folder and date taken, which
+ * gives the number of items and the newest items of every folder at once.
+ *
+ * The folders found are cached along with a watermark of the media table. As long as the watermark is unchanged, only
+ * the query computing it runs:
+ * <ul>
+ * <li>From Android 11 on it is the version and generation of the external volumes, which change with every insert,
+ * update or removal of media.</li>
+ * <li>Before, it is computed by a single aggregate query: number of rows, highest id, latest modification date, and
+ * the sum of the folder ids, which changes when an item moves to another folder. An edit that keeps the modification
+ * date, or moves that cancel each other out in the sum, go unnoticed until the next other change.</li>
+ * </ul>
+ */
+final class MediaFolderDiscovery {
+    private static final String TAG = MediaFolderDiscovery.class.getSimpleName();
+
+    // Build.VERSION_CODES.R, newer than the SDK the app is compiled against
+    private static final int GENERATION_API_LEVEL = 30;
+
+    static final MediaFolderDiscovery IMAGES = new MediaFolderDiscovery(
+            MediaStore.Images.Media.EXTERNAL_CONTENT_URI, MediaFolderType.IMAGE, MediaStore.Images.Media.BUCKET_ID,
+            MediaStore.Images.Media.BUCKET_DISPLAY_NAME, MediaStore.Images.Media.DATE_TAKEN);
+
+    static final MediaFolderDiscovery VIDEOS = new MediaFolderDiscovery(
+            MediaStore.Video.Media.EXTERNAL_CONTENT_URI, MediaFolderType.VIDEO, MediaStore.Video.Media.BUCKET_ID,
+            MediaStore.Video.Media.BUCKET_DISPLAY_NAME, MediaStore.Video.Media.DATE_TAKEN);
+
+    private final Uri uri;
+    private final MediaFolderType type;
+    private final String[] projection;
+    private final String[] watermarkProjection;
+    private final String sortOrder;
+
+    // guarded by this
+    private String cachedWatermark;
+    private int cachedItemLimit;
+    private List<MediaFolder> cachedFolders;
+
+    private MediaFolderDiscovery(Uri uri, MediaFolderType type, String bucketIdColumn, String bucketNameColumn,
+                                 String dateTakenColumn) {
+        this.uri = uri;
+        this.type = type;
+        projection = new String[]{bucketIdColumn, bucketNameColumn, MediaStore.MediaColumns.DATA};
+        watermarkProjection = new String[]{"COUNT(*)", "MAX(" + MediaStore.MediaColumns._ID + ")",
+                "MAX(" + MediaStore.MediaColumns.DATE_MODIFIED + ")", "SUM(" + bucketIdColumn + ")"};
+        sortOrder = bucketNameColumn + " ASC, " + bucketIdColumn + " ASC, " + dateTakenColumn + " DESC";
+    }
+
+    /**
+     * @param itemLimit      number of newest items to return per folder
+     * @param excludedPrefix path prefix of the folders to leave out, i.e. the data folder of the app
+     * @return media folders, each of them a new instance the caller may modify
+     */
+    synchronized List<MediaFolder> getFolders(ContentResolver contentResolver, int itemLimit, String excludedPrefix) {
+        String watermark = readWatermark(contentResolver);
+        if (watermark == null) {
+            return new ArrayList<>();
+        }
+
+        if (!watermark.equals(cachedWatermark) || itemLimit > cachedItemLimit) {
+            long start = System.currentTimeMillis();
+            cachedFolders = readFolders(contentResolver, itemLimit);
+            cachedWatermark = watermark;
+            cachedItemLimit = itemLimit;
+            Log_OC.d(TAG, String.format(Locale.ENGLISH, "Discovered %d %s folders in %d ms", cachedFolders.size(),
+                                        type, System.currentTimeMillis() - start));
+        }
+
+        List<MediaFolder> folders = new ArrayList<>(cachedFolders.size());
+        for (MediaFolder cachedFolder : cachedFolders) {
+            if (!cachedFolder.absolutePath.startsWith(excludedPrefix)) {
+                MediaFolder folder = new MediaFolder();
+                folder.type = type;
+                folder.folderName = cachedFolder.folderName;
+                folder.absolutePath = cachedFolder.absolutePath;
+                folder.numberOfFiles = cachedFolder.numberOfFiles;
+                folder.filePaths = new ArrayList<>(
+                        cachedFolder.filePaths.subList(0, Math.min(itemLimit, cachedFolder.filePaths.size())));
+                folders.add(folder);
+            }
+        }
+        return folders;
+    }
+
+    @Nullable
+    private String readWatermark(ContentResolver contentResolver) {
+        if (Build.VERSION.SDK_INT >= GENERATION_API_LEVEL) {
+            String generation = readGeneration();
+            if (generation != null) {
+                return generation;
+            }
+        }
+
+        try (Cursor cursor = contentResolver.query(uri, watermarkProjection, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return null;
+            }
+            return cursor.getLong(0) + ":" + cursor.getLong(1) + ":" + cursor.getLong(2) + ":" + cursor.getLong(3);
+        } catch (IllegalArgumentException e) {
+            // aggregates are refused by newer media providers,
+            // a watermark that never matches reads the folders each time
+            Log_OC.e(TAG, "Could not read watermark of " + type + " media: " + e.getMessage());
+            return String.valueOf(System.nanoTime());
+        }
+    }
+
+    /**
+     * MediaStore.getVersion() and MediaStore.getGeneration() are not part of the SDK the app is compiled against.
+     *
+     * @return version and generations of the external volumes, null if they are not available
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static String readGeneration() {
+        try {
+            Context context = MainApp.getAppContext();
+            Method getVersion = MediaStore.class.getMethod("getVersion", Context.class);
+            Method getGeneration = MediaStore.class.getMethod("getGeneration", Context.class, String.class);
+            Method getExternalVolumeNames = MediaStore.class.getMethod("getExternalVolumeNames", Context.class);
+
+            StringBuilder watermark = new StringBuilder((String) getVersion.invoke(null, context));
+            for (String volume : new TreeSet<>((Collection<String>) getExternalVolumeNames.invoke(null, context))) {
+                watermark.append(':').append(volume).append('=').append(getGeneration.invoke(null, context, volume));
+            }
+            return watermark.toString();
+        } catch (Exception e) {
+            Log_OC.e(TAG, "Could not read media generation: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<MediaFolder> readFolders(ContentResolver contentResolver, int itemLimit) {
+        Map<String, MediaFolder> folders = new LinkedHashMap<>();
+
+        try (Cursor cursor = contentResolver.query(uri, projection, null, null, sortOrder)) {
+            if (cursor == null) {
+                return new ArrayList<>();
+            }
+
+            while (cursor.moveToNext()) {
+                String filePath = cursor.getString(2);
+
+                // check if valid path
+                if (filePath == null || filePath.lastIndexOf('/') <= 0) {
+                    continue;
+                }
+
+                String bucketId = cursor.getString(0);
+                MediaFolder folder = folders.get(bucketId);
+                if (folder == null) {
+                    folder = new MediaFolder();
+                    folder.type = type;
+                    folder.folderName = cursor.getString(1);
+                    folder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
+                    folders.put(bucketId, folder);
+                }
+
+                folder.numberOfFiles++;
+                if (folder.filePaths.size() < itemLimit) {
+                    folder.filePaths.add(filePath);
+                }
+            }
+        }
+
+        return new ArrayList<>(folders.values());
+    }
+}
@@ -24,10 +24,6 @@ package com.owncloud.android.datamodel;
 import android.Manifest;
 import android.app.Activity;
 import android.content.ContentResolver;
-import android.database.Cursor;
-import android.net.Uri;
-import android.provider.MediaStore;
-import android.util.Log;
 
 import com.google.android.material.snackbar.Snackbar;
 import com.owncloud.android.MainApp;
@@ -45,19 +41,6 @@ import javax.annotation.Nullable;
  * Media queries to gain access to media lists for the device.
  */
 public final class MediaProvider {
-    private static final String TAG = MediaProvider.class.getSimpleName();
-
-    // fixed query parameters
-    private static final Uri IMAGES_MEDIA_URI = android.provider.MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-    private static final String[] FILE_PROJECTION = new String[]{MediaStore.MediaColumns.DATA};
-    private static final String IMAGES_FILE_SELECTION = MediaStore.Images.Media.BUCKET_ID + "=";
-    private static final String[] IMAGES_FOLDER_PROJECTION = {"Distinct " + MediaStore.Images.Media.BUCKET_ID,
-            MediaStore.Images.Media.BUCKET_DISPLAY_NAME};
-    private static final String IMAGES_FOLDER_SORT_ORDER = MediaStore.Images.Media.BUCKET_DISPLAY_NAME + " ASC";
-
-    private static final String[] VIDEOS_FOLDER_PROJECTION = {"Distinct " + MediaStore.Video.Media.BUCKET_ID,
-            MediaStore.Video.Media.BUCKET_DISPLAY_NAME};
-
     private MediaProvider() {
         // utility class -> private constructor
     }
@@ -74,82 +57,12 @@ public final class MediaProvider {
         // check permissions
         checkPermissions(activity);
 
-        // query media/image folders
-        Cursor cursorFolders = null;
         if ((activity != null && PermissionUtil.checkSelfPermission(activity.getApplicationContext(),
                 Manifest.permission.WRITE_EXTERNAL_STORAGE)) || getWithoutActivity) {
-            cursorFolders = contentResolver.query(IMAGES_MEDIA_URI, IMAGES_FOLDER_PROJECTION, null, null,
-                    IMAGES_FOLDER_SORT_ORDER);
-        }
-
-        List<MediaFolder> mediaFolders = new ArrayList<>();
-        String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
-
-        if (cursorFolders != null) {
-            String folderName;
-            String fileSortOrder = MediaStore.Images.Media.DATE_TAKEN + " DESC LIMIT " + itemLimit;
-            Cursor cursorImages;
-
-            while (cursorFolders.moveToNext()) {
-                String folderId = cursorFolders.getString(cursorFolders.getColumnIndex(MediaStore.Images.Media
-                        .BUCKET_ID));
-
-                MediaFolder mediaFolder = new MediaFolder();
-                folderName = cursorFolders.getString(cursorFolders.getColumnIndex(
-                        MediaStore.Images.Media.BUCKET_DISPLAY_NAME));
-                mediaFolder.type = MediaFolderType.IMAGE;
-                mediaFolder.folderName = folderName;
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query images
-                cursorImages = contentResolver.query(
-                        IMAGES_MEDIA_URI,
-                        FILE_PROJECTION,
-                        IMAGES_FILE_SELECTION + folderId,
-                        null,
-                        fileSortOrder
-                );
-                Log.d(TAG, "Reading images for " + mediaFolder.folderName);
-
-                if (cursorImages != null) {
-                    String filePath;
-
-                    while (cursorImages.moveToNext()) {
-                        filePath = cursorImages.getString(cursorImages.getColumnIndexOrThrow(
-                                MediaStore.MediaColumns.DATA));
-
-                        // check if valid path
-                        if (filePath != null && filePath.lastIndexOf('/') > 0) {
-                            mediaFolder.filePaths.add(filePath);
-                            mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
-                        }
-                    }
-                    cursorImages.close();
-
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (mediaFolder.absolutePath != null && !mediaFolder.absolutePath.startsWith(dataPath)) {
-
-                        // count images
-                        Cursor count = contentResolver.query(
-                                IMAGES_MEDIA_URI,
-                                FILE_PROJECTION,
-                                IMAGES_FILE_SELECTION + folderId,
-                                null,
-                                null);
-
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
-
-                        mediaFolders.add(mediaFolder);
-                    }
-                }
-            }
-            cursorFolders.close();
+            return MediaFolderDiscovery.IMAGES.getFolders(contentResolver, itemLimit, getDataPath());
         }
 
-        return mediaFolders;
+        return new ArrayList<>();
     }
 
     private static void checkPermissions(@Nullable Activity activity) {
@@ -179,78 +92,18 @@ public final class MediaProvider {
         // check permissions
         checkPermissions(activity);
 
-        // query media/image folders
-        Cursor cursorFolders = null;
         if ((activity != null && PermissionUtil.checkSelfPermission(activity.getApplicationContext(),
                 Manifest.permission.WRITE_EXTERNAL_STORAGE)) || getWithoutActivity) {
-            cursorFolders = contentResolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, VIDEOS_FOLDER_PROJECTION,
-                    null, null, null);
+            return MediaFolderDiscovery.VIDEOS.getFolders(contentResolver, itemLimit, getDataPath());
         }
 
-        List<MediaFolder> mediaFolders = new ArrayList<>();
-        String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
-
-        if (cursorFolders != null) {
-            String folderName;
-            String fileSortOrder = MediaStore.Video.Media.DATE_TAKEN + " DESC LIMIT " + itemLimit;
-            Cursor cursorVideos;
-
-            while (cursorFolders.moveToNext()) {
-                String folderId = cursorFolders.getString(cursorFolders.getColumnIndex(MediaStore.Video.Media
-                        .BUCKET_ID));
-
-                MediaFolder mediaFolder = new MediaFolder();
-                folderName = cursorFolders.getString(cursorFolders.getColumnIndex(
-                        MediaStore.Video.Media.BUCKET_DISPLAY_NAME));
-                mediaFolder.type = MediaFolderType.VIDEO;
-                mediaFolder.folderName = folderName;
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query videos
-                cursorVideos = contentResolver.query(
-                        MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                        FILE_PROJECTION,
-                        MediaStore.Video.Media.BUCKET_ID + "=" + folderId,
-                        null,
-                        fileSortOrder);
-                Log.d(TAG, "Reading videos for " + mediaFolder.folderName);
-
-                if (cursorVideos != null) {
-                    String filePath;
-                    while (cursorVideos.moveToNext()) {
-                        filePath = cursorVideos.getString(cursorVideos.getColumnIndexOrThrow(
-                                MediaStore.MediaColumns.DATA));
-
-                        if (filePath != null) {
-                            mediaFolder.filePaths.add(filePath);
-                            mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
-                        }
-                    }
-                    cursorVideos.close();
-
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (mediaFolder.absolutePath != null && !mediaFolder.absolutePath.startsWith(dataPath)) {
-
-                        // count images
-                        Cursor count = contentResolver.query(
-                                MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                                FILE_PROJECTION,
-                                MediaStore.Video.Media.BUCKET_ID + "=" + folderId,
-                                null,
-                                null);
-
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
-
-                        mediaFolders.add(mediaFolder);
-                    }
-                }
-            }
-            cursorFolders.close();
-        }
+        return new ArrayList<>();
+    }
 
-        return mediaFolders;
+    /**
+     * @return path of the data folder of the app, whose media is left out
+     */
+    private static String getDataPath() {
+        return MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
     }
 }
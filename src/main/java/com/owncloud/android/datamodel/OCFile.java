@@ -72,6 +72,11 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
     @Getter @Setter private long modificationTimestampAtLastSyncForData;
     @Setter private String remotePath;
     private String localPath;
+    /**
+     * Default save path checked for the contents of the file on first access to its local path; set for files read
+     * from the database without local path.
+     */
+    private String defaultStoragePath;
     @Getter @Setter private String mimeType;
     @Getter private boolean needsUpdatingWhileSaving;
     @Getter @Setter private long lastSyncDateForProperties;
@@ -172,7 +177,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
         dest.writeLong(modificationTimestamp);
         dest.writeLong(modificationTimestampAtLastSyncForData);
         dest.writeString(remotePath);
-        dest.writeString(localPath);
+        dest.writeString(getStoragePath());
         dest.writeString(mimeType);
         dest.writeInt(needsUpdatingWhileSaving ? 1 : 0);
         dest.writeInt(availableOffline ? 1 : 0);
@@ -270,8 +275,9 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
      * @return true if it is
      */
     public boolean existsOnDevice() {
-        if (localPath != null && localPath.length() > 0) {
-            return new File(localPath).exists();
+        String storagePath = getStoragePath();
+        if (storagePath != null && storagePath.length() > 0) {
+            return new File(storagePath).exists();
         }
         return false;
     }
@@ -282,16 +288,33 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
      * @return The local path to the file
      */
     public String getStoragePath() {
+        if (defaultStoragePath != null) {
+            File f = new File(defaultStoragePath);
+            defaultStoragePath = null;
+            if (f.exists()) {
+                localPath = f.getAbsolutePath();
+            }
+        }
         return localPath;
     }
 
+    /**
+     * Defers checking the default save path for the contents of the file until its local path is needed, as it costs
+     * a filesystem access.
+     *
+     * @param defaultStoragePath path used as local path if a file exists there
+     */
+    public void setDefaultStoragePath(String defaultStoragePath) {
+        this.defaultStoragePath = defaultStoragePath;
+    }
+
     /**
      * The URI to the file contents, if stored locally
      *
      * @return A URI to the local copy of the file, or NULL if not stored in the device
      */
     public Uri getStorageUri() {
-        if (localPath == null || localPath.length() == 0) {
+        if (getStoragePath() == null || localPath.length() == 0) {
             return null;
         }
         if (localUri == null) {
@@ -305,7 +328,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
 
 
     public Uri getLegacyExposedFileUri() {
-        if (localPath == null || localPath.length() == 0) {
+        if (getStoragePath() == null || localPath.length() == 0) {
             return null;
         }
 
@@ -320,7 +343,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
         Partly disabled because not all apps understand paths that we get via this method for now
      */
     public Uri getExposedFileUri(Context context) {
-        if (localPath == null || localPath.length() == 0) {
+        if (getStoragePath() == null || localPath.length() == 0) {
             return null;
         }
         if (exposedFileUri == null) {
@@ -346,6 +369,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
      */
     public void setStoragePath(String storage_path) {
         localPath = storage_path;
+        defaultStoragePath = null;
         localUri = null;
         exposedFileUri = null;
     }
@@ -388,6 +412,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
         remotePath = null;
         parentId = 0;
         localPath = null;
+        defaultStoragePath = null;
         mimeType = null;
         fileLength = 0;
         creationTimestamp = 0;
@@ -464,7 +489,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
         String asString = "[fileId=%s, name=%s, mime=%s, downloaded=%s, local=%s, remote=%s, " +
             "parentId=%s, availableOffline=%s etag=%s favourite=%s]";
         return String.format(asString, fileId, getFileName(), mimeType, isDown(),
-            localPath, remotePath, parentId, availableOffline,
+            getStoragePath(), remotePath, parentId, availableOffline,
             etag, favorite);
     }
 
@@ -473,7 +498,7 @@ public class OCFile implements Parcelable, Comparable<OCFile>, ServerFileInterfa
     }
 
     public long getLocalModificationTimestamp() {
-        if (localPath != null && localPath.length() > 0) {
+        if (getStoragePath() != null && localPath.length() > 0) {
             File f = new File(localPath);
             return f.lastModified();
         }
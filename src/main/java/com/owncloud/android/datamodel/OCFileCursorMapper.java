@@ -0,0 +1,232 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.database.Cursor;
+
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
+import com.owncloud.android.lib.common.network.WebdavEntry;
+import com.owncloud.android.utils.FileStorageUtils;
+
+/**
+ * Maps the rows of a cursor over the files table to {@link OCFile} instances.
+ *
+ * Column indexes are resolved once per cursor and columns missing from its projection are skipped, so callers may
+ * query only the columns they need, e.g. {@link #PROJECTION}. Files without stored local path get their default save
+ * path checked on first access to their local path, instead of while mapping.
+ */
+public class OCFileCursorMapper {
+
+    /**
+     * All the columns read by the mapper.
+     */
+    public static final String[] PROJECTION = {
+            ProviderTableMeta._ID,
+            ProviderTableMeta.FILE_PATH,
+            ProviderTableMeta.FILE_PARENT,
+            ProviderTableMeta.FILE_NAME,
+            ProviderTableMeta.FILE_ENCRYPTED_NAME,
+            ProviderTableMeta.FILE_CONTENT_TYPE,
+            ProviderTableMeta.FILE_STORAGE_PATH,
+            ProviderTableMeta.FILE_CONTENT_LENGTH,
+            ProviderTableMeta.FILE_CREATION,
+            ProviderTableMeta.FILE_MODIFIED,
+            ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA,
+            ProviderTableMeta.FILE_LAST_SYNC_DATE,
+            ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA,
+            ProviderTableMeta.FILE_KEEP_IN_SYNC,
+            ProviderTableMeta.FILE_ETAG,
+            ProviderTableMeta.FILE_SHARED_VIA_LINK,
+            ProviderTableMeta.FILE_SHARED_WITH_SHAREE,
+            ProviderTableMeta.FILE_PUBLIC_LINK,
+            ProviderTableMeta.FILE_PERMISSIONS,
+            ProviderTableMeta.FILE_REMOTE_ID,
+            ProviderTableMeta.FILE_UPDATE_THUMBNAIL,
+            ProviderTableMeta.FILE_IS_DOWNLOADING,
+            ProviderTableMeta.FILE_ETAG_IN_CONFLICT,
+            ProviderTableMeta.FILE_FAVORITE,
+            ProviderTableMeta.FILE_IS_ENCRYPTED,
+            ProviderTableMeta.FILE_MOUNT_TYPE,
+            ProviderTableMeta.FILE_HAS_PREVIEW
+    };
+
+    private static final int NONE = -1;
+
+    private final Cursor cursor;
+    private final String accountName;
+
+    private final int id;
+    private final int path;
+    private final int parent;
+    private final int name;
+    private final int encryptedName;
+    private final int contentType;
+    private final int storagePath;
+    private final int contentLength;
+    private final int creation;
+    private final int modified;
+    private final int modifiedAtLastSyncForData;
+    private final int lastSyncDate;
+    private final int lastSyncDateForData;
+    private final int keepInSync;
+    private final int etag;
+    private final int sharedViaLink;
+    private final int sharedWithSharee;
+    private final int publicLink;
+    private final int permissions;
+    private final int remoteId;
+    private final int updateThumbnail;
+    private final int isDownloading;
+    private final int etagInConflict;
+    private final int favorite;
+    private final int isEncrypted;
+    private final int mountType;
+    private final int hasPreview;
+
+    /**
+     * @param cursor      cursor over the files table, its projection has to contain at least the path
+     * @param accountName owner of the files, whose default save path is checked for files without local path
+     */
+    public OCFileCursorMapper(Cursor cursor, String accountName) {
+        this.cursor = cursor;
+        this.accountName = accountName;
+
+        id = cursor.getColumnIndex(ProviderTableMeta._ID);
+        path = cursor.getColumnIndexOrThrow(ProviderTableMeta.FILE_PATH);
+        parent = cursor.getColumnIndex(ProviderTableMeta.FILE_PARENT);
+        name = cursor.getColumnIndex(ProviderTableMeta.FILE_NAME);
+        encryptedName = cursor.getColumnIndex(ProviderTableMeta.FILE_ENCRYPTED_NAME);
+        contentType = cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE);
+        storagePath = cursor.getColumnIndex(ProviderTableMeta.FILE_STORAGE_PATH);
+        contentLength = cursor.getColumnIndex(ProviderTableMeta.FILE_CONTENT_LENGTH);
+        creation = cursor.getColumnIndex(ProviderTableMeta.FILE_CREATION);
+        modified = cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED);
+        modifiedAtLastSyncForData = cursor.getColumnIndex(ProviderTableMeta.FILE_MODIFIED_AT_LAST_SYNC_FOR_DATA);
+        lastSyncDate = cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE);
+        lastSyncDateForData = cursor.getColumnIndex(ProviderTableMeta.FILE_LAST_SYNC_DATE_FOR_DATA);
+        keepInSync = cursor.getColumnIndex(ProviderTableMeta.FILE_KEEP_IN_SYNC);
+        etag = cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG);
+        sharedViaLink = cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_VIA_LINK);
+        sharedWithSharee = cursor.getColumnIndex(ProviderTableMeta.FILE_SHARED_WITH_SHAREE);
+        publicLink = cursor.getColumnIndex(ProviderTableMeta.FILE_PUBLIC_LINK);
+        permissions = cursor.getColumnIndex(ProviderTableMeta.FILE_PERMISSIONS);
+        remoteId = cursor.getColumnIndex(ProviderTableMeta.FILE_REMOTE_ID);
+        updateThumbnail = cursor.getColumnIndex(ProviderTableMeta.FILE_UPDATE_THUMBNAIL);
+        isDownloading = cursor.getColumnIndex(ProviderTableMeta.FILE_IS_DOWNLOADING);
+        etagInConflict = cursor.getColumnIndex(ProviderTableMeta.FILE_ETAG_IN_CONFLICT);
+        favorite = cursor.getColumnIndex(ProviderTableMeta.FILE_FAVORITE);
+        isEncrypted = cursor.getColumnIndex(ProviderTableMeta.FILE_IS_ENCRYPTED);
+        mountType = cursor.getColumnIndex(ProviderTableMeta.FILE_MOUNT_TYPE);
+        hasPreview = cursor.getColumnIndex(ProviderTableMeta.FILE_HAS_PREVIEW);
+    }
+
+    /**
+     * @return file of the current row of the cursor
+     */
+    public OCFile map() {
+        OCFile file = new OCFile(cursor.getString(path));
+
+        if (id != NONE) {
+            file.setFileId(cursor.getLong(id));
+        }
+        if (parent != NONE) {
+            file.setParentId(cursor.getLong(parent));
+        }
+        if (encryptedName != NONE) {
+            file.setEncryptedFileName(cursor.getString(encryptedName));
+        }
+        if (contentType != NONE) {
+            file.setMimeType(cursor.getString(contentType));
+        }
+        if (storagePath != NONE) {
+            file.setStoragePath(cursor.getString(storagePath));
+        }
+        if (file.getStoragePath() == null && accountName != null) {
+            // try to find existing file and bind it with current account, once the local path is needed;
+            // with the current update of SynchronizeFolderOperation, this won't be
+            // necessary anymore after a full synchronization of the account
+            file.setDefaultStoragePath(FileStorageUtils.getDefaultSavePathFor(accountName, file));
+        }
+        if (contentLength != NONE) {
+            file.setFileLength(cursor.getLong(contentLength));
+        }
+        if (creation != NONE) {
+            file.setCreationTimestamp(cursor.getLong(creation));
+        }
+        if (modified != NONE) {
+            file.setModificationTimestamp(cursor.getLong(modified));
+        }
+        if (modifiedAtLastSyncForData != NONE) {
+            file.setModificationTimestampAtLastSyncForData(cursor.getLong(modifiedAtLastSyncForData));
+        }
+        if (lastSyncDate != NONE) {
+            file.setLastSyncDateForProperties(cursor.getLong(lastSyncDate));
+        }
+        if (lastSyncDateForData != NONE) {
+            file.setLastSyncDateForData(cursor.getLong(lastSyncDateForData));
+        }
+        if (keepInSync != NONE) {
+            file.setAvailableOffline(cursor.getInt(keepInSync) == 1);
+        }
+        if (etag != NONE) {
+            file.setEtag(cursor.getString(etag));
+        }
+        if (sharedViaLink != NONE) {
+            file.setSharedViaLink(cursor.getInt(sharedViaLink) == 1);
+        }
+        if (sharedWithSharee != NONE) {
+            file.setSharedWithSharee(cursor.getInt(sharedWithSharee) == 1);
+        }
+        if (publicLink != NONE) {
+            file.setPublicLink(cursor.getString(publicLink));
+        }
+        if (permissions != NONE) {
+            file.setPermissions(cursor.getString(permissions));
+        }
+        if (remoteId != NONE) {
+            file.setRemoteId(cursor.getString(remoteId));
+        }
+        if (updateThumbnail != NONE) {
+            file.setUpdateThumbnailNeeded(cursor.getInt(updateThumbnail) == 1);
+        }
+        if (isDownloading != NONE) {
+            file.setDownloading(cursor.getInt(isDownloading) == 1);
+        }
+        if (etagInConflict != NONE) {
+            file.setEtagInConflict(cursor.getString(etagInConflict));
+        }
+        if (favorite != NONE) {
+            file.setFavorite(cursor.getInt(favorite) == 1);
+        }
+        if (isEncrypted != NONE) {
+            file.setEncrypted(cursor.getInt(isEncrypted) == 1);
+        }
+        if (file.isEncrypted() && name != NONE) {
+            file.setFileName(cursor.getString(name));
+        }
+        if (mountType != NONE) {
+            file.setMountType(WebdavEntry.MountType.values()[cursor.getInt(mountType)]);
+        }
+        if (hasPreview != NONE) {
+            file.setPreviewAvailable(cursor.getInt(hasPreview) == 1);
+        }
+
+        return file;
+    }
+}
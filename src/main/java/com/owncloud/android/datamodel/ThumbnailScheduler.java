@@ -0,0 +1,227 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import android.accounts.Account;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import org.apache.commons.httpclient.methods.GetMethod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the generation of the thumbnails shown by a list on a pool of workers shared by all lists.
+ *
+ * The most recent request is served first, as it belongs to a view that just came on screen. Requests of views bound
+ * to another file or recycled are cancelled, requests for a file that is already pending are merged, and a worker
+ * takes up to {@link #MAX_BATCH_SIZE} queued requests of the same account, so that they are fetched one after the
+ * other over the connection of the same client.
+ *
+ * Apart from the workers, all methods must be called from the main thread.
+ */
+public class ThumbnailScheduler {
+    private static final String TAG = ThumbnailScheduler.class.getSimpleName();
+
+    private static final int MAX_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_BATCH_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // guarded by this, shared with the workers
+    private final Deque<Request> queue = new ArrayDeque<>();
+    private final Map<Long, Request> requests = new HashMap<>();
+
+    // main thread only
+    private final Map<ImageView, Request> viewRequests = new WeakHashMap<>();
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, KEEP_ALIVE_SECONDS,
+                                                                       TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Requests the thumbnail of a file for a view, replacing the previous request of the view.
+     */
+    public void request(OCFile file, ImageView imageView, FileDataStorageManager storageManager, Account account) {
+        Request current = viewRequests.get(imageView);
+        if (current != null && current.file.getFileId() == file.getFileId() && !current.cancelled) {
+            return;
+        }
+        cancel(imageView);
+
+        Request request;
+        synchronized (this) {
+            request = requests.get(file.getFileId());
+            if (request == null) {
+                request = new Request(file, storageManager, account);
+                requests.put(file.getFileId(), request);
+                queue.addFirst(request);
+                executor.execute(this::runNext);
+            } else if (queue.remove(request)) {
+                // requested again while waiting, it is on screen now
+                queue.addFirst(request);
+            }
+        }
+
+        request.targets.add(imageView);
+        viewRequests.put(imageView, request);
+    }
+
+    /**
+     * Cancels the request of a view that is recycled or bound to a file without thumbnail.
+     */
+    public void cancel(ImageView imageView) {
+        Request request = viewRequests.remove(imageView);
+        if (request != null) {
+            request.targets.remove(imageView);
+            if (request.targets.isEmpty()) {
+                cancel(request);
+            }
+        }
+    }
+
+    public void cancelAll() {
+        List<Request> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(requests.values());
+        }
+        for (Request request : pending) {
+            cancel(request);
+        }
+        viewRequests.clear();
+    }
+
+    private void cancel(Request request) {
+        synchronized (this) {
+            request.cancelled = true;
+            queue.remove(request);
+            if (requests.get(request.file.getFileId()) == request) {
+                requests.remove(request.file.getFileId());
+            }
+        }
+
+        ThumbnailsCacheManager.ThumbnailGenerationTask task = request.task;
+        if (task != null) {
+            GetMethod getMethod = task.getGetMethod();
+            if (getMethod != null) {
+                Log_OC.d(TAG, "cancel: abort get method directly");
+                getMethod.abort();
+            }
+        }
+    }
+
+    /**
+     * Runs on a worker: takes the most recent request along with other queued requests of the same account.
+     */
+    private void runNext() {
+        List<Request> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        synchronized (this) {
+            Request first = queue.pollFirst();
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+
+            Iterator<Request> iterator = queue.iterator();
+            while (batch.size() < MAX_BATCH_SIZE && iterator.hasNext()) {
+                Request next = iterator.next();
+                if (first.account != null && next.account != null && first.account.name.equals(next.account.name)) {
+                    iterator.remove();
+                    batch.add(next);
+                }
+            }
+        }
+
+        for (Request request : batch) {
+            if (request.cancelled) {
+                continue;
+            }
+
+            ThumbnailsCacheManager.ThumbnailGenerationTask task =
+                    new ThumbnailsCacheManager.ThumbnailGenerationTask(request.storageManager, request.account);
+            request.task = task;
+            Bitmap thumbnail = task.generate(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
+                    request.file, request.file.getRemoteId()));
+
+            synchronized (this) {
+                if (requests.get(request.file.getFileId()) == request) {
+                    requests.remove(request.file.getFileId());
+                }
+            }
+
+            if (thumbnail != null && !request.cancelled) {
+                mainHandler.post(() -> deliver(request, thumbnail));
+            }
+        }
+    }
+
+    private void deliver(Request request, Bitmap thumbnail) {
+        if (request.cancelled) {
+            return;
+        }
+
+        String tagId = String.valueOf(request.file.getFileId());
+        for (ImageView imageView : new ArrayList<>(request.targets)) {
+            if (viewRequests.get(imageView) == request) {
+                viewRequests.remove(imageView);
+                if (String.valueOf(imageView.getTag()).equals(tagId)) {
+                    imageView.setImageBitmap(thumbnail);
+                }
+            }
+        }
+        request.targets.clear();
+    }
+
+    private static class Request {
+        private final OCFile file;
+        private final FileDataStorageManager storageManager;
+        private final Account account;
+        private final Set<ImageView> targets = Collections.newSetFromMap(new WeakHashMap<>());
+        private volatile ThumbnailsCacheManager.ThumbnailGenerationTask task;
+        private volatile boolean cancelled;
+
+        private Request(OCFile file, FileDataStorageManager storageManager, Account account) {
+            this.file = file;
+            this.storageManager = storageManager;
+            this.account = account;
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package com.owncloud.android.datamodel;
 
 import android.accounts.Account;
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
@@ -38,6 +39,7 @@ import android.net.Uri;
 import android.os.AsyncTask;
 import android.provider.MediaStore;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.view.Display;
 import android.view.MenuItem;
 import android.view.WindowManager;
@@ -90,13 +92,18 @@ public final class ThumbnailsCacheManager {
     private static final String ETAG = "ETag";
 
     private static final Object mThumbnailsDiskCacheLock = new Object();
-    private static DiskLruImageCache mThumbnailCache;
+    private static volatile DiskLruImageCache mThumbnailCache;
     private static boolean mThumbnailCacheStarting = true;
 
     private static final int DISK_CACHE_SIZE = 1024 * 1024 * 200; // 200MB
+    private static final int MEMORY_CACHE_FRACTION = 8; // 1/8 of the memory class of the app
+    private static final int PREVIEWS_MEMORY_CACHE_FRACTION = 16; // 1/16 of the memory class of the app
+    private static final LruCache<String, Bitmap> mThumbnailsMemoryCache = createMemoryCache(MEMORY_CACHE_FRACTION);
+    // resized images are far bigger than thumbnails, kept apart so that a few of them cannot evict all thumbnails
+    private static final LruCache<String, Bitmap> mPreviewsMemoryCache =
+            createMemoryCache(PREVIEWS_MEMORY_CACHE_FRACTION);
     private static final CompressFormat mCompressFormat = CompressFormat.JPEG;
     private static final int mCompressQuality = 70;
-    private static OwnCloudClient mClient;
 
     public static final Bitmap mDefaultImg = BitmapFactory.decodeResource(MainApp.getAppContext().getResources(),
             R.drawable.file_image);
@@ -185,15 +192,72 @@ public final class ThumbnailsCacheManager {
         return thumbnail;
     }
 
-    public static void addBitmapToCache(String key, Bitmap bitmap) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            if (mThumbnailCache != null) {
-                mThumbnailCache.put(key, bitmap);
+    private static LruCache<String, Bitmap> createMemoryCache(int fraction) {
+        ActivityManager activityManager = (ActivityManager) MainApp.getAppContext()
+                .getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager.getMemoryClass();
+
+        return new LruCache<String, Bitmap>(memoryClass * 1024 * 1024 / fraction) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
             }
+        };
+    }
+
+    private static LruCache<String, Bitmap> getMemoryCache(String key) {
+        return key.startsWith(PREFIX_RESIZED_IMAGE) ? mPreviewsMemoryCache : mThumbnailsMemoryCache;
+    }
+
+    /**
+     * @return number of lookups answered by the thumbnails memory cache
+     */
+    public static int getMemoryCacheHitCount() {
+        return mThumbnailsMemoryCache.hitCount();
+    }
+
+    /**
+     * @return number of lookups that had to go to the disk cache
+     */
+    public static int getMemoryCacheMissCount() {
+        return mThumbnailsMemoryCache.missCount();
+    }
+
+    /**
+     * @return number of bitmaps evicted from the thumbnails memory cache to stay within its size
+     */
+    public static int getMemoryCacheEvictionCount() {
+        return mThumbnailsMemoryCache.evictionCount();
+    }
+
+    public static void addBitmapToCache(String key, Bitmap bitmap) {
+        if (key != null && bitmap != null) {
+            getMemoryCache(key).put(key, bitmap);
+        }
+
+        // the disk cache serializes writers per key on its own, compressing runs in parallel
+        DiskLruImageCache diskCache = mThumbnailCache;
+        if (diskCache != null) {
+            diskCache.put(key, bitmap);
         }
     }
 
     public static Bitmap getBitmapFromDiskCache(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        // memory cache is thread safe on its own, no need to wait for the disk cache
+        LruCache<String, Bitmap> memoryCache = getMemoryCache(key);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            if (!bitmap.isRecycled()) {
+                return bitmap;
+            }
+            memoryCache.remove(key);
+        }
+
+        DiskLruImageCache diskCache;
         synchronized (mThumbnailsDiskCacheLock) {
             // Wait while disk cache is started from background thread
             while (mThumbnailCacheStarting) {
@@ -203,17 +267,25 @@ public final class ThumbnailsCacheManager {
                     Log_OC.e(TAG, "Wait in mThumbnailsDiskCacheLock was interrupted", e);
                 }
             }
-            if (mThumbnailCache != null) {
-                return mThumbnailCache.getBitmap(key);
-            }
+            diskCache = mThumbnailCache;
         }
-        return null;
+
+        // decoding happens outside of the lock, which only guards the initialization
+        if (diskCache != null) {
+            bitmap = diskCache.getBitmap(key);
+        }
+
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        }
+        return bitmap;
     }
 
     public static class ResizedImageGenerationTask extends AsyncTask<Object, Void, Bitmap> {
         private FileFragment fileFragment;
         private FileDataStorageManager storageManager;
         private Account account;
+        private OwnCloudClient client;
         private WeakReference<ImageView> imageViewReference;
         private OCFile file;
 
@@ -236,7 +308,7 @@ public final class ThumbnailsCacheManager {
             try {
                 if (account != null) {
                     OwnCloudAccount ocAccount = new OwnCloudAccount(account, MainApp.getAppContext());
-                    mClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount,
+                    client = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount,
                             MainApp.getAppContext());
                 }
 
@@ -287,20 +359,20 @@ public final class ThumbnailsCacheManager {
 
                 } else {
                     // Download thumbnail from server
-                    if (mClient != null) {
+                    if (client != null) {
                         GetMethod getMethod = null;
                         try {
-                            String uri = mClient.getBaseUri() + "/index.php/core/preview.png?file="
+                            String uri = client.getBaseUri() + "/index.php/core/preview.png?file="
                                     + URLEncoder.encode(file.getRemotePath())
                                     + "&x=" + pxW + "&y=" + pxH + "&a=1&mode=cover&forceIcon=0";
                             getMethod = new GetMethod(uri);
 
-                            int status = mClient.executeMethod(getMethod);
+                            int status = client.executeMethod(getMethod);
                             if (status == HttpStatus.SC_OK) {
                                 InputStream inputStream = getMethod.getResponseBodyAsStream();
                                 thumbnail = BitmapFactory.decodeStream(inputStream);
                             } else {
-                                mClient.exhaustResponse(getMethod.getResponseBodyAsStream());
+                                client.exhaustResponse(getMethod.getResponseBodyAsStream());
                             }
 
                                 // Handle PNG
@@ -381,7 +453,8 @@ public final class ThumbnailsCacheManager {
 
     public static class ThumbnailGenerationTask extends AsyncTask<ThumbnailGenerationTaskObject, Void, Bitmap> {
         private final WeakReference<ImageView> mImageViewReference;
-        private static Account mAccount;
+        private Account mAccount;
+        private OwnCloudClient mClient;
         private List<ThumbnailGenerationTask> mAsyncTasks;
         private Object mFile;
         private String mImageKey;
@@ -424,9 +497,16 @@ public final class ThumbnailsCacheManager {
             mImageViewReference = new WeakReference<>(imageView);
         }
 
-        @SuppressFBWarnings("Dm")
         @Override
         protected Bitmap doInBackground(ThumbnailGenerationTaskObject... params) {
+            return generate(params[0]);
+        }
+
+        /**
+         * Generates the thumbnail on the calling thread, also used by {@link ThumbnailScheduler} workers.
+         */
+        @SuppressFBWarnings("Dm")
+        Bitmap generate(ThumbnailGenerationTaskObject object) {
             Bitmap thumbnail = null;
 
             try {
@@ -439,7 +519,6 @@ public final class ThumbnailsCacheManager {
                             getClientFor(ocAccount, MainApp.getAppContext());
                 }
 
-                ThumbnailGenerationTaskObject object = params[0];
                 mFile = object.getFile();
                 mImageKey = object.getImageKey();
 
@@ -781,6 +860,7 @@ public final class ThumbnailsCacheManager {
         private final Resources mResources;
         private final float mAvatarRadius;
         private Account mAccount;
+        private OwnCloudClient mClient;
         private String mUserId;
         private String mServerName;
         private Context mContext;
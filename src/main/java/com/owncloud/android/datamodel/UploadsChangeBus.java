@@ -0,0 +1,160 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.datamodel;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Coalesces the changes of uploads into change events: the changes made within a window starting with the first
+ * pending one are delivered at once at the end of the window, along with the ids of the changed uploads.
+ *
+ * Events are delivered on a thread shared by all buses. With a window of 0, each change is delivered right away on
+ * the thread posting it.
+ */
+public class UploadsChangeBus {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ScheduledThreadPoolExecutor deliveryExecutor = createDeliveryExecutor();
+
+    private final AtomicLong emittedEvents = new AtomicLong();
+    private final AtomicLong suppressedEvents = new AtomicLong();
+
+    private final long windowMillis;
+    private final Listener listener;
+
+    // guarded by this
+    private Set<Long> pendingUploadIds = new HashSet<>();
+    private boolean pendingAllUploads;
+    private boolean deliveryScheduled;
+
+    public interface Listener {
+        void onUploadsChanged(Change change);
+    }
+
+    /**
+     * @param windowMillis time to wait for further changes before delivering a change, 0 to deliver every change
+     * @param listener     receives the change events
+     */
+    public UploadsChangeBus(long windowMillis, Listener listener) {
+        this.windowMillis = windowMillis;
+        this.listener = listener;
+    }
+
+    private static ScheduledThreadPoolExecutor createDeliveryExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Posts the change of an upload.
+     */
+    public void post(long uploadId) {
+        post(uploadId, false);
+    }
+
+    /**
+     * Posts a change that may concern any upload.
+     */
+    public void postAll() {
+        post(-1, true);
+    }
+
+    /**
+     * @return number of change events delivered
+     */
+    public long getEmittedEvents() {
+        return emittedEvents.get();
+    }
+
+    /**
+     * @return number of changes merged into an event already pending
+     */
+    public long getSuppressedEvents() {
+        return suppressedEvents.get();
+    }
+
+    private void post(long uploadId, boolean allUploads) {
+        if (windowMillis <= 0) {
+            emittedEvents.incrementAndGet();
+            listener.onUploadsChanged(new Change(allUploads ? null : Collections.singleton(uploadId)));
+            return;
+        }
+
+        synchronized (this) {
+            if (allUploads) {
+                pendingAllUploads = true;
+            } else {
+                pendingUploadIds.add(uploadId);
+            }
+
+            if (deliveryScheduled) {
+                suppressedEvents.incrementAndGet();
+                return;
+            }
+            deliveryScheduled = true;
+        }
+
+        deliveryExecutor.schedule(this::deliver, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver() {
+        Change change;
+        synchronized (this) {
+            change = new Change(pendingAllUploads ? null : pendingUploadIds);
+            pendingUploadIds = new HashSet<>();
+            pendingAllUploads = false;
+            deliveryScheduled = false;
+        }
+
+        emittedEvents.incrementAndGet();
+        listener.onUploadsChanged(change);
+    }
+
+    /**
+     * Uploads changed within a window.
+     */
+    public static final class Change {
+        @Nullable private final Set<Long> uploadIds;
+
+        private Change(@Nullable Set<Long> uploadIds) {
+            this.uploadIds = uploadIds == null ? null : Collections.unmodifiableSet(uploadIds);
+        }
+
+        /**
+         * @return ids of the changed uploads, or null if any upload may have changed
+         */
+        @Nullable
+        public Set<Long> getUploadIds() {
+            return uploadIds;
+        }
+
+        public boolean isAllUploads() {
+            return uploadIds == null;
+        }
+    }
+}
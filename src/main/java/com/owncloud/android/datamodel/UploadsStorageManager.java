@@ -22,10 +22,12 @@ package com.owncloud.android.datamodel;
 
 import android.accounts.Account;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.text.TextUtils;
 
 import com.owncloud.android.authentication.AccountUtils;
 import com.owncloud.android.db.OCUpload;
@@ -37,7 +39,10 @@ import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.operations.UploadFileOperation;
 
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Observable;
+import java.util.Set;
 
 import androidx.annotation.Nullable;
 
@@ -51,9 +56,16 @@ public class UploadsStorageManager extends Observable {
     private static final String AND = " AND ";
     private static final int SINGLE_RESULT = 1;
 
+    /**
+     * Time to wait for further changes before informing the observers.
+     */
+    private static final long CHANGE_WINDOW_MILLIS = 500;
+
     private ContentResolver mContentResolver;
     private Context mContext;
 
+    private final UploadsChangeBus mChangeBus = new UploadsChangeBus(CHANGE_WINDOW_MILLIS, this::onUploadsChanged);
+
     public UploadsStorageManager(ContentResolver contentResolver, Context context) {
         if (contentResolver == null) {
             throw new IllegalArgumentException("Cannot create an instance with a NULL contentResolver");
@@ -94,7 +106,7 @@ public class UploadsStorageManager extends Observable {
         } else {
             long new_id = Long.parseLong(result.getPathSegments().get(1));
             ocUpload.setUploadId(new_id);
-            notifyObserversNow();
+            notifyObserversNow(new_id);
             return new_id;
         }
     }
@@ -118,7 +130,7 @@ public class UploadsStorageManager extends Observable {
         cv.put(ProviderTableMeta.UPLOADS_FILE_SIZE, ocUpload.getFileSize());
         cv.put(ProviderTableMeta.UPLOADS_FOLDER_UNLOCK_TOKEN, ocUpload.getFolderUnlockToken());
 
-        int result = getDB().update(ProviderTableMeta.CONTENT_URI_UPLOADS,
+        int result = getDB().update(getUploadUri(ocUpload.getUploadId()),
                 cv,
                 ProviderTableMeta._ID + "=?",
                 new String[]{String.valueOf(ocUpload.getUploadId())}
@@ -128,12 +140,73 @@ public class UploadsStorageManager extends Observable {
         if (result != SINGLE_RESULT) {
             Log_OC.e(TAG, "Failed to update item " + ocUpload.getLocalPath() + " into upload db.");
         } else {
-            notifyObserversNow();
+            notifyObserversNow(ocUpload.getUploadId());
         }
 
         return result;
     }
 
+    /**
+     * Gets the chunks of an upload confirmed by the server in a previous attempt.
+     *
+     * @param uploadId upload id.
+     * @return confirmed chunks, or null if no chunk was stored.
+     */
+    @Nullable
+    public ChunkedUploadState getChunkedUploadState(long uploadId) {
+        ChunkedUploadState state = null;
+        Cursor c = getDB().query(
+                ProviderTableMeta.CONTENT_URI_UPLOADS,
+                new String[]{ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID,
+                        ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED,
+                        ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED},
+                ProviderTableMeta._ID + "=?",
+                new String[]{String.valueOf(uploadId)},
+                null
+        );
+
+        if (c != null) {
+            if (c.moveToFirst() && !c.isNull(0)) {
+                Set<Integer> confirmedChunks = new HashSet<>();
+                String chunks = c.getString(2);
+                if (!TextUtils.isEmpty(chunks)) {
+                    for (String chunk : chunks.split(",")) {
+                        confirmedChunks.add(Integer.valueOf(chunk));
+                    }
+                }
+                state = new ChunkedUploadState(c.getLong(0), c.getLong(1), confirmedChunks);
+            }
+            c.close();
+        }
+
+        return state;
+    }
+
+    /**
+     * Stores the chunks of an upload confirmed by the server, so that a later attempt can skip them.
+     *
+     * @param uploadId upload id.
+     * @param state    confirmed chunks, or null to forget them.
+     */
+    public void updateChunkedUploadState(long uploadId, @Nullable ChunkedUploadState state) {
+        ContentValues cv = new ContentValues();
+        if (state == null) {
+            cv.putNull(ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID);
+            cv.putNull(ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED);
+            cv.putNull(ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED);
+        } else {
+            cv.put(ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID, state.getTransferId());
+            cv.put(ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED, state.getFileModified());
+            cv.put(ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED, TextUtils.join(",", state.getConfirmedChunks()));
+        }
+
+        getDB().update(getUploadUri(uploadId),
+                       cv,
+                       ProviderTableMeta._ID + "=?",
+                       new String[]{String.valueOf(uploadId)}
+        );
+    }
+
     private int updateUploadInternal(Cursor c, UploadStatus status, UploadResult result, String remotePath,
                                      String localPath) {
 
@@ -206,13 +279,46 @@ public class UploadsStorageManager extends Observable {
     }
 
     /**
-     * Should be called when some value of this DB was changed. All observers
-     * are informed.
+     * Changes of single uploads are made through their own URI, so that content observers are told which upload
+     * changed, see {@link #getUploadId(Uri)}.
+     */
+    private static Uri getUploadUri(long uploadId) {
+        return ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_UPLOADS, uploadId);
+    }
+
+    /**
+     * @param uri URI of a change notified to content observers of {@link ProviderTableMeta#CONTENT_URI_UPLOADS}
+     * @return id of the changed upload, or -1 if the change may concern any upload
+     */
+    public static long getUploadId(@Nullable Uri uri) {
+        if (uri == null || uri.getPathSegments().size() < 2) {
+            return -1;
+        }
+        try {
+            return ContentUris.parseId(uri);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Should be called when some value of this DB was changed. All observers are informed, along with the other changes
+     * made within {@link #CHANGE_WINDOW_MILLIS}, on a background thread. The argument passed to them is an
+     * {@link UploadsChangeBus.Change}.
      */
     public void notifyObserversNow() {
-        Log_OC.d(TAG, "notifyObserversNow");
+        mChangeBus.postAll();
+    }
+
+    private void notifyObserversNow(long uploadId) {
+        mChangeBus.post(uploadId);
+    }
+
+    private void onUploadsChanged(UploadsChangeBus.Change change) {
+        Log_OC.d(TAG, "notifyObservers: " + mChangeBus.getEmittedEvents() + " events emitted, " +
+                mChangeBus.getSuppressedEvents() + " changes merged into them");
         setChanged();
-        notifyObservers();
+        notifyObservers(change);
     }
 
     /**
@@ -223,13 +329,13 @@ public class UploadsStorageManager extends Observable {
      */
     public int removeUpload(OCUpload upload) {
         int result = getDB().delete(
-                ProviderTableMeta.CONTENT_URI_UPLOADS,
+                getUploadUri(upload.getUploadId()),
                 ProviderTableMeta._ID + "=?",
                 new String[]{Long.toString(upload.getUploadId())}
         );
         Log_OC.d(TAG, "delete returns " + result + " for upload " + upload);
         if (result > 0) {
-            notifyObserversNow();
+            notifyObserversNow(upload.getUploadId());
         }
         return result;
     }
@@ -277,6 +383,18 @@ public class UploadsStorageManager extends Observable {
         return getUploads(null, (String[]) null);
     }
 
+    private OCUpload[] getUploads(@Nullable Collection<Long> uploadIds, String selection, String... selectionArgs) {
+        if (uploadIds == null) {
+            return getUploads(selection, selectionArgs);
+        }
+        if (uploadIds.isEmpty()) {
+            return new OCUpload[0];
+        }
+
+        return getUploads("(" + selection + ")" + AND + ProviderTableMeta._ID + " IN (" +
+                              TextUtils.join(",", uploadIds) + ")", selectionArgs);
+    }
+
     private OCUpload[] getUploads(@Nullable String selection, @Nullable String... selectionArgs) {
         OCUpload[] list;
 
@@ -340,10 +458,17 @@ public class UploadsStorageManager extends Observable {
     }
 
     public OCUpload[] getCurrentAndPendingUploadsForCurrentAccount() {
+        return getCurrentAndPendingUploadsForCurrentAccount(null);
+    }
+
+    /**
+     * @param uploadIds uploads to restrict the result to, or null for all of them
+     */
+    public OCUpload[] getCurrentAndPendingUploadsForCurrentAccount(@Nullable Collection<Long> uploadIds) {
         Account account = AccountUtils.getCurrentOwnCloudAccount(mContext);
 
         if (account != null) {
-            return getUploads(
+            return getUploads(uploadIds,
                 ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_IN_PROGRESS.value +
                             " OR " + ProviderTableMeta.UPLOADS_LAST_RESULT +
                             "==" + UploadResult.DELAYED_FOR_WIFI.getValue() +
@@ -379,10 +504,18 @@ public class UploadsStorageManager extends Observable {
     }
 
     public OCUpload[] getFinishedUploadsForCurrentAccount() {
+        return getFinishedUploadsForCurrentAccount(null);
+    }
+
+    /**
+     * @param uploadIds uploads to restrict the result to, or null for all of them
+     */
+    public OCUpload[] getFinishedUploadsForCurrentAccount(@Nullable Collection<Long> uploadIds) {
         Account account = AccountUtils.getCurrentOwnCloudAccount(mContext);
 
         if (account != null) {
-            return getUploads(ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_SUCCEEDED.value + AND +
+            return getUploads(uploadIds,
+                              ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_SUCCEEDED.value + AND +
                                   ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "== ?", account.name);
         } else {
             return new OCUpload[0];
@@ -398,10 +531,17 @@ public class UploadsStorageManager extends Observable {
     }
 
     public OCUpload[] getFailedButNotDelayedUploadsForCurrentAccount() {
+        return getFailedButNotDelayedUploadsForCurrentAccount(null);
+    }
+
+    /**
+     * @param uploadIds uploads to restrict the result to, or null for all of them
+     */
+    public OCUpload[] getFailedButNotDelayedUploadsForCurrentAccount(@Nullable Collection<Long> uploadIds) {
         Account account = AccountUtils.getCurrentOwnCloudAccount(mContext);
 
         if (account != null) {
-            return getUploads(ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_FAILED.value +
+            return getUploads(uploadIds, ProviderTableMeta.UPLOADS_STATUS + "==" + UploadStatus.UPLOAD_FAILED.value +
                             AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
                             "<>" + UploadResult.DELAYED_FOR_WIFI.getValue() +
                             AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
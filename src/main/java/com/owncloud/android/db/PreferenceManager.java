@@ -66,6 +66,8 @@ public final class PreferenceManager {
     private static final String PREF__FOLDER_SORT_ORDER = "folder_sort_order";
     private static final String PREF__FOLDER_LAYOUT = "folder_layout";
     public static final String PREF__LOCK_TIMESTAMP = "lock_timestamp";
+    private static final String PREF__MAX_CONCURRENT_UPLOADS = "max_concurrent_uploads";
+    private static final String PREF__MAX_CONCURRENT_UPLOADS_PER_ACCOUNT = "max_concurrent_uploads_per_account";
 
     private PreferenceManager() {
     }
@@ -533,6 +535,26 @@ public final class PreferenceManager {
         saveIntPreference(context, AUTO_PREF__LAST_SEEN_VERSION_CODE, versionCode);
     }
 
+    /**
+     * Gets the maximum number of uploads performed at the same time.
+     *
+     * @param context Caller {@link Context}, used to access to shared preferences manager.
+     * @return maximum number of concurrent uploads, 1 for uploading one file after the other
+     */
+    public static int getMaxConcurrentUploads(Context context) {
+        return getDefaultSharedPreferences(context).getInt(PREF__MAX_CONCURRENT_UPLOADS, 1);
+    }
+
+    /**
+     * Gets the maximum number of uploads of the same account performed at the same time.
+     *
+     * @param context Caller {@link Context}, used to access to shared preferences manager.
+     * @return maximum number of concurrent uploads per account, 1 for uploading one file after the other
+     */
+    public static int getMaxConcurrentUploadsPerAccount(Context context) {
+        return getDefaultSharedPreferences(context).getInt(PREF__MAX_CONCURRENT_UPLOADS_PER_ACCOUNT, 1);
+    }
+
     public static long getLockTimestamp(Context context) {
         return getDefaultSharedPreferences(context).getLong(PREF__LOCK_TIMESTAMP, 0);
     }
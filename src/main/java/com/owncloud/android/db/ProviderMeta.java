@@ -32,7 +32,7 @@ import com.owncloud.android.MainApp;
 public class ProviderMeta {
 
     public static final String DB_NAME = "filelist";
-    public static final int DB_VERSION = 39;
+    public static final int DB_VERSION = 44;
 
     private ProviderMeta() {
     }
@@ -47,6 +47,20 @@ public class ProviderMeta {
         public static final String ARBITRARY_DATA_TABLE_NAME = "arbitrary_data";
         public static final String VIRTUAL_TABLE_NAME = "virtual";
         public static final String FILESYSTEM_TABLE_NAME = "filesystem";
+        public static final String DOWNLOADS_TABLE_NAME = "list_of_downloads";
+
+        // Indexes
+        public static final String FILE_ACCOUNT_PATH_INDEX = "filelist_account_path_index";
+        public static final String FILE_ACCOUNT_PARENT_INDEX = "filelist_account_parent_index";
+        public static final String FILE_KEEP_IN_SYNC_INDEX = "filelist_keep_in_sync_index";
+        public static final String FILE_STORAGE_PATH_INDEX = "filelist_storage_path_index";
+        public static final String FILESYSTEM_SYNCED_FOLDER_PATH_INDEX = "filesystem_synced_folder_path_index";
+        public static final String FILESYSTEM_SENT_FOR_UPLOAD_INDEX = "filesystem_sent_for_upload_index";
+        public static final String UPLOADS_ACCOUNT_PATH_INDEX = "uploads_account_path_index";
+        public static final String UPLOADS_ACCOUNT_STATUS_INDEX = "uploads_account_status_index";
+        public static final String UPLOADS_STATUS_INDEX = "uploads_status_index";
+        public static final String VIRTUAL_TYPE_INDEX = "virtual_type_index";
+        public static final String DOWNLOADS_ACCOUNT_PATH_INDEX = "downloads_account_path_index";
 
         private static final String CONTENT_PREFIX = "content://";
 
@@ -69,8 +83,12 @@ public class ProviderMeta {
         public static final Uri CONTENT_URI_ARBITRARY_DATA = Uri.parse(CONTENT_PREFIX
                 + MainApp.getAuthority() + "/arbitrary_data");
         public static final Uri CONTENT_URI_VIRTUAL = Uri.parse(CONTENT_PREFIX + MainApp.getAuthority() + "/virtual");
+        public static final Uri CONTENT_URI_VIRTUAL_FILES = Uri.parse(CONTENT_PREFIX
+                + MainApp.getAuthority() + "/virtual/files");
         public static final Uri CONTENT_URI_FILESYSTEM = Uri.parse(CONTENT_PREFIX
                 + MainApp.getAuthority() + "/filesystem");
+        public static final Uri CONTENT_URI_DOWNLOADS = Uri.parse(CONTENT_PREFIX
+                + MainApp.getAuthority() + "/downloads");
 
 
         public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.owncloud.file";
@@ -199,6 +217,9 @@ public class ProviderMeta {
         public static final String UPLOADS_IS_WHILE_CHARGING_ONLY = "is_while_charging_only";
         public static final String UPLOADS_IS_WIFI_ONLY = "is_wifi_only";
         public static final String UPLOADS_FOLDER_UNLOCK_TOKEN = "folder_unlock_token";
+        public static final String UPLOADS_CHUNK_TRANSFER_ID = "chunk_transfer_id";
+        public static final String UPLOADS_CHUNK_FILE_MODIFIED = "chunk_file_modified";
+        public static final String UPLOADS_CHUNKS_CONFIRMED = "chunks_confirmed";
 
         // Columns of synced folder table
         public static final String SYNCED_FOLDER_LOCAL_PATH = "local_path";
@@ -237,5 +258,11 @@ public class ProviderMeta {
         public static final String FILESYSTEM_FILE_SENT_FOR_UPLOAD = "upload_triggered";
         public static final String FILESYSTEM_SYNCED_FOLDER_ID = "syncedfolder_id";
         public static final String FILESYSTEM_CRC32 = "crc32";
+        public static final String FILESYSTEM_FILE_SIZE = "file_size";
+
+        // Columns of downloads table
+        public static final String DOWNLOADS_ACCOUNT_NAME = "account_name";
+        public static final String DOWNLOADS_FILE_ID = "file_id";
+        public static final String DOWNLOADS_REMOTE_PATH = "remote_path";
     }
 }
@@ -27,6 +27,7 @@ import android.app.Notification;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.BitmapFactory;
 import android.os.Binder;
@@ -41,8 +42,10 @@ import android.util.Pair;
 import com.owncloud.android.R;
 import com.owncloud.android.authentication.AccountUtils;
 import com.owncloud.android.authentication.AuthenticatorActivity;
+import com.owncloud.android.datamodel.DownloadsStorageManager;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.db.PreferenceManager;
 import com.owncloud.android.lib.common.OwnCloudAccount;
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.OwnCloudClientManagerFactory;
@@ -50,7 +53,6 @@ import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
 import com.owncloud.android.lib.common.utils.Log_OC;
-import com.owncloud.android.lib.resources.files.FileUtils;
 import com.owncloud.android.operations.DownloadFileOperation;
 import com.owncloud.android.ui.activity.FileActivity;
 import com.owncloud.android.ui.activity.FileDisplayActivity;
@@ -64,18 +66,27 @@ import com.owncloud.android.utils.ThemeUtils;
 
 import java.io.File;
 import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import androidx.core.app.NotificationCompat;
 
-public class FileDownloader extends Service
-        implements OnDatatransferProgressListener, OnAccountsUpdateListener {
+public class FileDownloader extends Service implements OnAccountsUpdateListener {
 
     public static final String EXTRA_ACCOUNT = "ACCOUNT";
     public static final String EXTRA_FILE = "FILE";
+    private static final String EXTRA_QUEUED_DOWNLOADS = "QUEUED_DOWNLOADS";
 
     private static final String DOWNLOAD_ADDED_MESSAGE = "DOWNLOAD_ADDED";
     private static final String DOWNLOAD_FINISH_MESSAGE = "DOWNLOAD_FINISH";
@@ -87,22 +98,38 @@ public class FileDownloader extends Service
 
     private static final int FOREGROUND_SERVICE_ID = 412;
 
+    private static final int MSG_DOWNLOADS_REQUESTED = 0;
+    private static final int MSG_DOWNLOADS_QUEUED = 1;
+    private static final int MSG_DOWNLOAD_FINISHED = 2;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
     private static final String TAG = FileDownloader.class.getSimpleName();
 
     private Looper mServiceLooper;
     private ServiceHandler mServiceHandler;
+    private ThreadPoolExecutor mDownloadExecutor;
     private IBinder mBinder;
-    private OwnCloudClient mDownloadClient;
-    private Account mCurrentAccount;
-    private FileDataStorageManager mStorageManager;
+    private DownloadsStorageManager mDownloadsStorageManager;
 
     private IndexedForest<DownloadFileOperation> mPendingDownloads = new IndexedForest<>();
 
-    private DownloadFileOperation mCurrentDownload;
+    /**
+     * Ongoing downloads by download key. Up to {@link #mMaxConcurrentDownloads} run at once, and up to
+     * {@link #mMaxConcurrentDownloadsPerAccount} of them for the same account.
+     */
+    private final Map<String, DownloadFileOperation> mActiveDownloads = new ConcurrentHashMap<>();
+    private int mMaxConcurrentDownloads;
+    private int mMaxConcurrentDownloadsPerAccount;
+    private final Object mClientLock = new Object();
 
     private NotificationManager mNotificationManager;
     private NotificationCompat.Builder mNotificationBuilder;
-    private int mLastPercent;
+
+    /**
+     * Progress of the ongoing downloads in the order they started; the progress notification shows the oldest one.
+     * Guarded by this.
+     */
+    private final Map<DownloadFileOperation, Integer> mDownloadProgress = new LinkedHashMap<>();
 
     private Notification mNotification;
 
@@ -114,6 +141,31 @@ public class FileDownloader extends Service
         return FileDownloader.class.getName() + DOWNLOAD_FINISH_MESSAGE;
     }
 
+    /**
+     * Requests the download of several files of an account at once, e.g. the files of a synchronized folder.
+     *
+     * The downloads are stored in a persistent queue with a single transaction and the service is started once for
+     * all of them. Downloads still queued when the process dies are resumed the next time the service starts.
+     *
+     * @param context Android context.
+     * @param account ownCloud account holding the files.
+     * @param files   Files to download, already stored in the database.
+     */
+    public static void requestDownloads(Context context, Account account, Collection<OCFile> files) {
+        if (files.isEmpty() ||
+                !new DownloadsStorageManager(context.getContentResolver()).storeDownloads(account, files)) {
+            return;
+        }
+
+        Intent intent = new Intent(context, FileDownloader.class);
+        intent.putExtra(EXTRA_QUEUED_DOWNLOADS, true);
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+            context.startForegroundService(intent);
+        } else {
+            context.startService(intent);
+        }
+    }
+
     /**
      * Service initialization
      */
@@ -128,6 +180,16 @@ public class FileDownloader extends Service
         mServiceHandler = new ServiceHandler(mServiceLooper, this);
         mBinder = new FileDownloaderBinder();
 
+        // same limits as uploads
+        mMaxConcurrentDownloads = Math.max(1, PreferenceManager.getMaxConcurrentUploads(this));
+        mMaxConcurrentDownloadsPerAccount = Math.max(1, PreferenceManager.getMaxConcurrentUploadsPerAccount(this));
+        mDownloadExecutor = new ThreadPoolExecutor(mMaxConcurrentDownloads, mMaxConcurrentDownloads,
+                                                   WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                   new LinkedBlockingQueue<>());
+        mDownloadExecutor.allowCoreThreadTimeOut(true);
+
+        mDownloadsStorageManager = new DownloadsStorageManager(getContentResolver());
+
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this).setContentTitle(
                 getApplicationContext().getResources().getString(R.string.app_name))
                 .setContentText(getApplicationContext().getResources().getString(R.string.foreground_service_download))
@@ -144,6 +206,9 @@ public class FileDownloader extends Service
         // add AccountsUpdatedListener
         AccountManager am = AccountManager.get(getApplicationContext());
         am.addOnAccountsUpdatedListener(this, null, false);
+
+        // resume the downloads queued before the service was killed
+        mServiceHandler.sendEmptyMessage(MSG_DOWNLOADS_QUEUED);
     }
 
 
@@ -157,7 +222,12 @@ public class FileDownloader extends Service
         mServiceHandler = null;
         mServiceLooper.quit();
         mServiceLooper = null;
-        mNotificationManager = null;
+        // ongoing downloads are cancelled instead of running on without the service; the notification
+        // manager is kept, as their workers may still report before they stop
+        for (DownloadFileOperation download : mActiveDownloads.values()) {
+            download.cancel();
+        }
+        mDownloadExecutor.shutdownNow();
 
         // remove AccountsUpdatedListener
         AccountManager am = AccountManager.get(getApplicationContext());
@@ -179,6 +249,14 @@ public class FileDownloader extends Service
 
         startForeground(FOREGROUND_SERVICE_ID, mNotification);
 
+        if (intent != null && intent.getBooleanExtra(EXTRA_QUEUED_DOWNLOADS, false)) {
+            // read from the queue by the service thread
+            Message msg = mServiceHandler.obtainMessage(MSG_DOWNLOADS_QUEUED);
+            msg.arg1 = startId;
+            mServiceHandler.sendMessage(msg);
+            return START_NOT_STICKY;
+        }
+
         if (intent == null || !intent.hasExtra(EXTRA_ACCOUNT) || !intent.hasExtra(EXTRA_FILE)) {
             Log_OC.e(TAG, "Not enough information provided in intent");
             return START_NOT_STICKY;
@@ -192,8 +270,7 @@ public class FileDownloader extends Service
             try {
                 DownloadFileOperation newDownload = new DownloadFileOperation(account, file, behaviour, activityName,
                         packageName, getBaseContext());
-                newDownload.addDatatransferProgressListener(this);
-                newDownload.addDatatransferProgressListener((FileDownloaderBinder) mBinder);
+                addListeners(newDownload);
                 Pair<String, String> putResult = mPendingDownloads.putIfAbsent(
                         account.name, file.getRemotePath(), newDownload);
                 if (putResult != null) {
@@ -208,7 +285,7 @@ public class FileDownloader extends Service
             }
 
             if (requestedDownloads.size() > 0) {
-                Message msg = mServiceHandler.obtainMessage();
+                Message msg = mServiceHandler.obtainMessage(MSG_DOWNLOADS_REQUESTED);
                 msg.arg1 = startId;
                 msg.obj = requestedDownloads;
                 mServiceHandler.sendMessage(msg);
@@ -218,6 +295,56 @@ public class FileDownloader extends Service
         return START_NOT_STICKY;
     }
 
+    /**
+     * Creates the operations of the queued downloads that are not pending yet. Runs on the service thread.
+     *
+     * @return keys of the new downloads, in the order they were requested
+     */
+    private List<String> loadQueuedDownloads() {
+        List<String> requestedDownloads = new Vector<>();
+
+        for (Map.Entry<String, List<Long>> queued : mDownloadsStorageManager.getQueuedDownloads().entrySet()) {
+            String accountName = queued.getKey();
+            Account account = AccountUtils.getOwnCloudAccountByName(this, accountName);
+            if (account == null) {
+                mDownloadsStorageManager.removeDownloads(accountName);
+                continue;
+            }
+
+            FileDataStorageManager storageManager = new FileDataStorageManager(account, getContentResolver());
+            for (Long fileId : queued.getValue()) {
+                OCFile file = storageManager.getFileById(fileId);
+                if (file == null || file.isFolder()) {
+                    mDownloadsStorageManager.removeDownload(accountName, fileId);
+                    continue;
+                }
+
+                DownloadFileOperation newDownload = new DownloadFileOperation(account, file, null, null, null,
+                                                                              getBaseContext());
+                addListeners(newDownload);
+                Pair<String, String> putResult = mPendingDownloads.putIfAbsent(account.name, file.getRemotePath(),
+                                                                               newDownload);
+                if (putResult != null) {
+                    requestedDownloads.add(putResult.first);
+                    sendBroadcastNewDownload(newDownload, putResult.second);
+                }   // else, file already in the queue of downloads; don't repeat the request
+            }
+        }
+
+        return requestedDownloads;
+    }
+
+    /**
+     * Reports the progress of a download as events of that download, as several may be ongoing.
+     */
+    private void addListeners(final DownloadFileOperation download) {
+        final FileDownloaderBinder binder = (FileDownloaderBinder) mBinder;
+        download.addDatatransferProgressListener((progressRate, totalTransferredSoFar, totalToTransfer, fileName) -> {
+            onTransferProgress(download, totalTransferredSoFar, totalToTransfer);
+            binder.onTransferProgress(download, progressRate, totalTransferredSoFar, totalToTransfer, fileName);
+        });
+    }
+
 
     /**
      * Provides a binder object that clients can use to perform operations on the queue of downloads,
@@ -242,10 +369,11 @@ public class FileDownloader extends Service
 
     @Override
     public void onAccountsUpdated(Account[] accounts) {
-         //review the current download and cancel it if its account doesn't exist
-        if (mCurrentDownload != null &&
-                !AccountUtils.exists(mCurrentDownload.getAccount(), getApplicationContext())) {
-            mCurrentDownload.cancel();
+        // review the current downloads and cancel those whose account doesn't exist
+        for (DownloadFileOperation download : mActiveDownloads.values()) {
+            if (!AccountUtils.exists(download.getAccount(), getApplicationContext())) {
+                download.cancel();
+            }
         }
         // The rest of downloads are cancelled when they try to start
     }
@@ -256,15 +384,14 @@ public class FileDownloader extends Service
      * <p/>
      * It provides by itself the available operations.
      */
-    public class FileDownloaderBinder extends Binder implements OnDatatransferProgressListener {
+    public class FileDownloaderBinder extends Binder {
 
         /**
          * Map of listeners that will be reported about progress of downloads from a
          * {@link FileDownloaderBinder}
          * instance.
          */
-        private Map<Long, OnDatatransferProgressListener> mBoundListeners =
-                new HashMap<Long, OnDatatransferProgressListener>();
+        private Map<Long, OnDatatransferProgressListener> mBoundListeners = new ConcurrentHashMap<>();
 
 
         /**
@@ -279,13 +406,21 @@ public class FileDownloader extends Service
             DownloadFileOperation download = removeResult.first;
             if (download != null) {
                 download.cancel();
-            } else {
-                if (mCurrentDownload != null && mCurrentAccount != null &&
-                        mCurrentDownload.getRemotePath().startsWith(file.getRemotePath()) &&
-                        account.name.equals(mCurrentAccount.name)) {
-                    mCurrentDownload.cancel();
+            }
+
+            // running downloads of descendants are no longer pending
+            for (DownloadFileOperation activeDownload : mActiveDownloads.values()) {
+                if (activeDownload.getRemotePath().startsWith(file.getRemotePath()) &&
+                        account.name.equals(activeDownload.getAccount().name)) {
+                    activeDownload.cancel();
                 }
             }
+
+            if (file.isFolder()) {
+                mDownloadsStorageManager.removeFolderDownloads(account.name, file.getRemotePath());
+            } else {
+                mDownloadsStorageManager.removeDownload(account.name, file.getRemotePath());
+            }
         }
 
         /**
@@ -296,10 +431,10 @@ public class FileDownloader extends Service
         public void cancel(Account account) {
             Log_OC.d(TAG, "Account= " + account.name);
 
-            if (mCurrentDownload != null) {
-                Log_OC.d(TAG, "Current Download Account= " + mCurrentDownload.getAccount().name);
-                if (mCurrentDownload.getAccount().name.equals(account.name)) {
-                    mCurrentDownload.cancel();
+            for (DownloadFileOperation activeDownload : mActiveDownloads.values()) {
+                if (activeDownload.getAccount().name.equals(account.name)) {
+                    Log_OC.d(TAG, "Cancelling download of " + activeDownload.getRemotePath());
+                    activeDownload.cancel();
                 }
             }
             // Cancel pending downloads
@@ -362,11 +497,9 @@ public class FileDownloader extends Service
             }
         }
 
-        @Override
-        public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                       long totalToTransfer, String fileName) {
-            OnDatatransferProgressListener boundListener =
-                    mBoundListeners.get(mCurrentDownload.getFile().getFileId());
+        private void onTransferProgress(DownloadFileOperation download, long progressRate,
+                                        long totalTransferredSoFar, long totalToTransfer, String fileName) {
+            OnDatatransferProgressListener boundListener = mBoundListeners.get(download.getFile().getFileId());
             if (boundListener != null) {
                 boundListener.onTransferProgress(progressRate, totalTransferredSoFar,
                         totalToTransfer, fileName);
@@ -376,15 +509,19 @@ public class FileDownloader extends Service
     }
 
     /**
-     * Download worker. Performs the pending downloads in the order they were requested.
-
-     * Created with the Looper of a new thread, started in {@link FileUploader#onCreate()}.
+     * Download dispatcher. Starts the pending downloads in the order they were requested, on a pool of workers.
+     *
+     * Created with the Looper of a new thread, started in {@link FileDownloader#onCreate()}.
      */
     private static class ServiceHandler extends Handler {
         // don't make it a final class, and don't remove the static ; lint will warn about a
         // possible memory leak
         FileDownloader mService;
 
+        private final Deque<String> mRequestedDownloads = new ArrayDeque<>();
+        private final Map<String, Integer> mActiveDownloadsPerAccount = new HashMap<>();
+        private int mLastStartId;
+
         public ServiceHandler(Looper looper, FileDownloader service) {
             super(looper);
             if (service == null) {
@@ -395,90 +532,147 @@ public class FileDownloader extends Service
 
         @Override
         public void handleMessage(Message msg) {
-            @SuppressWarnings("unchecked")
-            AbstractList<String> requestedDownloads = (AbstractList<String>) msg.obj;
-            if (msg.obj != null) {
-                Iterator<String> it = requestedDownloads.iterator();
-                while (it.hasNext()) {
-                    String next = it.next();
-                    mService.downloadFile(next);
+            switch (msg.what) {
+                case MSG_DOWNLOADS_REQUESTED:
+                    @SuppressWarnings("unchecked")
+                    AbstractList<String> requestedDownloads = (AbstractList<String>) msg.obj;
+                    if (requestedDownloads != null) {
+                        mRequestedDownloads.addAll(requestedDownloads);
+                    }
+                    mLastStartId = msg.arg1;
+                    break;
+
+                case MSG_DOWNLOADS_QUEUED:
+                    mRequestedDownloads.addAll(mService.loadQueuedDownloads());
+                    if (msg.arg1 != 0) {
+                        mLastStartId = msg.arg1;
+                    }   // else, loaded when the service was created
+                    break;
+
+                case MSG_DOWNLOAD_FINISHED:
+                    DownloadFileOperation download = mService.mActiveDownloads.remove((String) msg.obj);
+                    if (download != null) {
+                        String accountName = download.getAccount().name;
+                        Integer active = mActiveDownloadsPerAccount.get(accountName);
+                        if (active == null || active <= 1) {
+                            mActiveDownloadsPerAccount.remove(accountName);
+                        } else {
+                            mActiveDownloadsPerAccount.put(accountName, active - 1);
+                        }
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+
+            dispatch();
+
+            if (mLastStartId != 0 && mRequestedDownloads.isEmpty() && mService.mActiveDownloads.isEmpty()) {
+                Log_OC.d(TAG, "Stopping after command with id " + mLastStartId);
+                mService.stopForeground(true);
+                mService.stopSelf(mLastStartId);
+            }
+        }
+
+        /**
+         * Starts the first requested downloads whose account has not reached the limit of concurrent downloads,
+         * until the global limit is reached.
+         */
+        private void dispatch() {
+            Iterator<String> it = mRequestedDownloads.iterator();
+            while (mService.mActiveDownloads.size() < mService.mMaxConcurrentDownloads && it.hasNext()) {
+                final String downloadKey = it.next();
+                final DownloadFileOperation download = mService.mPendingDownloads.get(downloadKey);
+                if (download == null) {
+                    // cancelled while waiting
+                    it.remove();
+                    continue;
+                }
+                if (mService.mActiveDownloads.containsKey(downloadKey)) {
+                    // requested again while the previous download of the file finishes
+                    continue;
+                }
+
+                String accountName = download.getAccount().name;
+                Integer active = mActiveDownloadsPerAccount.get(accountName);
+                if (active != null && active >= mService.mMaxConcurrentDownloadsPerAccount) {
+                    continue;
                 }
+
+                it.remove();
+                mActiveDownloadsPerAccount.put(accountName, active == null ? 1 : active + 1);
+                mService.mActiveDownloads.put(downloadKey, download);
+
+                mService.mDownloadExecutor.execute(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    try {
+                        mService.downloadFile(download);
+                    } finally {
+                        sendMessage(obtainMessage(MSG_DOWNLOAD_FINISHED, downloadKey));
+                    }
+                });
             }
-            Log_OC.d(TAG, "Stopping after command with id " + msg.arg1);
-            mService.stopForeground(true);
-            mService.stopSelf(msg.arg1);
         }
     }
 
 
     /**
-     * Core download method: requests a file to download and stores it.
+     * Core download method: requests a file to download and stores it. Runs on a download worker, concurrently with
+     * the downloads of other files.
      *
-     * @param downloadKey Key to access the download to perform, contained in mPendingDownloads
+     * @param download Download to perform, contained in mPendingDownloads
      */
-    private void downloadFile(String downloadKey) {
-
-        mCurrentDownload = mPendingDownloads.get(downloadKey);
-
-        if (mCurrentDownload != null) {
-            // Detect if the account exists
-            if (AccountUtils.exists(mCurrentDownload.getAccount(), getApplicationContext())) {
-                Log_OC.d(TAG, "Account " + mCurrentDownload.getAccount().name + " exists");
-
-                notifyDownloadStart(mCurrentDownload);
-
-                RemoteOperationResult downloadResult = null;
-                try {
-                    /// prepare client object to send the request to the ownCloud server
-                    if (mCurrentAccount == null ||
-                            !mCurrentAccount.equals(mCurrentDownload.getAccount())) {
-                        mCurrentAccount = mCurrentDownload.getAccount();
-                        mStorageManager = new FileDataStorageManager(
-                                mCurrentAccount,
-                                getContentResolver()
-                        );
-                    }   // else, reuse storage manager from previous operation
-
-                    // always get client from client manager, to get fresh credentials in case
-                    // of update
-                    OwnCloudAccount ocAccount = new OwnCloudAccount(
-                            mCurrentAccount,
-                            this
-                    );
-                    mDownloadClient = OwnCloudClientManagerFactory.getDefaultSingleton().
-                            getClientFor(ocAccount, this);
-
-
-                    /// perform the download
-                    downloadResult = mCurrentDownload.execute(mDownloadClient, mCurrentDownload.getFile().isEncrypted());
-                    if (downloadResult.isSuccess()) {
-                        saveDownloadedFile();
-                    }
+    private void downloadFile(DownloadFileOperation download) {
+        Account account = download.getAccount();
 
-                } catch (Exception e) {
-                    Log_OC.e(TAG, "Error downloading", e);
-                    downloadResult = new RemoteOperationResult(e);
+        // Detect if the account exists
+        if (AccountUtils.exists(account, getApplicationContext())) {
+            Log_OC.d(TAG, "Account " + account.name + " exists");
 
-                } finally {
-                    Pair<DownloadFileOperation, String> removeResult =
-                            mPendingDownloads.removePayload(
-                                    mCurrentAccount.name,
-                                    mCurrentDownload.getRemotePath()
-                            );
+            notifyDownloadStart(download);
+
+            RemoteOperationResult downloadResult = null;
+            try {
+                /// prepare client object to send the request to the ownCloud server
+                FileDataStorageManager storageManager = new FileDataStorageManager(account, getContentResolver());
+
+                // always get client from client manager, to get fresh credentials in case
+                // of update
+                OwnCloudAccount ocAccount = new OwnCloudAccount(account, this);
+                OwnCloudClient downloadClient;
+                synchronized (mClientLock) {
+                    downloadClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount, this);
+                }
 
-                    /// notify result
-                    notifyDownloadResult(mCurrentDownload, downloadResult);
 
-                    sendBroadcastDownloadFinished(mCurrentDownload, downloadResult, removeResult.second);
+                /// perform the download
+                downloadResult = download.execute(downloadClient, download.getFile().isEncrypted());
+                if (downloadResult.isSuccess()) {
+                    saveDownloadedFile(download, storageManager);
                 }
 
-            } else {
-                // Cancel the transfer
-                Log_OC.d(TAG, "Account " + mCurrentDownload.getAccount().toString() +
-                        " doesn't exist");
-                cancelDownloadsForAccount(mCurrentDownload.getAccount());
+            } catch (Exception e) {
+                Log_OC.e(TAG, "Error downloading", e);
+                downloadResult = new RemoteOperationResult(e);
+
+            } finally {
+                // dequeued before leaving the pending downloads, so that it cannot be loaded again meanwhile
+                mDownloadsStorageManager.removeDownload(account.name, download.getRemotePath());
+                Pair<DownloadFileOperation, String> removeResult =
+                        mPendingDownloads.removePayload(account.name, download.getRemotePath());
+
+                /// notify result
+                notifyDownloadResult(download, downloadResult);
 
+                sendBroadcastDownloadFinished(download, downloadResult, removeResult.second);
             }
+
+        } else {
+            // Cancel the transfer
+            Log_OC.d(TAG, "Account " + account.toString() + " doesn't exist");
+            cancelDownloadsForAccount(account);
+
         }
     }
 
@@ -488,41 +682,53 @@ public class FileDownloader extends Service
      *
      * TODO move to DownloadFileOperation
      */
-    private void saveDownloadedFile() {
-        OCFile file = mStorageManager.getFileById(mCurrentDownload.getFile().getFileId());
+    private void saveDownloadedFile(DownloadFileOperation download, FileDataStorageManager storageManager) {
+        OCFile file = storageManager.getFileById(download.getFile().getFileId());
         long syncDate = System.currentTimeMillis();
         file.setLastSyncDateForProperties(syncDate);
         file.setLastSyncDateForData(syncDate);
         file.setUpdateThumbnailNeeded(true);
-        file.setModificationTimestamp(mCurrentDownload.getModificationTimestamp());
-        file.setModificationTimestampAtLastSyncForData(mCurrentDownload.getModificationTimestamp());
-        file.setEtag(mCurrentDownload.getEtag());
-        file.setMimeType(mCurrentDownload.getMimeType());
-        file.setStoragePath(mCurrentDownload.getSavePath());
-        file.setFileLength(new File(mCurrentDownload.getSavePath()).length());
-        file.setRemoteId(mCurrentDownload.getFile().getRemoteId());
-        mStorageManager.saveFile(file);
+        file.setModificationTimestamp(download.getModificationTimestamp());
+        file.setModificationTimestampAtLastSyncForData(download.getModificationTimestamp());
+        file.setEtag(download.getEtag());
+        file.setMimeType(download.getMimeType());
+        file.setStoragePath(download.getSavePath());
+        file.setFileLength(new File(download.getSavePath()).length());
+        file.setRemoteId(download.getFile().getRemoteId());
+        storageManager.saveFile(file);
         FileDataStorageManager.triggerMediaScan(file.getStoragePath());
-        mStorageManager.saveConflict(file, null);
+        storageManager.saveConflict(file, null);
     }
 
     /**
-     * Creates a status notification to show the download progress
+     * Creates a status notification to show the download progress, unless another download is already shown
      *
      * @param download Download operation starting.
      */
-    private void notifyDownloadStart(DownloadFileOperation download) {
+    private synchronized void notifyDownloadStart(DownloadFileOperation download) {
+        mDownloadProgress.put(download, 0);
+        if (mDownloadProgress.size() == 1) {
+            showDownloadProgress(download, 0);
+        }
+    }
+
+    /**
+     * Shows the progress of a download in the status notification
+     *
+     * @param download Ongoing download operation.
+     * @param percent  Progress of the download.
+     */
+    private void showDownloadProgress(DownloadFileOperation download, int percent) {
         /// create status notification with a progress bar
-        mLastPercent = 0;
         mNotificationBuilder = NotificationUtils.newNotificationBuilder(this);
         mNotificationBuilder
                 .setSmallIcon(R.drawable.notification_icon)
                 .setTicker(getString(R.string.downloader_download_in_progress_ticker))
                 .setContentTitle(getString(R.string.downloader_download_in_progress_ticker))
                 .setOngoing(true)
-                .setProgress(100, 0, download.getSize() < 0)
+                .setProgress(100, percent, download.getSize() < 0)
                 .setContentText(
-                        String.format(getString(R.string.downloader_download_in_progress_content), 0,
+                        String.format(getString(R.string.downloader_download_in_progress_content), percent,
                                 new File(download.getSavePath()).getName())
                 );
 
@@ -555,15 +761,20 @@ public class FileDownloader extends Service
 
 
     /**
-     * Callback method to update the progress bar in the status notification.
+     * Callback method to update the progress bar in the status notification, if the download is shown
      */
-    @Override
-    public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                   long totalToTransfer, String filePath) {
+    private synchronized void onTransferProgress(DownloadFileOperation download, long totalTransferredSoFar,
+                                                 long totalToTransfer) {
         int percent = (int) (100.0 * ((double) totalTransferredSoFar) / ((double) totalToTransfer));
-        if (percent != mLastPercent) {
+        Integer lastPercent = mDownloadProgress.get(download);
+        if (lastPercent == null || percent == lastPercent) {
+            return;
+        }
+        mDownloadProgress.put(download, percent);
+
+        if (mDownloadProgress.keySet().iterator().next() == download) {
             mNotificationBuilder.setProgress(100, percent, totalToTransfer < 0);
-            String fileName = filePath.substring(filePath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
+            String fileName = new File(download.getSavePath()).getName();
             String text = String.format(getString(R.string.downloader_download_in_progress_content), percent, fileName);
             mNotificationBuilder.setContentText(text);
 
@@ -576,7 +787,6 @@ public class FileDownloader extends Service
                         mNotificationBuilder.build());
             }
         }
-        mLastPercent = percent;
     }
 
 
@@ -586,14 +796,21 @@ public class FileDownloader extends Service
      * @param downloadResult Result of the download operation.
      * @param download       Finished download operation
      */
-    private void notifyDownloadResult(DownloadFileOperation download,
-                                      RemoteOperationResult downloadResult) {
+    private synchronized void notifyDownloadResult(DownloadFileOperation download,
+                                                   RemoteOperationResult downloadResult) {
         if (mNotificationManager == null) {
             mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         }
 
+        mDownloadProgress.remove(download);
         if (mNotificationManager != null) {
-            mNotificationManager.cancel(R.string.downloader_download_in_progress_ticker);
+            if (mDownloadProgress.isEmpty()) {
+                mNotificationManager.cancel(R.string.downloader_download_in_progress_ticker);
+            } else {
+                // show the progress of the oldest download still running
+                Map.Entry<DownloadFileOperation, Integer> next = mDownloadProgress.entrySet().iterator().next();
+                showDownloadProgress(next.getKey(), next.getValue());
+            }
         }
 
         if (!downloadResult.isCancelled()) {
@@ -604,28 +821,34 @@ public class FileDownloader extends Service
             tickerId = needsToUpdateCredentials ?
                     R.string.downloader_download_failed_credentials_error : tickerId;
 
-            mNotificationBuilder
+            NotificationCompat.Builder notificationBuilder = NotificationUtils.newNotificationBuilder(this);
+            notificationBuilder
+                    .setSmallIcon(R.drawable.notification_icon)
                     .setTicker(getString(tickerId))
                     .setContentTitle(getString(tickerId))
                     .setAutoCancel(true)
                     .setOngoing(false)
                     .setProgress(0, 0, false);
 
+            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
+                notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_DOWNLOAD);
+            }
+
             if (needsToUpdateCredentials) {
-                configureUpdateCredentialsNotification(download.getAccount());
+                configureUpdateCredentialsNotification(notificationBuilder, download.getAccount());
 
             } else {
                 // TODO put something smart in showDetailsIntent
                 Intent showDetailsIntent = new Intent();
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
-                        showDetailsIntent, 0));
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(this,
+                        (int) System.currentTimeMillis(), showDetailsIntent, 0));
             }
 
-            mNotificationBuilder.setContentText(ErrorMessageAdapter.getErrorCauseMessage(downloadResult,
+            notificationBuilder.setContentText(ErrorMessageAdapter.getErrorCauseMessage(downloadResult,
                     download, getResources()));
 
             if (mNotificationManager != null) {
-                mNotificationManager.notify(tickerId, mNotificationBuilder.build());
+                mNotificationManager.notify(tickerId, notificationBuilder.build());
 
                 // Remove success notification
                 if (downloadResult.isSuccess()) {
@@ -637,7 +860,8 @@ public class FileDownloader extends Service
         }
     }
 
-    private void configureUpdateCredentialsNotification(Account account) {
+    private void configureUpdateCredentialsNotification(NotificationCompat.Builder notificationBuilder,
+                                                        Account account) {
         // let the user update credentials with one click
         Intent updateAccountCredentials = new Intent(this, AuthenticatorActivity.class);
         updateAccountCredentials.putExtra(AuthenticatorActivity.EXTRA_ACCOUNT, account);
@@ -648,7 +872,7 @@ public class FileDownloader extends Service
         updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
         updateAccountCredentials.addFlags(Intent.FLAG_FROM_BACKGROUND);
-        mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
+        notificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
                 updateAccountCredentials, PendingIntent.FLAG_ONE_SHOT));
     }
 
@@ -707,5 +931,6 @@ public class FileDownloader extends Service
     private void cancelDownloadsForAccount(Account account) {
         // Cancel pending downloads
         mPendingDownloads.remove(account.name);
+        mDownloadsStorageManager.removeDownloads(account.name);
     }
 }
@@ -56,6 +56,7 @@ import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.datamodel.UploadsStorageManager;
 import com.owncloud.android.datamodel.UploadsStorageManager.UploadStatus;
 import com.owncloud.android.db.OCUpload;
+import com.owncloud.android.db.PreferenceManager;
 import com.owncloud.android.db.UploadResult;
 import com.owncloud.android.lib.common.OwnCloudAccount;
 import com.owncloud.android.lib.common.OwnCloudClient;
@@ -64,22 +65,31 @@ import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
 import com.owncloud.android.lib.common.utils.Log_OC;
-import com.owncloud.android.lib.resources.files.FileUtils;
 import com.owncloud.android.operations.UploadFileOperation;
 import com.owncloud.android.ui.activity.FileActivity;
 import com.owncloud.android.ui.activity.UploadListActivity;
 import com.owncloud.android.ui.notifications.NotificationUtils;
 import com.owncloud.android.utils.ConnectivityUtils;
 import com.owncloud.android.utils.ErrorMessageAdapter;
+import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.PowerUtils;
 import com.owncloud.android.utils.ThemeUtils;
 
 import java.io.File;
 import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -98,7 +108,7 @@ import androidx.core.app.NotificationCompat;
  * However, Intent keys (e.g., KEY_WIFI_ONLY) are obeyed.
  */
 public class FileUploader extends Service
-        implements OnDatatransferProgressListener, OnAccountsUpdateListener, UploadFileOperation.OnRenameListener {
+        implements OnAccountsUpdateListener {
 
     private static final String TAG = FileUploader.class.getSimpleName();
 
@@ -114,6 +124,10 @@ public class FileUploader extends Service
 
     private static final int FOREGROUND_SERVICE_ID = 411;
 
+    private static final int MSG_UPLOADS_REQUESTED = 0;
+    private static final int MSG_UPLOAD_FINISHED = 1;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
     public static final String KEY_FILE = "FILE";
     public static final String KEY_LOCAL_FILE = "LOCAL_FILE";
     public static final String KEY_REMOTE_FILE = "REMOTE_FILE";
@@ -169,23 +183,30 @@ public class FileUploader extends Service
 
     private Looper mServiceLooper;
     private ServiceHandler mServiceHandler;
+    private ThreadPoolExecutor mUploadExecutor;
     private IBinder mBinder;
-    private OwnCloudClient mUploadClient;
-    private Account mCurrentAccount;
-    private FileDataStorageManager mStorageManager;
     //since there can be only one instance of an Android service, there also just one db connection.
     private UploadsStorageManager mUploadsStorageManager;
 
     private IndexedForest<UploadFileOperation> mPendingUploads = new IndexedForest<>();
 
     /**
-     * {@link UploadFileOperation} object of ongoing upload. Can be null. Note: There can only be one concurrent upload!
+     * Ongoing uploads by upload key. Up to {@link #mMaxConcurrentUploads} run at once, and up to
+     * {@link #mMaxConcurrentUploadsPerAccount} of them for the same account.
      */
-    private UploadFileOperation mCurrentUpload;
+    private final Map<String, UploadFileOperation> mActiveUploads = new ConcurrentHashMap<>();
+    private int mMaxConcurrentUploads;
+    private int mMaxConcurrentUploadsPerAccount;
+    private final Object mClientLock = new Object();
 
     private NotificationManager mNotificationManager;
     private NotificationCompat.Builder mNotificationBuilder;
-    private int mLastPercent;
+
+    /**
+     * Progress of the ongoing uploads in the order they started; the progress notification shows the oldest one.
+     * Guarded by this.
+     */
+    private final Map<UploadFileOperation, Integer> mUploadProgress = new LinkedHashMap<>();
 
     public static String getUploadsAddedMessage() {
         return FileUploader.class.getName() + UPLOADS_ADDED_MESSAGE;
@@ -199,10 +220,9 @@ public class FileUploader extends Service
         return FileUploader.class.getName() + UPLOAD_FINISH_MESSAGE;
     }
 
-    @Override
-    public void onRenameUpload() {
-        mUploadsStorageManager.updateDatabaseUploadStart(mCurrentUpload);
-        sendBroadcastUploadStarted(mCurrentUpload);
+    private void onRenameUpload(UploadFileOperation upload) {
+        mUploadsStorageManager.updateDatabaseUploadStart(upload);
+        sendBroadcastUploadStarted(upload);
     }
 
     /**
@@ -460,6 +480,13 @@ public class FileUploader extends Service
         mServiceHandler = new ServiceHandler(mServiceLooper, this);
         mBinder = new FileUploaderBinder();
 
+        mMaxConcurrentUploads = Math.max(1, PreferenceManager.getMaxConcurrentUploads(this));
+        mMaxConcurrentUploadsPerAccount = Math.max(1, PreferenceManager.getMaxConcurrentUploadsPerAccount(this));
+        mUploadExecutor = new ThreadPoolExecutor(mMaxConcurrentUploads, mMaxConcurrentUploads,
+                                                 WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                 new LinkedBlockingQueue<>());
+        mUploadExecutor.allowCoreThreadTimeOut(true);
+
         mUploadsStorageManager = new UploadsStorageManager(getContentResolver(), getApplicationContext());
 
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this).setContentTitle(
@@ -505,7 +532,12 @@ public class FileUploader extends Service
         mServiceHandler = null;
         mServiceLooper.quit();
         mServiceLooper = null;
-        mNotificationManager = null;
+        // ongoing uploads are cancelled and retried later as any other interrupted upload; the notification manager
+        // is kept, as their workers may still report before they stop
+        for (UploadFileOperation upload : mActiveUploads.values()) {
+            upload.cancel();
+        }
+        mUploadExecutor.shutdownNow();
 
         // remove AccountsUpdatedListener
         AccountManager am = AccountManager.get(getApplicationContext());
@@ -640,10 +672,7 @@ public class FileUploader extends Service
                     if (isCreateRemoteFolder) {
                         newUpload.setRemoteFolderToBeCreated();
                     }
-                    newUpload.addDataTransferProgressListener(this);
-                    newUpload.addDataTransferProgressListener((FileUploaderBinder) mBinder);
-
-                    newUpload.addRenameUploadListener(this);
+                    addListeners(newUpload);
 
                     Pair<String, String> putResult = mPendingUploads.putIfAbsent(
                             account.name,
@@ -695,10 +724,7 @@ public class FileUploader extends Service
                     whileChargingOnly
             );
 
-            newUpload.addDataTransferProgressListener(this);
-            newUpload.addDataTransferProgressListener((FileUploaderBinder) mBinder);
-
-            newUpload.addRenameUploadListener(this);
+            addListeners(newUpload);
 
             Pair<String, String> putResult = mPendingUploads.putIfAbsent(
                     account.name,
@@ -717,7 +743,7 @@ public class FileUploader extends Service
         // *** TODO REWRITE END ***/
 
         if (requestedUploads.size() > 0) {
-            Message msg = mServiceHandler.obtainMessage();
+            Message msg = mServiceHandler.obtainMessage(MSG_UPLOADS_REQUESTED);
             msg.arg1 = startId;
             msg.obj = requestedUploads;
             mServiceHandler.sendMessage(msg);
@@ -726,6 +752,18 @@ public class FileUploader extends Service
         return Service.START_NOT_STICKY;
     }
 
+    /**
+     * Reports the progress and renaming of an upload as events of that upload, as several may be ongoing.
+     */
+    private void addListeners(final UploadFileOperation upload) {
+        final FileUploaderBinder binder = (FileUploaderBinder) mBinder;
+        upload.addDataTransferProgressListener((progressRate, totalTransferredSoFar, totalToTransfer, fileName) -> {
+            onTransferProgress(upload, totalTransferredSoFar, totalToTransfer);
+            binder.onTransferProgress(upload, progressRate, totalTransferredSoFar, totalToTransfer, fileName);
+        });
+        upload.addRenameUploadListener(() -> onRenameUpload(upload));
+    }
+
     /**
      * Provides a binder object that clients can use to perform operations on
      * the queue of uploads, excepting the addition of new files.
@@ -749,10 +787,11 @@ public class FileUploader extends Service
 
     @Override
     public void onAccountsUpdated(Account[] accounts) {
-        // Review current upload, and cancel it if its account doen't exist
-        if (mCurrentUpload != null &&
-                !AccountUtils.exists(mCurrentUpload.getAccount(), getApplicationContext())) {
-            mCurrentUpload.cancel();
+        // Review current uploads, and cancel those whose account doesn't exist
+        for (UploadFileOperation upload : mActiveUploads.values()) {
+            if (!AccountUtils.exists(upload.getAccount(), getApplicationContext())) {
+                upload.cancel();
+            }
         }
         // The rest of uploads are cancelled when they try to start
     }
@@ -762,13 +801,13 @@ public class FileUploader extends Service
      *
      * It provides by itself the available operations.
      */
-    public class FileUploaderBinder extends Binder implements OnDatatransferProgressListener {
+    public class FileUploaderBinder extends Binder {
 
         /**
          * Map of listeners that will be reported about progress of uploads from a
          * {@link FileUploaderBinder} instance
          */
-        private Map<String, OnDatatransferProgressListener> mBoundListeners = new HashMap<>();
+        private Map<String, OnDatatransferProgressListener> mBoundListeners = new ConcurrentHashMap<>();
 
         /**
          * Cancels a pending or current upload of a remote file.
@@ -802,12 +841,14 @@ public class FileUploader extends Service
             Pair<UploadFileOperation, String> removeResult =
                     mPendingUploads.remove(accountName, remotePath);
             UploadFileOperation upload = removeResult.first;
-            if (upload == null &&
-                    mCurrentUpload != null && mCurrentAccount != null &&
-                    mCurrentUpload.getRemotePath().startsWith(remotePath) &&
-                    accountName.equals(mCurrentAccount.name)) {
-
-                upload = mCurrentUpload;
+            if (upload == null) {
+                for (UploadFileOperation activeUpload : mActiveUploads.values()) {
+                    if (activeUpload.getRemotePath().startsWith(remotePath) &&
+                            accountName.equals(activeUpload.getAccount().name)) {
+                        upload = activeUpload;
+                        break;
+                    }
+                }
             }
 
             if (upload != null) {
@@ -831,10 +872,10 @@ public class FileUploader extends Service
         public void cancel(Account account) {
             Log_OC.d(TAG, "Account= " + account.name);
 
-            if (mCurrentUpload != null) {
-                Log_OC.d(TAG, "Current Upload Account= " + mCurrentUpload.getAccount().name);
-                if (mCurrentUpload.getAccount().name.equals(account.name)) {
-                    mCurrentUpload.cancel();
+            for (UploadFileOperation upload : mActiveUploads.values()) {
+                if (upload.getAccount().name.equals(account.name)) {
+                    Log_OC.d(TAG, "Cancelling current upload " + upload.getRemotePath());
+                    upload.cancel();
                 }
             }
             // Cancel pending uploads
@@ -867,13 +908,16 @@ public class FileUploader extends Service
         }
 
         public boolean isUploadingNow(OCUpload upload) {
-            return
-                    upload != null &&
-                            mCurrentAccount != null &&
-                            mCurrentUpload != null &&
-                            upload.getAccountName().equals(mCurrentAccount.name) &&
-                            upload.getRemotePath().equals(mCurrentUpload.getRemotePath())
-            ;
+            if (upload == null) {
+                return false;
+            }
+            for (UploadFileOperation activeUpload : mActiveUploads.values()) {
+                if (upload.getAccountName().equals(activeUpload.getAccount().name) &&
+                        upload.getRemotePath().equals(activeUpload.getRemotePath())) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         /**
@@ -952,27 +996,26 @@ public class FileUploader extends Service
             }
         }
 
-        @Override
-        public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                       long totalToTransfer, String fileName) {
-            String key = buildRemoteName(mCurrentUpload.getAccount().name, mCurrentUpload.getFile().getRemotePath());
+        private void onTransferProgress(UploadFileOperation upload, long progressRate, long totalTransferredSoFar,
+                                        long totalToTransfer, String fileName) {
+            String key = buildRemoteName(upload.getAccount().name, upload.getFile().getRemotePath());
             OnDatatransferProgressListener boundListener = mBoundListeners.get(key);
             if (boundListener != null) {
                 boundListener.onTransferProgress(progressRate, totalTransferredSoFar,
                         totalToTransfer, fileName);
 
                 if (MainApp.getAppContext() != null) {
-                    if (mCurrentUpload.isWifiRequired() && !Device.getNetworkType(MainApp.getAppContext()).
+                    if (upload.isWifiRequired() && !Device.getNetworkType(MainApp.getAppContext()).
                             equals(JobRequest.NetworkType.UNMETERED)) {
-                        cancel(mCurrentUpload.getAccount().name, mCurrentUpload.getFile().getRemotePath()
+                        cancel(upload.getAccount().name, upload.getFile().getRemotePath()
                                 , ResultCode.DELAYED_FOR_WIFI);
-                    } else if (mCurrentUpload.isChargingRequired() &&
+                    } else if (upload.isChargingRequired() &&
                             !Device.getBatteryStatus(MainApp.getAppContext()).isCharging()) {
-                        cancel(mCurrentUpload.getAccount().name, mCurrentUpload.getFile().getRemotePath()
+                        cancel(upload.getAccount().name, upload.getFile().getRemotePath()
                                 , ResultCode.DELAYED_FOR_CHARGING);
-                    } else if (!mCurrentUpload.isIgnoringPowerSaveMode() &&
+                    } else if (!upload.isIgnoringPowerSaveMode() &&
                             PowerUtils.isPowerSaveMode(MainApp.getAppContext())) {
-                        cancel(mCurrentUpload.getAccount().name, mCurrentUpload.getFile().getRemotePath()
+                        cancel(upload.getAccount().name, upload.getFile().getRemotePath()
                                 , ResultCode.DELAYED_IN_POWER_SAVE_MODE);
                     }
                 }
@@ -997,17 +1040,34 @@ public class FileUploader extends Service
 
 
     /**
-     * Upload worker. Performs the pending uploads in the order they were
-     * requested.
+     * Upload dispatcher. Hands the pending uploads in the order they were
+     * requested to the upload workers, as long as the limits of concurrent
+     * uploads allow it, and stops the service once all of them finished.
      *
      * Created with the Looper of a new thread, started in
-     * {@link FileUploader#onCreate()}.
+     * {@link FileUploader#onCreate()}. The queue of requested uploads and the
+     * counters of ongoing uploads are only accessed from this thread.
      */
     private static class ServiceHandler extends Handler {
         // don't make it a final class, and don't remove the static ; lint will
         // warn about a possible memory leak
         FileUploader mService;
 
+        private final Deque<String> mRequestedUploads = new ArrayDeque<>();
+        private final Map<String, Integer> mActiveUploadsPerAccount = new HashMap<>();
+
+        /**
+         * Encrypted parent folder of each requested upload, by upload key; empty for uploads not encrypted.
+         */
+        private final Map<String, String> mEncryptedFolders = new HashMap<>();
+
+        /**
+         * Encrypted folders an upload is running into. Such an upload locks the folder and rewrites its metadata, so
+         * uploads into the same encrypted folder run one after the other.
+         */
+        private final Set<String> mBusyEncryptedFolders = new HashSet<>();
+        private int mLastStartId;
+
         public ServiceHandler(Looper looper, FileUploader service) {
             super(looper);
             if (service == null) {
@@ -1018,141 +1078,253 @@ public class FileUploader extends Service
 
         @Override
         public void handleMessage(Message msg) {
-            @SuppressWarnings("unchecked")
-            AbstractList<String> requestedUploads = (AbstractList<String>) msg.obj;
-            if (msg.obj != null) {
-                Iterator<String> it = requestedUploads.iterator();
-                while (it.hasNext()) {
-                    mService.uploadFile(it.next());
-                }
+            switch (msg.what) {
+                case MSG_UPLOADS_REQUESTED:
+                    @SuppressWarnings("unchecked")
+                    AbstractList<String> requestedUploads = (AbstractList<String>) msg.obj;
+                    if (requestedUploads != null) {
+                        mRequestedUploads.addAll(requestedUploads);
+                    }
+                    mLastStartId = msg.arg1;
+                    break;
+
+                case MSG_UPLOAD_FINISHED:
+                    String uploadKey = (String) msg.obj;
+                    String encryptedFolder = mEncryptedFolders.remove(uploadKey);
+                    if (encryptedFolder != null) {
+                        mBusyEncryptedFolders.remove(encryptedFolder);
+                    }
+
+                    UploadFileOperation upload = mService.mActiveUploads.remove(uploadKey);
+                    if (upload != null) {
+                        String accountName = upload.getAccount().name;
+                        Integer active = mActiveUploadsPerAccount.get(accountName);
+                        if (active == null || active <= 1) {
+                            mActiveUploadsPerAccount.remove(accountName);
+                        } else {
+                            mActiveUploadsPerAccount.put(accountName, active - 1);
+                        }
+                    }
+                    break;
+
+                default:
+                    break;
             }
-            Log_OC.d(TAG, "Stopping command after id " + msg.arg1);
-            mService.stopForeground(true);
-            mService.stopSelf(msg.arg1);
 
+            dispatch();
+
+            if (mRequestedUploads.isEmpty() && mService.mActiveUploads.isEmpty()) {
+                Log_OC.d(TAG, "Stopping command after id " + mLastStartId);
+                mService.stopForeground(true);
+                mService.stopSelf(mLastStartId);
+            }
         }
-    }
 
-    /**
-     * Core upload method: sends the file(s) to upload
-     *
-     * @param uploadKey Key to access the upload to perform, contained in mPendingUploads
-     */
-    public void uploadFile(String uploadKey) {
+        /**
+         * Starts the first requested uploads whose account has not reached the limit of concurrent uploads, until the
+         * global limit is reached.
+         */
+        private void dispatch() {
+            Iterator<String> it = mRequestedUploads.iterator();
+            while (mService.mActiveUploads.size() < mService.mMaxConcurrentUploads && it.hasNext()) {
+                final String uploadKey = it.next();
+                final UploadFileOperation upload = mService.mPendingUploads.get(uploadKey);
+                if (upload == null) {
+                    // cancelled while waiting
+                    it.remove();
+                    if (!mService.mActiveUploads.containsKey(uploadKey)) {
+                        mEncryptedFolders.remove(uploadKey);
+                    }
+                    continue;
+                }
+                if (mService.mActiveUploads.containsKey(uploadKey)) {
+                    // requested again while the previous upload of the file finishes
+                    continue;
+                }
 
-        mCurrentUpload = mPendingUploads.get(uploadKey);
+                String accountName = upload.getAccount().name;
+                Integer active = mActiveUploadsPerAccount.get(accountName);
+                if (active != null && active >= mService.mMaxConcurrentUploadsPerAccount) {
+                    continue;
+                }
 
-        if (mCurrentUpload != null) {
+                String encryptedFolder = getEncryptedFolder(uploadKey, upload);
+                if (!encryptedFolder.isEmpty() && !mBusyEncryptedFolders.add(encryptedFolder)) {
+                    continue;
+                }
 
-            /// Check account existence
-            if (!AccountUtils.exists(mCurrentUpload.getAccount(), this)) {
-                Log_OC.w(TAG, "Account " + mCurrentUpload.getAccount().name +
-                        " does not exist anymore -> cancelling all its uploads");
-                cancelUploadsForAccount(mCurrentUpload.getAccount());
-                return;
+                it.remove();
+                mActiveUploadsPerAccount.put(accountName, active == null ? 1 : active + 1);
+                mService.mActiveUploads.put(uploadKey, upload);
+
+                mService.mUploadExecutor.execute(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    try {
+                        mService.uploadFile(upload);
+                    } finally {
+                        sendMessage(obtainMessage(MSG_UPLOAD_FINISHED, uploadKey));
+                    }
+                });
             }
+        }
 
-            /// OK, let's upload
-            mUploadsStorageManager.updateDatabaseUploadStart(mCurrentUpload);
+        /**
+         * @return key of the end-to-end encrypted folder the upload goes into, empty if the upload is not encrypted
+         */
+        private String getEncryptedFolder(String uploadKey, UploadFileOperation upload) {
+            String encryptedFolder = mEncryptedFolders.get(uploadKey);
+            if (encryptedFolder != null) {
+                return encryptedFolder;
+            }
+
+            encryptedFolder = "";
+            FileDataStorageManager storageManager = new FileDataStorageManager(upload.getAccount(),
+                                                                               mService.getContentResolver());
+            String parentPath = new File(upload.getRemotePath()).getParent();
 
-            notifyUploadStart(mCurrentUpload);
+            // folders still to be created inherit the encryption of their nearest known ancestor
+            OCFile ancestor = null;
+            for (String path = parentPath; ancestor == null && path != null; path = new File(path).getParent()) {
+                ancestor = storageManager.getFileByPath(path.endsWith(OCFile.PATH_SEPARATOR) ?
+                                                            path : path + OCFile.PATH_SEPARATOR);
+            }
 
-            sendBroadcastUploadStarted(mCurrentUpload);
+            if (ancestor != null && FileStorageUtils.checkEncryptionStatus(ancestor, storageManager)) {
+                encryptedFolder = upload.getAccount().name + parentPath;
+            }
 
-            RemoteOperationResult uploadResult = null;
+            mEncryptedFolders.put(uploadKey, encryptedFolder);
+            return encryptedFolder;
+        }
+    }
 
-            try {
-                /// prepare client object to send the request to the ownCloud server
-                if (mCurrentAccount == null || !mCurrentAccount.equals(mCurrentUpload.getAccount())) {
-                    mCurrentAccount = mCurrentUpload.getAccount();
-                    mStorageManager = new FileDataStorageManager(
-                            mCurrentAccount,
-                            getContentResolver()
-                    );
-                }   // else, reuse storage manager from previous operation
+    /**
+     * Core upload method: sends the file(s) to upload. Runs on an upload worker, concurrently with the uploads of
+     * other files.
+     *
+     * @param upload Upload to perform, contained in mPendingUploads
+     */
+    private void uploadFile(UploadFileOperation upload) {
+        Account account = upload.getAccount();
 
-                // always get client from client manager, to get fresh credentials in case of update
-                OwnCloudAccount ocAccount = new OwnCloudAccount(
-                        mCurrentAccount,
-                        this
-                );
-                mUploadClient = OwnCloudClientManagerFactory.getDefaultSingleton().
-                        getClientFor(ocAccount, this);
+        /// Check account existence
+        if (!AccountUtils.exists(account, this)) {
+            Log_OC.w(TAG, "Account " + account.name +
+                    " does not exist anymore -> cancelling all its uploads");
+            cancelUploadsForAccount(account);
+            return;
+        }
 
+        /// OK, let's upload
+        mUploadsStorageManager.updateDatabaseUploadStart(upload);
 
-//                // If parent folder is encrypted, upload file encrypted
-//                OCFile parent = mStorageManager.getFileByPath(mCurrentUpload.getFile().getParentRemotePath());
+        notifyUploadStart(upload);
 
-//                if (parent.isEncrypted()) {
-//                    UploadEncryptedFileOperation uploadEncryptedFileOperation =
-//                            new UploadEncryptedFileOperation(parent, mCurrentUpload);
-//
-//                    uploadResult = uploadEncryptedFileOperation.execute(mUploadClient, mStorageManager);
-//                } else {
-                    /// perform the regular upload
-                    uploadResult = mCurrentUpload.execute(mUploadClient, mStorageManager);
-//                }
+        sendBroadcastUploadStarted(upload);
 
+        RemoteOperationResult uploadResult = null;
+        FileDataStorageManager storageManager = new FileDataStorageManager(account, getContentResolver());
 
-            } catch (Exception e) {
-                Log_OC.e(TAG, "Error uploading", e);
-                uploadResult = new RemoteOperationResult(e);
-
-            } finally {
-                Pair<UploadFileOperation, String> removeResult;
-                if (mCurrentUpload.wasRenamed()) {
-                    removeResult = mPendingUploads.removePayload(
-                            mCurrentAccount.name,
-                            mCurrentUpload.getOldFile().getRemotePath()
-                    );
-                    // TODO: grant that name is also updated for mCurrentUpload.getOCUploadId
+        try {
+            // always get client from client manager, to get fresh credentials in case of update
+            OwnCloudAccount ocAccount = new OwnCloudAccount(account, this);
+            OwnCloudClient uploadClient;
+            synchronized (mClientLock) {
+                uploadClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount, this);
+            }
 
-                } else {
-                    removeResult = mPendingUploads.removePayload(mCurrentAccount.name,
-                            mCurrentUpload.getDecryptedRemotePath());
-                }
+            /// perform the regular upload
+            uploadResult = upload.execute(uploadClient, storageManager);
 
-                mUploadsStorageManager.updateDatabaseUploadResult(uploadResult, mCurrentUpload);
+        } catch (Exception e) {
+            Log_OC.e(TAG, "Error uploading", e);
+            uploadResult = new RemoteOperationResult(e);
 
-                /// notify result
-                notifyUploadResult(mCurrentUpload, uploadResult);
+        } finally {
+            Pair<UploadFileOperation, String> removeResult;
+            if (upload.wasRenamed()) {
+                removeResult = mPendingUploads.removePayload(
+                        account.name,
+                        upload.getOldFile().getRemotePath()
+                );
+                // TODO: grant that name is also updated for upload.getOCUploadId
 
-                sendBroadcastUploadFinished(mCurrentUpload, uploadResult, removeResult.second);
+            } else {
+                removeResult = mPendingUploads.removePayload(account.name, upload.getDecryptedRemotePath());
             }
 
-            // generate new Thumbnail
-            final ThumbnailsCacheManager.ThumbnailGenerationTask task =
-                    new ThumbnailsCacheManager.ThumbnailGenerationTask(mStorageManager, mCurrentAccount);
+            mUploadsStorageManager.updateDatabaseUploadResult(uploadResult, upload);
 
-            File file = new File(mCurrentUpload.getOriginalStoragePath());
-            String remoteId = mCurrentUpload.getFile().getRemoteId();
+            /// notify result
+            notifyUploadResult(upload, uploadResult);
 
-            task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
+            sendBroadcastUploadFinished(upload, uploadResult, removeResult.second);
         }
+
+        // generate new Thumbnail
+        final ThumbnailsCacheManager.ThumbnailGenerationTask task =
+                new ThumbnailsCacheManager.ThumbnailGenerationTask(storageManager, account);
+
+        File file = new File(upload.getOriginalStoragePath());
+        String remoteId = upload.getFile().getRemoteId();
+
+        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId));
     }
 
 
     /**
-     * Creates a status notification to show the upload progress
+     * Creates a status notification to show the upload progress, unless another upload is already shown
      *
      * @param upload Upload operation starting.
      */
-    private void notifyUploadStart(UploadFileOperation upload) {
+    private synchronized void notifyUploadStart(UploadFileOperation upload) {
+        mUploadProgress.put(upload, 0);
+        if (mUploadProgress.size() == 1) {
+            showUploadProgress(upload, 0);
+        }
+    }
+
+    /**
+     * Shows the progress of an upload in the status notification
+     *
+     * @param upload  Ongoing upload operation.
+     * @param percent Progress of the upload.
+     */
+    private void showUploadProgress(UploadFileOperation upload, int percent) {
         // / create status notification with a progress bar
-        mLastPercent = 0;
-        mNotificationBuilder = NotificationUtils.newNotificationBuilder(this);
+        mNotificationBuilder = newNotificationBuilder(upload);
         mNotificationBuilder
                 .setOngoing(true)
-                .setSmallIcon(R.drawable.notification_icon)
                 .setTicker(getString(R.string.uploader_upload_in_progress_ticker))
                 .setContentTitle(getString(R.string.uploader_upload_in_progress_ticker))
-                .setProgress(100, 0, false)
+                .setProgress(100, percent, false)
                 .setContentText(
-                        String.format(getString(R.string.uploader_upload_in_progress_content), 0, upload.getFileName())
+                        String.format(getString(R.string.uploader_upload_in_progress_content), percent,
+                                      upload.getFileName())
                 );
 
+        if (percent > 0 || !upload.isInstantPicture() && !upload.isInstantVideo()) {
+            if (mNotificationManager == null) {
+                mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+            }
+
+            mNotificationManager.notify(R.string.uploader_upload_in_progress_ticker, mNotificationBuilder.build());
+        }   // else wait until the upload really start (onTransferProgress is called), so that if it's discarded
+        // due to lack of Wifi, no notification is shown
+        // TODO generalize for automated uploads
+    }
+
+    /**
+     * Creates a notification builder whose notification shows the details of an upload
+     *
+     * @param upload Upload operation.
+     */
+    private NotificationCompat.Builder newNotificationBuilder(UploadFileOperation upload) {
+        NotificationCompat.Builder notificationBuilder = NotificationUtils.newNotificationBuilder(this);
+        notificationBuilder.setSmallIcon(R.drawable.notification_icon);
+
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            mNotificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD);
+            notificationBuilder.setChannelId(NotificationUtils.NOTIFICATION_CHANNEL_UPLOAD);
         }
 
         /// includes a pending intent in the notification showing the details
@@ -1160,35 +1332,36 @@ public class FileUploader extends Service
         showUploadListIntent.putExtra(FileActivity.EXTRA_FILE, upload.getFile());
         showUploadListIntent.putExtra(FileActivity.EXTRA_ACCOUNT, upload.getAccount());
         showUploadListIntent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
+        notificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
             showUploadListIntent, 0));
 
-        if (!upload.isInstantPicture() && !upload.isInstantVideo()) {
-            if (mNotificationManager == null) {
-                mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-            }
-
-            mNotificationManager.notify(R.string.uploader_upload_in_progress_ticker, mNotificationBuilder.build());
-        }   // else wait until the upload really start (onTransferProgress is called), so that if it's discarded
-        // due to lack of Wifi, no notification is shown
-        // TODO generalize for automated uploads
+        return notificationBuilder;
     }
 
     /**
-     * Callback method to update the progress bar in the status notification
+     * Callback method to update the progress bar in the status notification, if the upload is shown
      */
-    @Override
-    public void onTransferProgress(long progressRate, long totalTransferredSoFar,
-                                   long totalToTransfer, String filePath) {
+    private synchronized void onTransferProgress(UploadFileOperation upload, long totalTransferredSoFar,
+                                                 long totalToTransfer) {
         int percent = (int) (100.0 * ((double) totalTransferredSoFar) / ((double) totalToTransfer));
-        if (percent != mLastPercent) {
-            mNotificationBuilder.setProgress(100, percent, false);
-            String fileName = filePath.substring(filePath.lastIndexOf(FileUtils.PATH_SEPARATOR) + 1);
-            String text = String.format(getString(R.string.uploader_upload_in_progress_content), percent, fileName);
-            mNotificationBuilder.setContentText(text);
-            mNotificationManager.notify(R.string.uploader_upload_in_progress_ticker, mNotificationBuilder.build());
+        Integer lastPercent = mUploadProgress.get(upload);
+        if (lastPercent == null || percent == lastPercent) {
+            return;
+        }
+        mUploadProgress.put(upload, percent);
+
+        if (mUploadProgress.keySet().iterator().next() == upload) {
+            if (lastPercent == 0) {
+                // automated uploads are shown once they really started
+                showUploadProgress(upload, percent);
+            } else {
+                mNotificationBuilder.setProgress(100, percent, false);
+                String text = String.format(getString(R.string.uploader_upload_in_progress_content), percent,
+                                            upload.getFileName());
+                mNotificationBuilder.setContentText(text);
+                mNotificationManager.notify(R.string.uploader_upload_in_progress_ticker, mNotificationBuilder.build());
+            }
         }
-        mLastPercent = percent;
     }
 
     /**
@@ -1197,15 +1370,22 @@ public class FileUploader extends Service
      * @param uploadResult Result of the upload operation.
      * @param upload       Finished upload operation
      */
-    private void notifyUploadResult(UploadFileOperation upload,
-                                    RemoteOperationResult uploadResult) {
+    private synchronized void notifyUploadResult(UploadFileOperation upload,
+                                                 RemoteOperationResult uploadResult) {
         Log_OC.d(TAG, "NotifyUploadResult with resultCode: " + uploadResult.getCode());
         // cancelled operation or success -> silent removal of progress notification
         if (mNotificationManager == null) {
             mNotificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         }
 
-        mNotificationManager.cancel(R.string.uploader_upload_in_progress_ticker);
+        mUploadProgress.remove(upload);
+        if (mUploadProgress.isEmpty()) {
+            mNotificationManager.cancel(R.string.uploader_upload_in_progress_ticker);
+        } else {
+            // show the progress of the oldest upload still running
+            Map.Entry<UploadFileOperation, Integer> next = mUploadProgress.entrySet().iterator().next();
+            showUploadProgress(next.getKey(), next.getValue());
+        }
 
         // Show the result: success or fail notification
         if (!uploadResult.isCancelled() &&
@@ -1224,7 +1404,8 @@ public class FileUploader extends Service
             boolean needsToUpdateCredentials = ResultCode.UNAUTHORIZED.equals(uploadResult.getCode());
             tickerId = needsToUpdateCredentials ? R.string.uploader_upload_failed_credentials_error : tickerId;
 
-            mNotificationBuilder
+            NotificationCompat.Builder notificationBuilder = newNotificationBuilder(upload);
+            notificationBuilder
                     .setTicker(getString(tickerId))
                     .setContentTitle(getString(tickerId))
                     .setAutoCancel(true)
@@ -1247,7 +1428,7 @@ public class FileUploader extends Service
                 updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 updateAccountCredentials.addFlags(Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
                 updateAccountCredentials.addFlags(Intent.FLAG_FROM_BACKGROUND);
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(
                         this,
                         (int) System.currentTimeMillis(),
                         updateAccountCredentials,
@@ -1255,7 +1436,7 @@ public class FileUploader extends Service
                 ));
 
             } else {
-                mNotificationBuilder.setContentText(content);
+                notificationBuilder.setContentText(content);
             }
 
             if (!uploadResult.isSuccess() && !needsToUpdateCredentials ) {
@@ -1264,12 +1445,12 @@ public class FileUploader extends Service
                 showUploadListIntent.putExtra(FileActivity.EXTRA_FILE, upload.getFile());
                 showUploadListIntent.putExtra(FileActivity.EXTRA_ACCOUNT, upload.getAccount());
                 showUploadListIntent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-                mNotificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
+                notificationBuilder.setContentIntent(PendingIntent.getActivity(this, (int) System.currentTimeMillis(),
                         showUploadListIntent, 0));
             }
 
-            mNotificationBuilder.setContentText(content);
-            mNotificationManager.notify(tickerId, mNotificationBuilder.build());
+            notificationBuilder.setContentText(content);
+            mNotificationManager.notify(tickerId, notificationBuilder.build());
 
             if (uploadResult.isSuccess()) {
                 mPendingUploads.remove(upload.getAccount().name, upload.getFile().getRemotePath());
@@ -46,12 +46,20 @@ import com.owncloud.android.operations.UploadFileOperation;
 import com.owncloud.android.services.OperationsService;
 import com.owncloud.android.ui.activity.ContactsPreferenceActivity;
 
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Calendar;
 import java.util.List;
 
@@ -65,6 +73,15 @@ public class ContactsBackupJob extends Job {
     public static final String TAG = "ContactsBackupJob";
     public static final String ACCOUNT = "account";
     public static final String FORCE = "force";
+
+    private static final String PREFERENCE_CONTACTS_BACKUP_HASH = "PREFERENCE_CONTACTS_BACKUP_HASH";
+    private static final String PREFERENCE_CONTACTS_BACKUP_REMOTE_PATH = "PREFERENCE_CONTACTS_BACKUP_REMOTE_PATH";
+    private static final String PREFERENCE_CONTACTS_BACKUP_PROGRESS = "PREFERENCE_CONTACTS_BACKUP_PROGRESS";
+    private static final String PROGRESS_SEPARATOR = ":";
+    private static final int PROGRESS_INTERVAL = 100;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
     private OperationsServiceConnection operationsServiceConnection;
     private OperationsService.OperationsServiceBinder operationsServiceBinder;
 
@@ -90,7 +107,7 @@ public class ContactsBackupJob extends Job {
                     OCFile.PATH_SEPARATOR;
             Integer daysToExpire = getContext().getResources().getInteger(R.integer.contacts_backup_expire);
 
-            backupContact(account, backupFolder);
+            boolean backedUp = backupContact(account, backupFolder, force);
 
             // bind to Operations Service
             operationsServiceConnection = new OperationsServiceConnection(daysToExpire, backupFolder, account);
@@ -98,10 +115,12 @@ public class ContactsBackupJob extends Job {
             getContext().bindService(new Intent(getContext(), OperationsService.class), operationsServiceConnection,
                     OperationsService.BIND_AUTO_CREATE);
 
-            // store execution date
-            arbitraryDataProvider.storeOrUpdateKeyValue(account.name,
-                    ContactsPreferenceActivity.PREFERENCE_CONTACTS_LAST_BACKUP,
-                    String.valueOf(Calendar.getInstance().getTimeInMillis()));
+            // store execution date, an interrupted backup is continued with the next run
+            if (backedUp) {
+                arbitraryDataProvider.storeOrUpdateKeyValue(account.name,
+                        ContactsPreferenceActivity.PREFERENCE_CONTACTS_LAST_BACKUP,
+                        String.valueOf(Calendar.getInstance().getTimeInMillis()));
+            }
         } else {
             Log_OC.d(TAG, "last execution less than 24h ago");
         }
@@ -109,49 +128,105 @@ public class ContactsBackupJob extends Job {
         return Result.SUCCESS;
     }
 
-    private void backupContact(Account account, String backupFolder) {
-        ArrayList<String> vCard = new ArrayList<>();
-
-        Cursor cursor = getContext().getContentResolver().query(ContactsContract.Contacts.CONTENT_URI, null,
-                null, null, null);
+    /**
+     * Streams the vCards of all contacts into a file in the cache folder and uploads it, unless the contacts did not
+     * change since the last backup. The progress is recorded regularly, so that an interrupted backup continues the
+     * same file with the contacts not written yet.
+     *
+     * @return false if the backup was interrupted
+     */
+    private boolean backupContact(Account account, String backupFolder, boolean force) {
+        ArbitraryDataProvider arbitraryDataProvider = new ArbitraryDataProvider(getContext().getContentResolver());
 
-        if (cursor != null && cursor.getCount() > 0) {
-            cursor.moveToFirst();
-            for (int i = 0; i < cursor.getCount(); i++) {
+        String filename = null;
+        long lastContactId = -1;
+        long writtenBytes = 0;
 
-                vCard.add(getContactFromCursor(cursor));
-                cursor.moveToNext();
+        String[] progress = arbitraryDataProvider.getValue(account, PREFERENCE_CONTACTS_BACKUP_PROGRESS)
+                .split(PROGRESS_SEPARATOR);
+        if (progress.length == 3) {
+            try {
+                lastContactId = Long.parseLong(progress[1]);
+                writtenBytes = Long.parseLong(progress[2]);
+                filename = progress[0];
+            } catch (NumberFormatException e) {
+                Log_OC.e(TAG, "Invalid backup progress, starting over", e);
             }
         }
 
-        String filename = DateFormat.format("yyyy-MM-dd_HH-mm-ss", Calendar.getInstance()).toString() + ".vcf";
-        Log_OC.d(TAG, "Storing: " + filename);
-        File file = new File(getContext().getCacheDir(), filename);
+        File file = filename == null ? null : new File(getContext().getCacheDir(), filename);
+        if (file == null || file.length() < writtenBytes) {
+            filename = DateFormat.format("yyyy-MM-dd_HH-mm-ss", Calendar.getInstance()).toString() + ".vcf";
+            file = new File(getContext().getCacheDir(), filename);
+            lastContactId = -1;
+            writtenBytes = 0;
+            Log_OC.d(TAG, "Storing: " + filename);
+        } else {
+            Log_OC.d(TAG, "Resuming: " + filename + " after contact " + lastContactId);
+        }
 
-        FileWriter fw = null;
+        MessageDigest digest;
         try {
-            fw = new FileWriter(file);
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            Log_OC.e(TAG, "Hashing backup not possible", e);
+            return false;
+        }
 
-            for (String card : vCard) {
-                fw.write(card);
+        try {
+            // drop what was written after the last recorded progress, and hash what is kept
+            try (RandomAccessFile partialFile = new RandomAccessFile(file, "rw")) {
+                partialFile.setLength(writtenBytes);
             }
-
-        } catch (IOException e) {
-            Log_OC.d(TAG, "Error ", e);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+            hashFile(file, digest);
+
+            try (Cursor cursor = getContext().getContentResolver().query(
+                    ContactsContract.Contacts.CONTENT_URI,
+                    new String[]{ContactsContract.Contacts._ID, ContactsContract.Contacts.LOOKUP_KEY},
+                    ContactsContract.Contacts._ID + " > ?",
+                    new String[]{String.valueOf(lastContactId)},
+                    ContactsContract.Contacts._ID + " ASC");
+                 OutputStream outputStream = new DigestOutputStream(
+                         new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE), digest)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteArrayOutputStream contactBuffer = new ByteArrayOutputStream(BUFFER_SIZE);
+                int writtenContacts = 0;
+
+                while (cursor != null && cursor.moveToNext()) {
+                    writtenBytes += copyContact(cursor.getString(1), outputStream, buffer, contactBuffer);
+                    lastContactId = cursor.getLong(0);
+
+                    if (++writtenContacts % PROGRESS_INTERVAL == 0) {
+                        outputStream.flush();
+                        arbitraryDataProvider.storeOrUpdateKeyValue(account.name, PREFERENCE_CONTACTS_BACKUP_PROGRESS,
+                                filename + PROGRESS_SEPARATOR + lastContactId + PROGRESS_SEPARATOR + writtenBytes);
+                    }
+                }
             }
+        } catch (IOException e) {
+            // progress is kept, the next run continues
+            Log_OC.e(TAG, "Error storing " + filename, e);
+            return false;
+        }
 
-            if (fw != null) {
-                try {
-                    fw.close();
-                } catch (IOException e) {
-                    Log_OC.d(TAG, "Error closing file writer ", e);
-                }
+        arbitraryDataProvider.deleteKeyForAccount(account.name, PREFERENCE_CONTACTS_BACKUP_PROGRESS);
+
+        String hash = new String(Hex.encodeHex(digest.digest()));
+        String lastBackup = arbitraryDataProvider.getValue(account, PREFERENCE_CONTACTS_BACKUP_REMOTE_PATH);
+        if (!force && hash.equals(arbitraryDataProvider.getValue(account, PREFERENCE_CONTACTS_BACKUP_HASH)) &&
+                !lastBackup.isEmpty() && new FileDataStorageManager(account, getContext().getContentResolver())
+                .getFileByPath(lastBackup) != null) {
+            Log_OC.d(TAG, "Contacts unchanged since " + lastBackup + ", not uploading " + filename);
+            if (!file.delete()) {
+                Log_OC.e(TAG, "Could not delete " + file.getAbsolutePath());
             }
+            return true;
         }
 
+        arbitraryDataProvider.storeOrUpdateKeyValue(account.name, PREFERENCE_CONTACTS_BACKUP_HASH, hash);
+        arbitraryDataProvider.storeOrUpdateKeyValue(account.name, PREFERENCE_CONTACTS_BACKUP_REMOTE_PATH,
+                backupFolder + filename);
+
         FileUploader.UploadRequester requester = new FileUploader.UploadRequester();
         requester.uploadNewFile(
                 getContext(),
@@ -165,6 +240,18 @@ public class ContactsBackupJob extends Job {
                 false,
                 false
         );
+
+        return true;
+    }
+
+    private static void hashFile(File file, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
     }
 
     private void expireFiles(Integer daysToExpire, String backupFolderString, Account account) {
@@ -182,8 +269,13 @@ public class ContactsBackupJob extends Job {
 
             List<OCFile> backups = storageManager.getFolderContent(backupFolder, false);
 
+            // the last backup is kept, as it is not uploaded again while the contacts are unchanged
+            String lastBackup = new ArbitraryDataProvider(getContext().getContentResolver()).getValue(account,
+                    PREFERENCE_CONTACTS_BACKUP_REMOTE_PATH);
+
             for (OCFile backup : backups) {
-                if (timestampToExpire > backup.getModificationTimestamp()) {
+                if (timestampToExpire > backup.getModificationTimestamp() &&
+                        !backup.getRemotePath().equals(lastBackup)) {
                     Log_OC.d(TAG, "delete " + backup.getRemotePath());
 
                     // delete backups
@@ -200,51 +292,48 @@ public class ContactsBackupJob extends Job {
         getContext().unbindService(operationsServiceConnection);
     }
 
-    private String getContactFromCursor(Cursor cursor) {
-        String lookupKey = cursor.getString(cursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY));
+    /**
+     * Copies the vCard of a contact to the backup. The vCard is read completely into the contact buffer first, so that
+     * a contact that cannot be read is skipped without leaving a part of it in the backup.
+     *
+     * @return number of bytes copied
+     * @throws IOException if the backup cannot be written
+     */
+    private long copyContact(String lookupKey, OutputStream outputStream, byte[] buffer,
+                             ByteArrayOutputStream contactBuffer) throws IOException {
         Uri uri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_VCARD_URI, lookupKey);
 
-        String vCard = "";
-        InputStream inputStream = null;
-        InputStreamReader inputStreamReader = null;
+        InputStream inputStream;
         try {
             inputStream = getContext().getContentResolver().openInputStream(uri);
-            char[] buffer = new char[1024];
-            StringBuilder stringBuilder = new StringBuilder();
-
-            if (inputStream != null) {
-                inputStreamReader = new InputStreamReader(inputStream);
+        } catch (IOException e) {
+            Log_OC.d(TAG, e.getMessage());
+            return 0;
+        }
 
-                while (true) {
-                    int byteCount = inputStreamReader.read(buffer, 0, buffer.length);
+        if (inputStream == null) {
+            return 0;
+        }
 
-                    if (byteCount > 0) {
-                        stringBuilder.append(buffer, 0, byteCount);
-                    } else {
-                        break;
-                    }
-                }
+        contactBuffer.reset();
+        try {
+            int count;
+            while ((count = inputStream.read(buffer)) >= 0) {
+                contactBuffer.write(buffer, 0, count);
             }
-
-            vCard = stringBuilder.toString();
-
-            return vCard;
-
         } catch (IOException e) {
             Log_OC.d(TAG, e.getMessage());
+            return 0;
         } finally {
             try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (inputStreamReader != null) {
-                    inputStreamReader.close();
-                }
+                inputStream.close();
             } catch (IOException e) {
                 Log_OC.e(TAG, "failed to close stream");
             }
         }
-        return vCard;
+
+        contactBuffer.writeTo(outputStream);
+        return contactBuffer.size();
     }
 
     /**
@@ -27,7 +27,6 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.os.Build;
 import android.os.PowerManager;
-import android.text.TextUtils;
 
 import com.evernote.android.job.Job;
 import com.evernote.android.job.util.support.PersistableBundleCompat;
@@ -35,6 +34,7 @@ import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
 import com.owncloud.android.authentication.AccountUtils;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
+import com.owncloud.android.datamodel.ExifDateReader;
 import com.owncloud.android.datamodel.FilesystemDataProvider;
 import com.owncloud.android.datamodel.MediaFolderType;
 import com.owncloud.android.datamodel.SyncedFolder;
@@ -50,14 +50,14 @@ import com.owncloud.android.utils.MimeTypeUtil;
 import com.owncloud.android.utils.PowerUtils;
 
 import java.io.File;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
-import androidx.exifinterface.media.ExifInterface;
 
 /*
     Job that:
@@ -70,6 +70,8 @@ public class FilesSyncJob extends Job {
     public static final String SKIP_CUSTOM = "skipCustom";
     public static final String OVERRIDE_POWER_SAVING = "overridePowerSaving";
     private static final String WAKELOCK_TAG_SEPARATION = ":";
+    private static final int UPLOAD_BATCH_SIZE = 500;
+    private static final long SCAN_TIMEOUT_MINUTES = 9;
 
     @NonNull
     @Override
@@ -98,7 +100,6 @@ public class FilesSyncJob extends Job {
 
         final boolean skipCustom = bundle.getBoolean(SKIP_CUSTOM, false);
         FilesSyncHelper.restartJobsIfNeeded();
-        FilesSyncHelper.insertAllDBEntries(skipCustom);
 
         // Create all the providers we'll need
         final ContentResolver contentResolver = context.getContentResolver();
@@ -106,14 +107,40 @@ public class FilesSyncJob extends Job {
         SyncedFolderProvider syncedFolderProvider = new SyncedFolderProvider(contentResolver);
 
         Locale currentLocale = context.getResources().getConfiguration().locale;
-        SimpleDateFormat sFormatter = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", currentLocale);
-        sFormatter.setTimeZone(TimeZone.getTimeZone(TimeZone.getDefault().getID()));
         FileUploader.UploadRequester requester = new FileUploader.UploadRequester();
 
+        List<SyncedFolder> syncedFolders = new ArrayList<>();
         for (SyncedFolder syncedFolder : syncedFolderProvider.getSyncedFolders()) {
             if ((syncedFolder.isEnabled()) && (!skipCustom || MediaFolderType.CUSTOM != syncedFolder.getType())) {
-                syncFolder(context, resources, lightVersion, filesystemDataProvider, currentLocale, sFormatter,
-                        requester, syncedFolder);
+                syncedFolders.add(syncedFolder);
+            }
+        }
+
+        // scan synced folders in parallel, each one is indexed and its new files requested for upload
+        if (!syncedFolders.isEmpty()) {
+            int workers = Math.min(syncedFolders.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+            for (SyncedFolder syncedFolder : syncedFolders) {
+                executor.execute(() -> {
+                    FilesSyncHelper.insertAllDBEntriesForSyncedFolder(syncedFolder);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    syncFolder(context, resources, lightVersion, filesystemDataProvider, currentLocale,
+                               requester, syncedFolder);
+                });
+            }
+
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SCAN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    Log_OC.w(TAG, "Scan of synced folders did not finish in time");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
             }
         }
 
@@ -126,8 +153,7 @@ public class FilesSyncJob extends Job {
 
     private void syncFolder(Context context, Resources resources, boolean lightVersion,
                             FilesystemDataProvider filesystemDataProvider, Locale currentLocale,
-                            SimpleDateFormat sFormatter, FileUploader.UploadRequester requester,
-                            SyncedFolder syncedFolder) {
+                            FileUploader.UploadRequester requester, SyncedFolder syncedFolder) {
         String remotePath;
         boolean subfolderByDate;
         Integer uploadAction;
@@ -139,31 +165,41 @@ public class FilesSyncJob extends Job {
 
         if (lightVersion) {
             arbitraryDataProvider = new ArbitraryDataProvider(context.getContentResolver());
+
+            needsCharging = resources.getBoolean(R.bool.syncedFolder_light_on_charging);
+            needsWifi = account == null || arbitraryDataProvider.getBooleanValue(account.name,
+                    Preferences.SYNCED_FOLDER_LIGHT_UPLOAD_ON_WIFI);
+            String uploadActionString = resources.getString(R.string.syncedFolder_light_upload_behaviour);
+            uploadAction = getUploadAction(uploadActionString);
+
+            subfolderByDate = resources.getBoolean(R.bool.syncedFolder_light_use_subfolders);
         } else {
-            arbitraryDataProvider = null;
+            needsCharging = syncedFolder.getChargingOnly();
+            needsWifi = syncedFolder.getWifiOnly();
+            uploadAction = syncedFolder.getUploadAction();
+            subfolderByDate = syncedFolder.getSubfolderByDate();
         }
 
+        List<String> localPaths = new ArrayList<>();
+        List<String> remotePaths = new ArrayList<>();
+        List<String> mimeTypes = new ArrayList<>();
+
         for (String path : filesystemDataProvider.getFilesForUpload(syncedFolder.getLocalPath(),
                 Long.toString(syncedFolder.getId()))) {
+            if (Thread.currentThread().isInterrupted()) {
+                // files not requested yet are still pending in the index, next run will take them
+                Log_OC.d(TAG, "Sync of " + syncedFolder.getLocalPath() + " interrupted");
+                localPaths.clear();
+                break;
+            }
+
             file = new File(path);
-            Long lastModificationTime = calculateLastModificationTime(file, syncedFolder, sFormatter);
+            Long lastModificationTime = calculateLastModificationTime(file, syncedFolder);
             String mimeType = MimeTypeUtil.getBestMimeTypeByFilename(file.getAbsolutePath());
 
             if (lightVersion) {
-                needsCharging = resources.getBoolean(R.bool.syncedFolder_light_on_charging);
-                needsWifi = account == null || arbitraryDataProvider.getBooleanValue(account.name,
-                        Preferences.SYNCED_FOLDER_LIGHT_UPLOAD_ON_WIFI);
-                String uploadActionString = resources.getString(R.string.syncedFolder_light_upload_behaviour);
-                uploadAction = getUploadAction(uploadActionString);
-
-                subfolderByDate = resources.getBoolean(R.bool.syncedFolder_light_use_subfolders);
-
                 remotePath = resources.getString(R.string.syncedFolder_remote_folder);
             } else {
-                needsCharging = syncedFolder.getChargingOnly();
-                needsWifi = syncedFolder.getWifiOnly();
-                uploadAction = syncedFolder.getUploadAction();
-                subfolderByDate = syncedFolder.getSubfolderByDate();
                 remotePath = syncedFolder.getRemotePath();
             }
 
@@ -174,45 +210,66 @@ public class FilesSyncJob extends Job {
                 remotePath += adaptedPath;
             }
 
-            requester.uploadFileWithOverwrite(
-                    context,
-                    account,
-                    file.getAbsolutePath(),
-                    FileStorageUtils.getInstantUploadFilePath(
-                            currentLocale,
-                            remotePath, file.getName(),
-                            lastModificationTime, subfolderByDate),
-                    uploadAction,
-                    mimeType,
-                    true,           // create parent folder if not existent
-                    UploadFileOperation.CREATED_AS_INSTANT_PICTURE,
-                    needsWifi,
-                    needsCharging,
-                    true
-            );
+            localPaths.add(file.getAbsolutePath());
+            remotePaths.add(FileStorageUtils.getInstantUploadFilePath(
+                    currentLocale,
+                    remotePath, file.getName(),
+                    lastModificationTime, subfolderByDate));
+            mimeTypes.add(mimeType);
+
+            if (localPaths.size() == UPLOAD_BATCH_SIZE) {
+                requestUploads(context, requester, account, syncedFolder, filesystemDataProvider, localPaths,
+                               remotePaths, mimeTypes, uploadAction, needsWifi, needsCharging);
+            }
+        }
+
+        if (!localPaths.isEmpty()) {
+            requestUploads(context, requester, account, syncedFolder, filesystemDataProvider, localPaths,
+                           remotePaths, mimeTypes, uploadAction, needsWifi, needsCharging);
+        }
+    }
+
+    /**
+     * Requests the upload of a batch of files of a synced folder with a single intent, then clears the batch.
+     */
+    private void requestUploads(Context context, FileUploader.UploadRequester requester, Account account,
+                                SyncedFolder syncedFolder, FilesystemDataProvider filesystemDataProvider,
+                                List<String> localPaths, List<String> remotePaths, List<String> mimeTypes,
+                                Integer uploadAction, boolean needsWifi, boolean needsCharging) {
+        requester.uploadFileWithOverwrite(
+                context,
+                account,
+                localPaths.toArray(new String[0]),
+                remotePaths.toArray(new String[0]),
+                mimeTypes.toArray(new String[0]),
+                uploadAction,
+                true,           // create parent folder if not existent
+                UploadFileOperation.CREATED_AS_INSTANT_PICTURE,
+                needsWifi,
+                needsCharging,
+                true
+        );
 
+        for (String path : localPaths) {
             filesystemDataProvider.updateFilesystemFileAsSentForUpload(path,
                     Long.toString(syncedFolder.getId()));
         }
+
+        localPaths.clear();
+        remotePaths.clear();
+        mimeTypes.clear();
     }
 
-    private Long calculateLastModificationTime(File file, SyncedFolder syncedFolder, SimpleDateFormat formatter) {
+    private Long calculateLastModificationTime(File file, SyncedFolder syncedFolder) {
         Long lastModificationTime = file.lastModified();
 
         if (MediaFolderType.IMAGE == syncedFolder.getType()) {
             String mimeTypeString = FileStorageUtils.getMimeTypeFromName(file.getAbsolutePath());
             if (MimeType.JPEG.equalsIgnoreCase(mimeTypeString)
                     || MimeType.TIFF.equalsIgnoreCase(mimeTypeString)) {
-                try {
-                    ExifInterface exifInterface = new ExifInterface(file.getAbsolutePath());
-                    String exifDate = exifInterface.getAttribute(ExifInterface.TAG_DATETIME);
-                    if (!TextUtils.isEmpty(exifDate)) {
-                        ParsePosition pos = new ParsePosition(0);
-                        Date dateTime = formatter.parse(exifDate, pos);
-                        lastModificationTime = dateTime.getTime();
-                    }
-                } catch (Exception e) {
-                    Log_OC.d(TAG, "Failed to get the proper time " + e.getLocalizedMessage());
+                long exifDate = ExifDateReader.readExifDate(file);
+                if (exifDate != ExifDateReader.NO_EXIF_DATE) {
+                    lastModificationTime = exifDate;
                 }
             }
         }
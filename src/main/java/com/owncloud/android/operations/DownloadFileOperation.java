@@ -39,7 +39,6 @@ import com.owncloud.android.utils.EncryptionUtils;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -51,6 +50,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class DownloadFileOperation extends RemoteOperation {
 
     private static final String TAG = DownloadFileOperation.class.getSimpleName();
+    private static final String DECRYPTED_SUFFIX = ".decrypted";
     private Account mAccount;
 
     private OCFile mFile;
@@ -200,14 +200,19 @@ public class DownloadFileOperation extends RemoteOperation {
                 byte[] authenticationTag = EncryptionUtils.decodeStringToBase64Bytes(metadata.getFiles()
                         .get(mFile.getEncryptedFileName()).getAuthenticationTag());
 
+                // decrypt in chunks next to the downloaded file, which is only replaced once the tag is verified
+                File decryptedTmpFile = new File(tmpFile.getAbsolutePath() + DECRYPTED_SUFFIX);
                 try {
-                    byte[] decryptedBytes = EncryptionUtils.decryptFile(tmpFile, key, iv, authenticationTag);
-
-                    FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
-                    fileOutputStream.write(decryptedBytes);
+                    EncryptionUtils.decryptFile(tmpFile, decryptedTmpFile, key, iv, authenticationTag);
                 } catch (Exception e) {
+                    decryptedTmpFile.delete();
                     return new RemoteOperationResult(e);
                 }
+
+                if (!tmpFile.delete() || !decryptedTmpFile.renameTo(tmpFile)) {
+                    decryptedTmpFile.delete();
+                    return new RemoteOperationResult(RemoteOperationResult.ResultCode.LOCAL_STORAGE_NOT_MOVED);
+                }
             }
             moved = tmpFile.renameTo(newFile);
             newFile.setLastModified(mFile.getModificationTimestamp());
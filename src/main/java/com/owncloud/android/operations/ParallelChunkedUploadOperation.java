@@ -0,0 +1,414 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.operations;
+
+import com.owncloud.android.datamodel.ChunkedUploadState;
+import com.owncloud.android.datamodel.UploadsStorageManager;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.network.WebdavUtils;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.lib.resources.files.ChunkedFileUploadRemoteOperation;
+
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads a large file in chunks, keeping several chunk PUTs in flight.
+ *
+ * Chunks are read through a {@link FileChannel} into a small pool of reusable direct buffers, so that reading the
+ * next chunk overlaps with sending the previous ones. Uses the same chunking protocol as
+ * {@link ChunkedFileUploadRemoteOperation}; the server assembles the file when all the chunks of a transfer are
+ * there, so the last chunk is only sent once all the others are confirmed. Every confirmed chunk is stored with the
+ * upload, and a later attempt of the same upload skips the chunks already confirmed for the unchanged file.
+ */
+public class ParallelChunkedUploadOperation extends RemoteOperation {
+    private static final String TAG = ParallelChunkedUploadOperation.class.getSimpleName();
+
+    public static final long CHUNK_SIZE = ChunkedFileUploadRemoteOperation.CHUNK_SIZE;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 3;
+    private static final int CHUNK_READ_TIMEOUT = 60000;
+    private static final int CHUNK_CONNECTION_TIMEOUT = 5000;
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+    private static final long STATE_WRITE_INTERVAL_MILLIS = 2000;
+
+    private static final String OC_CHUNKED_HEADER = "OC-Chunked";
+    private static final String OC_TOTAL_LENGTH_HEADER = "OC-Total-Length";
+    private static final String OC_X_OC_MTIME_HEADER = "X-OC-Mtime";
+    private static final String IF_MATCH_HEADER = "If-Match";
+    private static final String CHUNKING_SEPARATOR = "-chunking-";
+
+    private final String localPath;
+    private final String remotePath;
+    private final String mimeType;
+    private final String requiredEtag;
+    private final String fileLastModifiedTimestamp;
+    private final long uploadId;
+    private final UploadsStorageManager uploadsStorageManager;
+
+    private final Set<OnDatatransferProgressListener> dataTransferListeners = new HashSet<>();
+    private final Set<PutMethod> activeMethods = new HashSet<>();
+    private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
+    private final AtomicLong transferred = new AtomicLong();
+
+    /**
+     * Confirmed chunks are stored at most every {@link #STATE_WRITE_INTERVAL_MILLIS}, and once more when the transfer
+     * stops; every write of the upload refreshes the list of uploads. Guarded by stateLock.
+     */
+    private final Object stateLock = new Object();
+    private long lastStateWrite;
+    private boolean stateDirty;
+
+    public ParallelChunkedUploadOperation(String localPath, String remotePath, String mimeType, String requiredEtag,
+                                          String fileLastModifiedTimestamp, long uploadId,
+                                          UploadsStorageManager uploadsStorageManager) {
+        this.localPath = localPath;
+        this.remotePath = remotePath;
+        this.mimeType = mimeType;
+        this.requiredEtag = requiredEtag;
+        this.fileLastModifiedTimestamp = fileLastModifiedTimestamp;
+        this.uploadId = uploadId;
+        this.uploadsStorageManager = uploadsStorageManager;
+    }
+
+    public void addDatatransferProgressListener(OnDatatransferProgressListener listener) {
+        synchronized (dataTransferListeners) {
+            dataTransferListeners.add(listener);
+        }
+    }
+
+    public void removeDatatransferProgressListener(OnDatatransferProgressListener listener) {
+        synchronized (dataTransferListeners) {
+            dataTransferListeners.remove(listener);
+        }
+    }
+
+    public void cancel() {
+        cancellationRequested.set(true);
+        synchronized (activeMethods) {
+            for (PutMethod putMethod : activeMethods) {
+                putMethod.abort();
+            }
+        }
+    }
+
+    @Override
+    protected RemoteOperationResult run(OwnCloudClient client) {
+        File file = new File(localPath);
+        ChunkedUploadState state = uploadsStorageManager.getChunkedUploadState(uploadId);
+
+        RemoteOperationResult result = upload(client, file, state);
+        if (state != null && isExpiredTransfer(result)) {
+            // chunks confirmed by a previous attempt were not there anymore to assemble the file
+            Log_OC.w(TAG, "Stored chunks of " + remotePath + " expired (" + result.getHttpCode() +
+                    "), uploading all chunks again");
+            result = upload(client, file, null);
+        }
+
+        if (result.isSuccess()) {
+            uploadsStorageManager.updateChunkedUploadState(uploadId, null);
+        }
+        return result;
+    }
+
+    /**
+     * The server refuses to assemble the file with a client error when chunks of the transfer are missing; a failed
+     * precondition or authentication is not about the stored chunks, and retrying would not help.
+     */
+    private static boolean isExpiredTransfer(RemoteOperationResult result) {
+        int status = result.getHttpCode();
+        return status == HttpStatus.SC_NOT_FOUND || status == HttpStatus.SC_CONFLICT ||
+                status == HttpStatus.SC_BAD_REQUEST;
+    }
+
+    /**
+     * @return result of the last chunk, successful once the server assembled the file
+     */
+    private RemoteOperationResult upload(OwnCloudClient client, File file, ChunkedUploadState storedState) {
+        long fileLength = file.length();
+        int chunkCount = (int) ((fileLength + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        ChunkedUploadState state = storedState;
+        if (state == null || state.getFileModified() != file.lastModified() || !isValid(state, chunkCount)) {
+            state = new ChunkedUploadState(new SecureRandom().nextInt(Integer.MAX_VALUE), file.lastModified(),
+                                           new HashSet<>());
+            uploadsStorageManager.updateChunkedUploadState(uploadId, state);
+        }
+
+        List<Integer> pendingChunks = new ArrayList<>();
+        long confirmedLength = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (state.getConfirmedChunks().contains(chunk)) {
+                confirmedLength += getChunkLength(chunk, fileLength);
+            } else {
+                pendingChunks.add(chunk);
+            }
+        }
+        transferred.set(confirmedLength);
+
+        if (pendingChunks.isEmpty()) {
+            // all confirmed, but not assembled: resend the last one
+            pendingChunks.add(chunkCount - 1);
+        }
+
+        String uriPrefix = getChunkUriPrefix(client, state, chunkCount);
+
+        int buffers = Math.min(MAX_CHUNKS_IN_FLIGHT, pendingChunks.size());
+        BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            bufferPool.add(ByteBuffer.allocateDirect((int) CHUNK_SIZE));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(buffers);
+        AtomicReference<RemoteOperationResult> failure = new AtomicReference<>();
+        ChunkedUploadState finalState = state;
+        int lastChunk = pendingChunks.remove(pendingChunks.size() - 1);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            for (int chunk : pendingChunks) {
+                if (cancellationRequested.get() || failure.get() != null) {
+                    break;
+                }
+
+                ByteBuffer buffer = bufferPool.take();
+                readChunk(channel, buffer, chunk, fileLength);
+
+                executor.execute(() -> {
+                    try {
+                        if (failure.get() == null && !cancellationRequested.get()) {
+                            RemoteOperationResult result = sendChunk(client, uriPrefix + chunk, buffer, fileLength);
+                            if (result.isSuccess()) {
+                                confirm(finalState, chunk);
+                            } else {
+                                failure.compareAndSet(null, result);
+                            }
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, new RemoteOperationResult(e));
+                    } finally {
+                        bufferPool.add(buffer);
+                    }
+                });
+            }
+
+            // the server assembles the file with the last chunk, it must not race with the others
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            if (cancellationRequested.get()) {
+                throw new OperationCancelledException();
+            }
+            if (failure.get() != null) {
+                return failure.get();
+            }
+
+            // no need to confirm the last chunk, the stored state is dropped once the file is assembled
+            ByteBuffer buffer = bufferPool.take();
+            readChunk(channel, buffer, lastChunk, fileLength);
+            return sendChunk(client, uriPrefix + lastChunk, buffer, fileLength);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new RemoteOperationResult(e);
+        } catch (Exception e) {
+            RemoteOperationResult result = cancellationRequested.get() ?
+                    new RemoteOperationResult(new OperationCancelledException()) : new RemoteOperationResult(e);
+            Log_OC.e(TAG, "Chunked upload of " + localPath + " to " + remotePath + ": " + result.getLogMessage(), e);
+            return result;
+        } finally {
+            executor.shutdownNow();
+            storeState(finalState, true);
+        }
+    }
+
+    /**
+     * Remote names of the chunks of a transfer are this prefix followed by the chunk index.
+     *
+     * Package private to be replaced in tests, as {@link #sendChunk(OwnCloudClient, String, ByteBuffer, long)}.
+     */
+    String getChunkUriPrefix(OwnCloudClient client, ChunkedUploadState state, int chunkCount) {
+        return client.getWebdavUri() + WebdavUtils.encodePath(remotePath) + CHUNKING_SEPARATOR
+                + state.getTransferId() + "-" + chunkCount + "-";
+    }
+
+    private static boolean isValid(ChunkedUploadState state, int chunkCount) {
+        for (int chunk : state.getConfirmedChunks()) {
+            if (chunk < 0 || chunk >= chunkCount) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long getChunkLength(int chunk, long fileLength) {
+        return Math.min(CHUNK_SIZE, fileLength - chunk * CHUNK_SIZE);
+    }
+
+    private static void readChunk(FileChannel channel, ByteBuffer buffer, int chunk, long fileLength)
+            throws IOException {
+        long offset = chunk * CHUNK_SIZE;
+        buffer.clear();
+        buffer.limit((int) getChunkLength(chunk, fileLength));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + channel);
+            }
+        }
+        buffer.flip();
+    }
+
+    private void confirm(ChunkedUploadState state, int chunk) {
+        synchronized (stateLock) {
+            state.getConfirmedChunks().add(chunk);
+            stateDirty = true;
+        }
+        storeState(state, false);
+    }
+
+    /**
+     * Stores the confirmed chunks if they changed, unless they were stored too recently and force is not set.
+     */
+    private void storeState(ChunkedUploadState state, boolean force) {
+        ChunkedUploadState snapshot;
+        synchronized (stateLock) {
+            long now = System.currentTimeMillis();
+            if (!stateDirty || (!force && now - lastStateWrite < STATE_WRITE_INTERVAL_MILLIS)) {
+                return;
+            }
+            snapshot = new ChunkedUploadState(state.getTransferId(), state.getFileModified(),
+                                              new HashSet<>(state.getConfirmedChunks()));
+            stateDirty = false;
+            lastStateWrite = now;
+        }
+        uploadsStorageManager.updateChunkedUploadState(uploadId, snapshot);
+    }
+
+    RemoteOperationResult sendChunk(OwnCloudClient client, String uri, ByteBuffer buffer, long fileLength)
+            throws IOException {
+        PutMethod putMethod = new PutMethod(uri);
+        synchronized (activeMethods) {
+            activeMethods.add(putMethod);
+        }
+
+        try {
+            if (requiredEtag != null && requiredEtag.length() > 0) {
+                putMethod.addRequestHeader(IF_MATCH_HEADER, "\"" + requiredEtag + "\"");
+            }
+            putMethod.addRequestHeader(OC_CHUNKED_HEADER, OC_CHUNKED_HEADER);
+            putMethod.addRequestHeader(OC_TOTAL_LENGTH_HEADER, String.valueOf(fileLength));
+            putMethod.addRequestHeader(OC_X_OC_MTIME_HEADER, fileLastModifiedTimestamp);
+            putMethod.setRequestEntity(new ChunkRequestEntity(buffer, fileLength));
+
+            // timeouts of this method only, the client is shared by the chunks in flight and other operations
+            putMethod.getParams().setSoTimeout(CHUNK_READ_TIMEOUT);
+            putMethod.getParams().setParameter(HttpConnectionParams.CONNECTION_TIMEOUT, CHUNK_CONNECTION_TIMEOUT);
+
+            int status = client.executeMethod(putMethod);
+            client.exhaustResponse(putMethod.getResponseBodyAsStream());
+
+            boolean success = status == HttpStatus.SC_OK || status == HttpStatus.SC_CREATED ||
+                    status == HttpStatus.SC_NO_CONTENT;
+            return new RemoteOperationResult(success, putMethod);
+        } finally {
+            synchronized (activeMethods) {
+                activeMethods.remove(putMethod);
+            }
+            putMethod.releaseConnection();
+        }
+    }
+
+    private void onChunkDataWritten(int count, long fileLength) {
+        long totalTransferred = transferred.addAndGet(count);
+        synchronized (dataTransferListeners) {
+            for (OnDatatransferProgressListener listener : dataTransferListeners) {
+                listener.onTransferProgress(count, totalTransferred, fileLength, localPath);
+            }
+        }
+    }
+
+    /**
+     * Sends a chunk from its buffer, reporting the progress of the whole file.
+     */
+    private class ChunkRequestEntity implements RequestEntity {
+        private final ByteBuffer buffer;
+        private final long fileLength;
+
+        private ChunkRequestEntity(ByteBuffer buffer, long fileLength) {
+            this.buffer = buffer;
+            this.fileLength = fileLength;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public void writeRequest(OutputStream out) throws IOException {
+            ByteBuffer data = buffer.duplicate();
+            byte[] bytes = new byte[WRITE_BUFFER_SIZE];
+            while (data.hasRemaining()) {
+                if (cancellationRequested.get()) {
+                    throw new IOException(new OperationCancelledException());
+                }
+                int count = Math.min(bytes.length, data.remaining());
+                data.get(bytes, 0, count);
+                out.write(bytes, 0, count);
+                onChunkDataWritten(count, fileLength);
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public String getContentType() {
+            return mimeType;
+        }
+    }
+}
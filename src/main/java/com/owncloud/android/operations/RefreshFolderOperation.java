@@ -114,6 +114,12 @@ public class RefreshFolderOperation extends RemoteOperation {
     /** 'True' means that Etag will be ignored */
     private boolean mIgnoreETag;
 
+    /** ETag of the remote folder when already known from the contents of its parent, null otherwise */
+    private String mRemoteFolderETag;
+
+    /** ETags of the remote child folders by remote path, read when the remote folder changed */
+    private Map<String, String> mRemoteChildFoldersETags;
+
     private List<SynchronizeFileOperation> mFilesToSyncContents;
     // this will be used for every file when 'folder synchronization' replaces 'folder download'
 
@@ -149,6 +155,34 @@ public class RefreshFolderOperation extends RemoteOperation {
         mRemoteFolderChanged = false;
         mIgnoreETag = ignoreETag;
         mFilesToSyncContents = new Vector<>();
+        mRemoteChildFoldersETags = new HashMap<>();
+    }
+
+    /**
+     * Sets the ETag of the remote folder, as read in the contents of its parent, to detect changes without an
+     * additional request.
+     *
+     * @param remoteFolderETag ETag of the remote folder.
+     */
+    public void setRemoteFolderETag(String remoteFolderETag) {
+        mRemoteFolderETag = remoteFolderETag;
+    }
+
+    /**
+     * @return 'True' if the contents of the remote folder were fetched, after the synchronization.
+     */
+    public boolean isRemoteFolderChanged() {
+        return mRemoteFolderChanged;
+    }
+
+    /**
+     * Returns the ETags of the child folders in the server, which differ from the stored ones for the folders whose
+     * contents changed, if called after synchronization is complete.
+     *
+     * @return ETags of the remote child folders by remote path, empty if the remote folder did not change.
+     */
+    public Map<String, String> getRemoteChildFoldersETags() {
+        return mRemoteChildFoldersETags;
     }
 
     public int getConflictsFound() {
@@ -184,6 +218,7 @@ public class RefreshFolderOperation extends RemoteOperation {
         mFailsInKeptInSyncFound = 0;
         mConflictsFound = 0;
         mForgottenLocalFiles.clear();
+        mRemoteChildFoldersETags.clear();
 
         if (OCFile.ROOT_PATH.equals(mLocalFolder.getRemotePath()) && !mSyncFullAccount) {
             updateOCVersion(client);
@@ -263,6 +298,14 @@ public class RefreshFolderOperation extends RemoteOperation {
 
         Log_OC.d(TAG, "Checking changes in " + mAccount.name + remotePath);
 
+        if (mRemoteFolderETag != null && !mIgnoreETag) {
+            // already read from the parent folder, no need to ask again
+            mRemoteFolderChanged = !mRemoteFolderETag.equalsIgnoreCase(mLocalFolder.getEtag());
+            Log_OC.i(TAG, "Checked " + mAccount.name + remotePath + " : " +
+                    (mRemoteFolderChanged ? "changed" : "not changed"));
+            return new RemoteOperationResult(ResultCode.OK);
+        }
+
         // remote request
         result = new ReadFileRemoteOperation(remotePath).execute(client, true);
 
@@ -399,6 +442,10 @@ public class RefreshFolderOperation extends RemoteOperation {
             // check and fix, if needed, local storage path
             FileStorageUtils.searchForLocalFileInDefaultPath(updatedFile, mAccount);
 
+            if (remoteFile.isFolder()) {
+                mRemoteChildFoldersETags.put(remoteFile.getRemotePath(), remoteFile.getEtag());
+            }
+
             // prepare content synchronization for kept-in-sync files
             if (updatedFile.isAvailableOffline()) {
                 mFilesToSyncContents.add(
@@ -37,6 +37,8 @@ import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.operations.common.SyncOperation;
 import com.owncloud.android.utils.FileStorageUtils;
 
+import java.util.List;
+
 /**
  * Remote operation performing the read of remote file in the ownCloud server.
  */
@@ -59,6 +61,8 @@ public class SynchronizeFileOperation extends SyncOperation {
      */
     private boolean mAllowUploads;
 
+    private List<OCFile> mDownloadBatch;
+
 
     /**
      * Constructor for "full synchronization mode".
@@ -289,12 +293,29 @@ public class SynchronizeFileOperation extends SyncOperation {
     }
 
 
+    /**
+     * Collects the files to download in the given list instead of requesting them one by one; the caller requests
+     * them all at once with {@link FileDownloader#requestDownloads(Context, Account, java.util.Collection)}.
+     *
+     * @param downloadBatch list shared by the operations synchronizing the files of a folder, thread safe
+     */
+    public void setDownloadBatch(List<OCFile> downloadBatch) {
+        mDownloadBatch = downloadBatch;
+    }
+
+
     /**
      * Requests for a download to the FileDownloader service
      *
      * @param file OCFile object representing the file to download
      */
     private void requestForDownload(OCFile file) {
+        if (mDownloadBatch != null) {
+            mDownloadBatch.add(file);
+            mTransferWasRequested = true;
+            return;
+        }
+
         Intent i = new Intent(mContext, FileDownloader.class);
         i.putExtra(FileDownloader.EXTRA_ACCOUNT, mAccount);
         i.putExtra(FileDownloader.EXTRA_FILE, file);
@@ -37,11 +37,14 @@ import com.owncloud.android.lib.resources.files.ReadFileRemoteOperation;
 import com.owncloud.android.lib.resources.files.ReadFolderRemoteOperation;
 import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.operations.common.SyncOperation;
+import com.owncloud.android.operations.common.SyncScheduler;
 import com.owncloud.android.services.OperationsService;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeTypeUtil;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -93,6 +96,9 @@ public class SynchronizeFolderOperation extends SyncOperation {
     private List<SyncOperation> mFilesToSyncContents;
         // this will be used for every file when 'folder synchronization' replaces 'folder download'
 
+    /** Child folders to synchronize once the contents of the folder are stored */
+    private List<String> mFoldersToSync;
+
     private final AtomicBoolean mCancellationRequested;
 
     /**
@@ -112,6 +118,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
         mRemoteFolderChanged = false;
         mFilesForDirectDownload = new Vector<>();
         mFilesToSyncContents = new Vector<>();
+        mFoldersToSync = new ArrayList<>();
         mCancellationRequested = new AtomicBoolean(false);
     }
 
@@ -255,6 +262,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
 
         mFilesForDirectDownload.clear();
         mFilesToSyncContents.clear();
+        mFoldersToSync.clear();
 
         if (mCancellationRequested.get()) {
             throw new OperationCancelledException();
@@ -302,6 +310,9 @@ public class SynchronizeFolderOperation extends SyncOperation {
 
         // save updated contents in local database
         storageManager.saveFolder(remoteFolder, updatedFiles, localFilesMap.values());
+
+        // child folders are synchronized in parallel, they must be stored before
+        startSyncFolderOperations();
     }
 
     private void updateLocalStateData(OCFile remoteFile, OCFile localFile, OCFile updatedFile) {
@@ -335,16 +346,10 @@ public class SynchronizeFolderOperation extends SyncOperation {
         }
     }
 
-    private void classifyFileForLaterSyncOrDownload(OCFile remoteFile, OCFile localFile)
-            throws OperationCancelledException {
+    private void classifyFileForLaterSyncOrDownload(OCFile remoteFile, OCFile localFile) {
         if (remoteFile.isFolder()) {
             /// to download children files recursively
-            synchronized (mCancellationRequested) {
-                if (mCancellationRequested.get()) {
-                    throw new OperationCancelledException();
-                }
-                startSyncFolderOperation(remoteFile.getRemotePath());
-            }
+            mFoldersToSync.add(remoteFile.getRemotePath());
 
         } else {
             /// prepare content synchronization for files (any file, not just favorites)
@@ -355,6 +360,7 @@ public class SynchronizeFolderOperation extends SyncOperation {
                     true,
                     mContext
                 );
+            operation.setDownloadBatch(mFilesForDirectDownload);
             mFilesToSyncContents.add(operation);
         }
     }
@@ -362,16 +368,12 @@ public class SynchronizeFolderOperation extends SyncOperation {
 
     private void prepareOpsFromLocalKnowledge() throws OperationCancelledException {
         List<OCFile> children = getStorageManager().getFolderContent(mLocalFolder, false);
+        mFoldersToSync.clear();
         for (OCFile child : children) {
             /// classify file to sync/download contents later
             if (child.isFolder()) {
                 /// to download children files recursively
-                synchronized(mCancellationRequested) {
-                    if (mCancellationRequested.get()) {
-                        throw new OperationCancelledException();
-                    }
-                    startSyncFolderOperation(child.getRemotePath());
-                }
+                mFoldersToSync.add(child.getRemotePath());
 
             } else {
                 /// synchronization for regular files
@@ -387,36 +389,32 @@ public class SynchronizeFolderOperation extends SyncOperation {
                             true,
                             mContext
                     );
+                    operation.setDownloadBatch(mFilesForDirectDownload);
                     mFilesToSyncContents.add(operation);
 
                 }
 
             }
         }
+
+        startSyncFolderOperations();
     }
 
 
     private void syncContents() throws OperationCancelledException {
-        startDirectDownloads();
+        // content synchronizations add the files they need to download to the direct downloads
         startContentSynchronizations(mFilesToSyncContents);
+        startDirectDownloads();
     }
 
 
     private void startDirectDownloads() throws OperationCancelledException {
-        for (OCFile file : mFilesForDirectDownload) {
-            synchronized(mCancellationRequested) {
-                if (mCancellationRequested.get()) {
-                    throw new OperationCancelledException();
-                }
-                Intent i = new Intent(mContext, FileDownloader.class);
-                i.putExtra(FileDownloader.EXTRA_ACCOUNT, mAccount);
-                i.putExtra(FileDownloader.EXTRA_FILE, file);
-                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-                    mContext.startForegroundService(i);
-                } else {
-                    mContext.startService(i);
-                }
+        synchronized(mCancellationRequested) {
+            if (mCancellationRequested.get()) {
+                throw new OperationCancelledException();
             }
+            // a single request for all the files of the folder
+            FileDownloader.requestDownloads(mContext, mAccount, mFilesForDirectDownload);
         }
     }
 
@@ -426,18 +424,36 @@ public class SynchronizeFolderOperation extends SyncOperation {
      *
      * If download or upload is needed, request the operation to the corresponding service and goes on.
      *
+     * Operations are executed in parallel on the {@link SyncScheduler}, each one with its own client.
+     *
      * @param filesToSyncContents       Synchronization operations to execute.
      */
     private void startContentSynchronizations(List<SyncOperation> filesToSyncContents)
             throws OperationCancelledException {
 
         Log_OC.v(TAG, "Starting content synchronization... ");
-        RemoteOperationResult contentsResult;
+        List<RemoteOperationResult> contentsResults = Collections.synchronizedList(new ArrayList<>());
+        List<Runnable> tasks = new ArrayList<>(filesToSyncContents.size());
         for (SyncOperation op: filesToSyncContents) {
-            if (mCancellationRequested.get()) {
-                throw new OperationCancelledException();
-            }
-            contentsResult = op.execute(getStorageManager(), mContext);
+            tasks.add(() -> {
+                if (!mCancellationRequested.get()) {
+                    contentsResults.add(op.execute(getStorageManager(), mContext));
+                }
+            });
+        }
+
+        try {
+            SyncScheduler.runAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCancelledException();
+        }
+
+        if (mCancellationRequested.get()) {
+            throw new OperationCancelledException();
+        }
+
+        for (RemoteOperationResult contentsResult : contentsResults) {
             if (!contentsResult.isSuccess()) {
                 if (contentsResult.getCode() == ResultCode.SYNC_CONFLICT) {
                     mConflictsFound++;
@@ -489,6 +505,17 @@ public class SynchronizeFolderOperation extends SyncOperation {
         return FileStorageUtils.getDefaultSavePathFor(mAccount.name, mLocalFolder);
     }
 
+    private void startSyncFolderOperations() throws OperationCancelledException {
+        for (String path : mFoldersToSync) {
+            synchronized (mCancellationRequested) {
+                if (mCancellationRequested.get()) {
+                    throw new OperationCancelledException();
+                }
+                startSyncFolderOperation(path);
+            }
+        }
+    }
+
     private void startSyncFolderOperation(String path){
         Intent intent = new Intent(mContext, OperationsService.class);
         intent.setAction(OperationsService.ACTION_SYNC_FOLDER);
@@ -59,6 +59,7 @@ import com.owncloud.android.lib.resources.files.model.RemoteFile;
 import com.owncloud.android.operations.common.SyncOperation;
 import com.owncloud.android.utils.ConnectivityUtils;
 import com.owncloud.android.utils.EncryptionUtils;
+import com.owncloud.android.utils.FileCopyUtils;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
@@ -75,8 +76,6 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -138,6 +137,7 @@ public class UploadFileOperation extends SyncOperation {
     private Context mContext;
 
     private UploadFileRemoteOperation mUploadOperation;
+    private ParallelChunkedUploadOperation mChunkedUploadOperation;
 
     protected RequestEntity mEntity;
 
@@ -323,6 +323,9 @@ public class UploadFileOperation extends SyncOperation {
         if (mUploadOperation != null) {
             mUploadOperation.addDatatransferProgressListener(listener);
         }
+        if (mChunkedUploadOperation != null) {
+            mChunkedUploadOperation.addDatatransferProgressListener(listener);
+        }
     }
 
     public void removeDataTransferProgressListener(OnDatatransferProgressListener listener) {
@@ -335,6 +338,9 @@ public class UploadFileOperation extends SyncOperation {
         if (mUploadOperation != null) {
             mUploadOperation.removeDatatransferProgressListener(listener);
         }
+        if (mChunkedUploadOperation != null) {
+            mChunkedUploadOperation.removeDatatransferProgressListener(listener);
+        }
     }
 
     public void addRenameUploadListener(OnRenameListener listener) {
@@ -518,8 +524,6 @@ public class UploadFileOperation extends SyncOperation {
             // IV, always generate new one
             byte[] iv = EncryptionUtils.randomBytes(EncryptionUtils.ivLength);
 
-            EncryptionUtils.EncryptedFile encryptedFile = EncryptionUtils.encryptFile(mFile, key, iv);
-
             // new random file name, check if it exists in metadata
             String encryptedFileName = UUID.randomUUID().toString().replaceAll("-", "");
 
@@ -529,10 +533,10 @@ public class UploadFileOperation extends SyncOperation {
 
             mFile.setEncryptedFileName(encryptedFileName);
 
+            // encrypt in chunks straight into the file to upload
             File encryptedTempFile = File.createTempFile("encFile", encryptedFileName);
-            FileOutputStream fileOutputStream = new FileOutputStream(encryptedTempFile);
-            fileOutputStream.write(encryptedFile.encryptedBytes);
-            fileOutputStream.close();
+            String authenticationTag = EncryptionUtils.encryptFile(new File(mFile.getStoragePath()), encryptedTempFile,
+                                                                   key, iv);
 
             /***** E2E *****/
 
@@ -612,7 +616,7 @@ public class UploadFileOperation extends SyncOperation {
 
                 decryptedFile.setEncrypted(data);
                 decryptedFile.setInitializationVector(EncryptionUtils.encodeBytesToBase64String(iv));
-                decryptedFile.setAuthenticationTag(encryptedFile.authenticationTag);
+                decryptedFile.setAuthenticationTag(authenticationTag);
 
                 metadata.getFiles().put(encryptedFileName, decryptedFile);
 
@@ -814,25 +818,36 @@ public class UploadFileOperation extends SyncOperation {
             }
 
             // perform the upload
-            if (size > ChunkedFileUploadRemoteOperation.CHUNK_SIZE) {
-                mUploadOperation = new ChunkedFileUploadRemoteOperation(mContext, mFile.getStoragePath(),
-                        mFile.getRemotePath(), mFile.getMimeType(), mFile.getEtagInConflict(), timeStamp);
+            if (size > ParallelChunkedUploadOperation.CHUNK_SIZE) {
+                // chunks are sent in parallel and confirmed chunks are kept with the upload to resume it
+                mChunkedUploadOperation = new ParallelChunkedUploadOperation(mFile.getStoragePath(),
+                        mFile.getRemotePath(), mFile.getMimeType(), mFile.getEtagInConflict(), timeStamp,
+                        getOCUploadId(), uploadsStorageManager);
             } else {
                 mUploadOperation = new UploadFileRemoteOperation(mFile.getStoragePath(),
                         mFile.getRemotePath(), mFile.getMimeType(), mFile.getEtagInConflict(), timeStamp);
             }
 
-            Iterator<OnDatatransferProgressListener> listener = mDataTransferListeners.iterator();
-            while (listener.hasNext()) {
-                mUploadOperation.addDatatransferProgressListener(listener.next());
+            synchronized (mDataTransferListeners) {
+                for (OnDatatransferProgressListener listener : mDataTransferListeners) {
+                    if (mChunkedUploadOperation != null) {
+                        mChunkedUploadOperation.addDatatransferProgressListener(listener);
+                    } else {
+                        mUploadOperation.addDatatransferProgressListener(listener);
+                    }
+                }
             }
 
             if (mCancellationRequested.get()) {
                 throw new OperationCancelledException();
             }
 
-            if (result == null || result.isSuccess() && mUploadOperation != null) {
-                result = mUploadOperation.execute(client, mFile.isEncrypted());
+            if (result == null || result.isSuccess()) {
+                if (mChunkedUploadOperation != null) {
+                    result = mChunkedUploadOperation.execute(client);
+                } else {
+                    result = mUploadOperation.execute(client, mFile.isEncrypted());
+                }
 
                 /// move local temporal file or original file to its corresponding
                 // location in the Nextcloud local folder
@@ -904,6 +919,7 @@ public class UploadFileOperation extends SyncOperation {
             mFile.setStoragePath(temporalPath);
             File temporalFile = new File(temporalPath);
 
+            // the copy is kept as local file and edited independently of the original, it must not share its data
             result = copy(originalFile, temporalFile);
         }
 
@@ -1132,7 +1148,10 @@ public class UploadFileOperation extends SyncOperation {
      * upload will not take place.
      */
     public void cancel() {
-        if (mUploadOperation == null) {
+        if (mChunkedUploadOperation != null) {
+            Log_OC.d(TAG, "Cancelling chunked upload during actual upload operation.");
+            mChunkedUploadOperation.cancel();
+        } else if (mUploadOperation == null) {
             if (mUploadStarted.get()) {
                 Log_OC.d(TAG, "Cancelling upload during upload preparations.");
                 mCancellationRequested.set(true);
@@ -1165,80 +1184,47 @@ public class UploadFileOperation extends SyncOperation {
     private RemoteOperationResult copy(File sourceFile, File targetFile) throws IOException {
         Log_OC.d(TAG, "Copying local file");
 
-        RemoteOperationResult result = null;
-
-        if (FileStorageUtils.getUsableSpace() < sourceFile.length()) {
-            result = new RemoteOperationResult(ResultCode.LOCAL_STORAGE_FULL);
-            return result;  // error condition when the file should be copied
-
-        } else {
-            Log_OC.d(TAG, "Creating temporal folder");
-            File temporalParent = targetFile.getParentFile();
-            temporalParent.mkdirs();
-            if (!temporalParent.isDirectory()) {
-                throw new IOException(
-                        "Unexpected error: parent directory could not be created");
-            }
-            Log_OC.d(TAG, "Creating temporal file");
-            targetFile.createNewFile();
-            if (!targetFile.isFile()) {
-                throw new IOException(
-                        "Unexpected error: target file could not be created");
-            }
-
-            Log_OC.d(TAG, "Copying file contents");
-            InputStream in = null;
-            OutputStream out = null;
-
-            try {
-                if (!mOriginalStoragePath.equals(targetFile.getAbsolutePath())) {
-                    // In case document provider schema as 'content://'
-                    if (mOriginalStoragePath.startsWith(UriUtils.URI_CONTENT_SCHEME)) {
-                        Uri uri = Uri.parse(mOriginalStoragePath);
-                        in = mContext.getContentResolver().openInputStream(uri);
-                    } else {
-                        in = new FileInputStream(sourceFile);
-                    }
-                    out = new FileOutputStream(targetFile);
-                    int nRead;
-                    byte[] buf = new byte[4096];
-                    while (!mCancellationRequested.get() &&
-                            (nRead = in.read(buf)) > -1) {
-                        out.write(buf, 0, nRead);
-                    }
-                    out.flush();
+        if (mOriginalStoragePath.equals(targetFile.getAbsolutePath())) {
+            // weird but possible situation, nothing to copy
+            return null;
+        }
 
-                } // else: weird but possible situation, nothing to copy
+        Log_OC.d(TAG, "Creating temporal folder");
+        File temporalParent = targetFile.getParentFile();
+        temporalParent.mkdirs();
+        if (!temporalParent.isDirectory()) {
+            throw new IOException(
+                    "Unexpected error: parent directory could not be created");
+        }
 
-                if (mCancellationRequested.get()) {
-                    result = new RemoteOperationResult(new OperationCancelledException());
-                    return result;
-                }
+        if (FileStorageUtils.getUsableSpace() < sourceFile.length()) {
+            return new RemoteOperationResult(ResultCode.LOCAL_STORAGE_FULL);
+        }
 
-            } catch (Exception e) {
-                result = new RemoteOperationResult(ResultCode.LOCAL_STORAGE_NOT_COPIED);
-                return result;
+        Log_OC.d(TAG, "Creating temporal file");
+        targetFile.createNewFile();
+        if (!targetFile.isFile()) {
+            throw new IOException(
+                    "Unexpected error: target file could not be created");
+        }
 
-            } finally {
-                try {
-                    if (in != null) {
-                        in.close();
-                    }
-                } catch (Exception e) {
-                    Log_OC.d(TAG, "Weird exception while closing input stream for " +
-                            mOriginalStoragePath + " (ignoring)", e);
-                }
-                try {
-                    if (out != null) {
-                        out.close();
-                    }
-                } catch (Exception e) {
-                    Log_OC.d(TAG, "Weird exception while closing output stream for " +
-                            targetFile.getAbsolutePath() + " (ignoring)", e);
-                }
+        Log_OC.d(TAG, "Copying file contents");
+        try {
+            // In case document provider schema as 'content://'
+            if (mOriginalStoragePath.startsWith(UriUtils.URI_CONTENT_SCHEME)) {
+                FileCopyUtils.copy(mContext.getContentResolver(), Uri.parse(mOriginalStoragePath), targetFile,
+                                   mCancellationRequested);
+            } else {
+                FileCopyUtils.copy(sourceFile, targetFile, mCancellationRequested);
             }
+        } catch (OperationCancelledException e) {
+            return new RemoteOperationResult(e);
+        } catch (Exception e) {
+            Log_OC.e(TAG, "Copying " + mOriginalStoragePath + " to " + targetFile.getAbsolutePath() + " failed", e);
+            return new RemoteOperationResult(ResultCode.LOCAL_STORAGE_NOT_COPIED);
         }
-        return result;
+
+        return null;
     }
 
 
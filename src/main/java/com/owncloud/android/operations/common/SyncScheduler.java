@@ -0,0 +1,94 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.operations.common;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of workers shared by folder synchronizations and the content synchronizations of their files.
+ *
+ * Folder synchronizations are queued in the order they are requested. The files of a folder are synchronized by the
+ * worker of the folder, helped by the workers that become idle meanwhile, which take the next pending file from the
+ * same queue. As the worker of the folder never waits for a file nobody took, a folder synchronization may wait for
+ * its files from within the pool without blocking it.
+ */
+public final class SyncScheduler {
+
+    private static final int MAX_WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private SyncScheduler() {
+        // utility class -> private constructor
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, KEEP_ALIVE_SECONDS,
+                                                                       TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Queues a task, e.g. a folder synchronization.
+     */
+    public static void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Runs the tasks on the calling thread and on the workers that are idle, returning once all of them finished.
+     *
+     * @param tasks tasks that do not throw
+     */
+    public static void runAll(List<? extends Runnable> tasks) throws InterruptedException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        Queue<Runnable> pending = new ConcurrentLinkedQueue<>(tasks);
+        CountDownLatch finished = new CountDownLatch(tasks.size());
+        Runnable drain = () -> {
+            Runnable task;
+            while ((task = pending.poll()) != null) {
+                try {
+                    task.run();
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        int helpers = Math.min(MAX_WORKERS, tasks.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(drain);
+        }
+
+        drain.run();
+        // only tasks already running on other workers are left
+        finished.await();
+    }
+}
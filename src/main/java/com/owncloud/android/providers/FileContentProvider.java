@@ -38,27 +38,31 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.Binder;
+import android.os.Bundle;
 import android.text.TextUtils;
 
 import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.datamodel.OCFileCursorMapper;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.shares.ShareType;
 import com.owncloud.android.utils.FileStorageUtils;
-import com.owncloud.android.utils.MimeType;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * The ContentProvider for the ownCloud App.
@@ -77,6 +81,8 @@ public class FileContentProvider extends ContentProvider {
     private static final int ARBITRARY_DATA = 9;
     private static final int VIRTUAL = 10;
     private static final int FILESYSTEM = 11;
+    private static final int VIRTUAL_FILES = 12;
+    private static final int DOWNLOADS = 13;
     private static final String TAG = FileContentProvider.class.getSimpleName();
     // todo avoid string concatenation and use string formatting instead later.
     private static final String ERROR = "ERROR ";
@@ -86,10 +92,23 @@ public class FileContentProvider extends ContentProvider {
     private static final String ALTER_TABLE = "ALTER TABLE ";
     private static final String ADD_COLUMN = " ADD COLUMN ";
     private static final String REMOVE_COLUMN = " REMOVE COLUMN ";
+    private static final String CREATE_INDEX = "CREATE INDEX IF NOT EXISTS ";
+    private static final String CREATE_UNIQUE_INDEX = "CREATE UNIQUE INDEX IF NOT EXISTS ";
+    private static final String ON = " ON ";
     private static final String UPGRADE_VERSION_MSG = "OUT of the ADD in onUpgrade; oldVersion == %d, newVersion == %d";
     private static final int SINGLE_PATH_SEGMENT = 1;
     public static final int ARBITRARY_DATA_TABLE_INTRODUCTION_VERSION = 20;
 
+    public static final String METHOD_UPSERT_FILES = "upsert_files";
+    public static final String EXTRA_FILES_VALUES = "files_values";
+    public static final String EXTRA_OPERATIONS = "operations";
+    public static final String EXTRA_FILE_IDS = "file_ids";
+
+    public static final String METHOD_MIGRATE_STORAGE_PATHS = "migrate_storage_paths";
+    public static final String EXTRA_SOURCE_PATH = "source_path";
+    public static final String EXTRA_TARGET_PATH = "target_path";
+    public static final String EXTRA_COUNT = "count";
+
     private DataBaseHelper mDbHelper;
     private Context mContext;
     private UriMatcher mUriMatcher;
@@ -153,6 +172,9 @@ public class FileContentProvider extends ContentProvider {
             case FILESYSTEM:
                 count = db.delete(ProviderTableMeta.FILESYSTEM_TABLE_NAME, where, whereArgs);
                 break;
+            case DOWNLOADS:
+                count = db.delete(ProviderTableMeta.DOWNLOADS_TABLE_NAME, where, whereArgs);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown uri: " + uri.toString());
         }
@@ -160,49 +182,50 @@ public class FileContentProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Removes a folder along with its whole subtree in a single statement. The descendants are selected by the range
+     * of paths starting with the path of the folder, which is resolved by the index on account and path.
+     */
     private int deleteDirectory(SQLiteDatabase db, Uri uri, String where, String... whereArgs) {
-        int count = 0;
-
-        Cursor children = query(uri, null, null, null, null);
-        if (children != null) {
-            if (children.moveToFirst()) {
-                long childId;
-                boolean isDir;
-                while (!children.isAfterLast()) {
-                    childId = children.getLong(children.getColumnIndex(ProviderTableMeta._ID));
-                    isDir = MimeType.DIRECTORY.equals(children.getString(
-                            children.getColumnIndex(ProviderTableMeta.FILE_CONTENT_TYPE)
-                    ));
-                    //remotePath = children.getString(children.getColumnIndex(ProviderTableMeta.FILE_PATH));
-                    if (isDir) {
-                        count += delete(
-                                db,
-                                ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_DIR, childId),
-                                null,
-                                (String[]) null
-                        );
-                    } else {
-                        count += delete(
-                                db,
-                                ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_FILE, childId),
-                                null,
-                                (String[]) null
-                        );
-                    }
-                    children.moveToNext();
-                }
+        String folderId = uri.getPathSegments().get(1);
+        String accountName;
+        String folderPath;
+
+        Cursor folder = db.query(ProviderTableMeta.FILE_TABLE_NAME,
+                                 new String[]{ProviderTableMeta.FILE_ACCOUNT_OWNER, ProviderTableMeta.FILE_PATH},
+                                 ProviderTableMeta._ID + "=" + folderId
+                                         + (!TextUtils.isEmpty(where) ? " AND (" + where + ")" : ""),
+                                 whereArgs, null, null, null);
+        try {
+            if (!folder.moveToFirst()) {
+                return 0;
             }
-            children.close();
+            accountName = folder.getString(0);
+            folderPath = folder.getString(1);
+        } finally {
+            folder.close();
+        }
+
+        if (!folderPath.endsWith(OCFile.PATH_SEPARATOR)) {
+            folderPath += OCFile.PATH_SEPARATOR;
         }
 
-        count += db.delete(ProviderTableMeta.FILE_TABLE_NAME,
-                ProviderTableMeta._ID
-                        + "="
-                        + uri.getPathSegments().get(1)
-                        + (!TextUtils.isEmpty(where) ? " AND (" + where
-                        + ")" : ""), whereArgs);
+        return db.delete(ProviderTableMeta.FILE_TABLE_NAME,
+                         ProviderTableMeta._ID + "=? OR (" + ProviderTableMeta.FILE_ACCOUNT_OWNER + "=? AND "
+                                 + ProviderTableMeta.FILE_PATH + ">=? AND " + ProviderTableMeta.FILE_PATH + "<?)",
+                         new String[]{folderId, accountName, folderPath, getPrefixUpperBound(folderPath)});
+    }
 
-        return count;
+    /**
+     * Returns the upper bound of the strings starting with a prefix, so that {@code column >= prefix AND column <
+     * upperBound} selects them with a range scan of an index on the column, unlike LIKE.
+     *
+     * @param prefix Non empty prefix, usually a path ending with a separator.
+     * @return Prefix with its last character increased.
+     */
+    public static String getPrefixUpperBound(String prefix) {
+        int last = prefix.length() - 1;
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
     }
 
     private int deleteSingleFile(SQLiteDatabase db, Uri uri, String where, String... whereArgs) {
@@ -395,6 +418,15 @@ public class FileContentProvider extends ContentProvider {
                     throw new SQLException("ERROR " + uri);
                 }
                 return insertedFilesystemUri;
+            case DOWNLOADS:
+                // a file already queued keeps its place in the queue
+                long downloadId = db.insertWithOnConflict(ProviderTableMeta.DOWNLOADS_TABLE_NAME, null, values,
+                                                          SQLiteDatabase.CONFLICT_IGNORE);
+                if (downloadId > 0) {
+                    return ContentUris.withAppendedId(ProviderTableMeta.CONTENT_URI_DOWNLOADS, downloadId);
+                } else {
+                    return ProviderTableMeta.CONTENT_URI_DOWNLOADS;
+                }
             default:
                 throw new IllegalArgumentException("Unknown uri id: " + uri);
         }
@@ -458,7 +490,9 @@ public class FileContentProvider extends ContentProvider {
         mUriMatcher.addURI(authority, "external_links", EXTERNAL_LINKS);
         mUriMatcher.addURI(authority, "arbitrary_data", ARBITRARY_DATA);
         mUriMatcher.addURI(authority, "virtual", VIRTUAL);
+        mUriMatcher.addURI(authority, "virtual/files", VIRTUAL_FILES);
         mUriMatcher.addURI(authority, "filesystem", FILESYSTEM);
+        mUriMatcher.addURI(authority, "downloads", DOWNLOADS);
 
         return true;
     }
@@ -568,6 +602,13 @@ public class FileContentProvider extends ContentProvider {
                     sqlQuery.appendWhere(ProviderTableMeta._ID + "=" + uri.getPathSegments().get(1));
                 }
                 break;
+            case VIRTUAL_FILES:
+                // files of virtual folders, by type in selection
+                sqlQuery.setTables(ProviderTableMeta.FILE_TABLE_NAME + " JOIN " + ProviderTableMeta.VIRTUAL_TABLE_NAME
+                                       + ON + ProviderTableMeta.FILE_TABLE_NAME + "." + ProviderTableMeta._ID + "="
+                                       + ProviderTableMeta.VIRTUAL_TABLE_NAME + "."
+                                       + ProviderTableMeta.VIRTUAL_OCFILE_ID);
+                break;
             case FILESYSTEM:
                 sqlQuery.setTables(ProviderTableMeta.FILESYSTEM_TABLE_NAME);
                 if (uri.getPathSegments().size() > SINGLE_PATH_SEGMENT) {
@@ -575,6 +616,9 @@ public class FileContentProvider extends ContentProvider {
                             + uri.getPathSegments().get(1));
                 }
                 break;
+            case DOWNLOADS:
+                sqlQuery.setTables(ProviderTableMeta.DOWNLOADS_TABLE_NAME);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown uri id: " + uri);
         }
@@ -609,6 +653,10 @@ public class FileContentProvider extends ContentProvider {
                 case FILESYSTEM:
                     order = ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH;
                     break;
+                case DOWNLOADS:
+                    // in the order they were requested
+                    order = ProviderTableMeta._ID;
+                    break;
             }
         } else {
             order = sortOrder;
@@ -625,6 +673,20 @@ public class FileContentProvider extends ContentProvider {
                 projectionMap.put(projection, projection);
             }
 
+            sqlQuery.setProjectionMap(projectionMap);
+        } else if (mUriMatcher.match(uri) == VIRTUAL_FILES) {
+            // only columns of files, _id is ambiguous in the join
+            HashMap<String, String> projectionMap = new HashMap<>();
+
+            for (String projection : ProviderTableMeta.FILE_ALL_COLUMNS) {
+                projectionMap.put(projection, ProviderTableMeta.FILE_TABLE_NAME + "." + projection + " AS "
+                        + projection);
+            }
+            for (String projection : OCFileCursorMapper.PROJECTION) {
+                projectionMap.put(projection, ProviderTableMeta.FILE_TABLE_NAME + "." + projection + " AS "
+                        + projection);
+            }
+
             sqlQuery.setProjectionMap(projectionMap);
         }
 
@@ -682,6 +744,8 @@ public class FileContentProvider extends ContentProvider {
                 return db.update(ProviderTableMeta.ARBITRARY_DATA_TABLE_NAME, values, selection, selectionArgs);
             case FILESYSTEM:
                 return db.update(ProviderTableMeta.FILESYSTEM_TABLE_NAME, values, selection, selectionArgs);
+            case DOWNLOADS:
+                return db.update(ProviderTableMeta.DOWNLOADS_TABLE_NAME, values, selection, selectionArgs);
             default:
                 return db.update(ProviderTableMeta.FILE_TABLE_NAME, values, selection, selectionArgs);
         }
@@ -711,6 +775,152 @@ public class FileContentProvider extends ContentProvider {
         return results;
     }
 
+    /**
+     * Supports the methods below, each of them applied in a single transaction.
+     *
+     * {@link #METHOD_UPSERT_FILES}: writes the rows of the files table received in
+     * {@link #EXTRA_FILES_VALUES} and, optionally, the operations in {@link #EXTRA_OPERATIONS}, all of them in a
+     * single transaction.
+     *
+     * Rows carrying an {@link ProviderTableMeta#_ID} were already resolved as existing by the caller and are updated;
+     * the rest are inserted without the duplicate check done in {@link #insert(Uri, ContentValues)}. The ids of the
+     * written rows are returned in {@link #EXTRA_FILE_IDS}, in the same order as the received values.
+     *
+     * {@link #METHOD_MIGRATE_STORAGE_PATHS}: replaces the prefix {@link #EXTRA_SOURCE_PATH} of the local paths of all
+     * the files with {@link #EXTRA_TARGET_PATH}, with a single statement. The number of updated files is returned in
+     * {@link #EXTRA_COUNT}.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (isCallerNotAllowed() || extras == null) {
+            return null;
+        }
+
+        switch (method) {
+            case METHOD_UPSERT_FILES:
+                return upsertFiles(extras);
+            case METHOD_MIGRATE_STORAGE_PATHS:
+                return migrateStoragePaths(extras);
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private Bundle upsertFiles(Bundle extras) {
+        List<ContentValues> filesValues = extras.getParcelableArrayList(EXTRA_FILES_VALUES);
+        List<ContentProviderOperation> operations = extras.getParcelableArrayList(EXTRA_OPERATIONS);
+        long[] ids;
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ids = upsertFiles(db, filesValues);
+
+            if (operations != null) {
+                ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+                for (int i = 0; i < operations.size(); i++) {
+                    results[i] = operations.get(i).apply(this, results, i);
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (OperationApplicationException e) {
+            Log_OC.e(TAG, "Exception upserting files: " + e.getMessage(), e);
+            return null;
+        } finally {
+            db.endTransaction();
+        }
+        mContext.getContentResolver().notifyChange(ProviderTableMeta.CONTENT_URI, null);
+
+        Bundle result = new Bundle();
+        result.putLongArray(EXTRA_FILE_IDS, ids);
+        return result;
+    }
+
+    @Nullable
+    private Bundle migrateStoragePaths(Bundle extras) {
+        String sourcePath = extras.getString(EXTRA_SOURCE_PATH);
+        String targetPath = extras.getString(EXTRA_TARGET_PATH);
+        if (TextUtils.isEmpty(sourcePath) || targetPath == null) {
+            return null;
+        }
+
+        int count;
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement statement = db.compileStatement(
+                    "UPDATE " + ProviderTableMeta.FILE_TABLE_NAME + " SET " + ProviderTableMeta.FILE_STORAGE_PATH
+                            + "=? || substr(" + ProviderTableMeta.FILE_STORAGE_PATH + ", length(?) + 1) WHERE "
+                            + ProviderTableMeta.FILE_STORAGE_PATH + ">=? AND "
+                            + ProviderTableMeta.FILE_STORAGE_PATH + "<?");
+            statement.bindString(1, targetPath);
+            statement.bindString(2, sourcePath);
+            statement.bindString(3, sourcePath);
+            statement.bindString(4, getPrefixUpperBound(sourcePath));
+            count = statement.executeUpdateDelete();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log_OC.d(TAG, "Migrated local path of " + count + " files");
+        mContext.getContentResolver().notifyChange(ProviderTableMeta.CONTENT_URI, null);
+
+        Bundle result = new Bundle();
+        result.putInt(EXTRA_COUNT, count);
+        return result;
+    }
+
+    private long[] upsertFiles(SQLiteDatabase db, @Nullable List<ContentValues> filesValues) {
+        if (filesValues == null) {
+            return new long[0];
+        }
+
+        long[] ids = new long[filesValues.size()];
+        for (int i = 0; i < filesValues.size(); i++) {
+            ContentValues values = filesValues.get(i);
+            Long id = values.getAsLong(ProviderTableMeta._ID);
+
+            if (id != null && db.update(ProviderTableMeta.FILE_TABLE_NAME, values,
+                                        ProviderTableMeta._ID + "=?", new String[]{String.valueOf(id)}) > 0) {
+                ids[i] = id;
+                continue;
+            }
+
+            values.remove(ProviderTableMeta._ID);
+
+            // the file may have been stored meanwhile, e.g. by a concurrent synchronization; avoid a duplicated entry
+            long existingId = getFileId(db, values.getAsString(ProviderTableMeta.FILE_ACCOUNT_OWNER),
+                                        values.getAsString(ProviderTableMeta.FILE_PATH));
+            if (existingId > 0) {
+                db.update(ProviderTableMeta.FILE_TABLE_NAME, values, ProviderTableMeta._ID + "=?",
+                          new String[]{String.valueOf(existingId)});
+                ids[i] = existingId;
+            } else {
+                ids[i] = db.insert(ProviderTableMeta.FILE_TABLE_NAME, null, values);
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return id of the file stored for the account and remote path, -1 if there is none
+     */
+    private long getFileId(SQLiteDatabase db, String accountName, String remotePath) {
+        if (accountName == null || remotePath == null) {
+            return -1;
+        }
+
+        try (Cursor cursor = db.query(ProviderTableMeta.FILE_TABLE_NAME, new String[]{ProviderTableMeta._ID},
+                                      ProviderTableMeta.FILE_PATH + "=? AND " +
+                                              ProviderTableMeta.FILE_ACCOUNT_OWNER + "=?",
+                                      new String[]{remotePath, accountName}, null, null, null, "1")) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
     private boolean checkIfColumnExists(SQLiteDatabase database, String table, String column) {
         Cursor cursor = database.rawQuery("SELECT * FROM " + table + " LIMIT 0", null);
         boolean exists = cursor.getColumnIndex(column) != -1;
@@ -838,7 +1048,10 @@ public class FileContentProvider extends ContentProvider {
                 + ProviderTableMeta.UPLOADS_IS_WHILE_CHARGING_ONLY + INTEGER  // boolean
                 + ProviderTableMeta.UPLOADS_IS_WIFI_ONLY + INTEGER // boolean
                 + ProviderTableMeta.UPLOADS_CREATED_BY + INTEGER    // Upload createdBy
-                + ProviderTableMeta.UPLOADS_FOLDER_UNLOCK_TOKEN + " TEXT );");
+                + ProviderTableMeta.UPLOADS_FOLDER_UNLOCK_TOKEN + TEXT
+                + ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID + INTEGER   // transfer of confirmed chunks
+                + ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED + INTEGER // local file of confirmed chunks
+                + ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED + " TEXT );");
 
 
         /* before:
@@ -893,6 +1106,15 @@ public class FileContentProvider extends ContentProvider {
                 + ProviderTableMeta.VIRTUAL_TYPE + " TEXT, "                // type
                 + ProviderTableMeta.VIRTUAL_OCFILE_ID + " INTEGER )"        // file id
         );
+        createVirtualTableIndexes(db);
+    }
+
+    private static void createVirtualTableIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.VIRTUAL_TYPE_INDEX + ON
+                + ProviderTableMeta.VIRTUAL_TABLE_NAME + "("
+                + ProviderTableMeta.VIRTUAL_TYPE + ", "
+                + ProviderTableMeta.VIRTUAL_OCFILE_ID + ");"
+        );
     }
 
     private void createFileSystemTable(SQLiteDatabase db) {
@@ -904,10 +1126,83 @@ public class FileContentProvider extends ContentProvider {
                 + ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD + " INTEGER, "
                 + ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " STRING, "
                 + ProviderTableMeta.FILESYSTEM_CRC32 + " STRING, "
+                + ProviderTableMeta.FILESYSTEM_FILE_SIZE + " LONG, "
                 + ProviderTableMeta.FILESYSTEM_FILE_MODIFIED + " LONG );"
         );
     }
 
+    private void createDownloadsTable(SQLiteDatabase db) {
+        // downloads requested in batches, waiting to be performed
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + ProviderTableMeta.DOWNLOADS_TABLE_NAME + "("
+                + ProviderTableMeta._ID + " INTEGER PRIMARY KEY, "
+                + ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + TEXT
+                + ProviderTableMeta.DOWNLOADS_FILE_ID + INTEGER
+                + ProviderTableMeta.DOWNLOADS_REMOTE_PATH + " TEXT );"
+        );
+        // a file is queued once
+        db.execSQL(CREATE_UNIQUE_INDEX + ProviderTableMeta.DOWNLOADS_ACCOUNT_PATH_INDEX + ON
+                + ProviderTableMeta.DOWNLOADS_TABLE_NAME + "("
+                + ProviderTableMeta.DOWNLOADS_ACCOUNT_NAME + ", "
+                + ProviderTableMeta.DOWNLOADS_REMOTE_PATH + ");"
+        );
+    }
+
+    /**
+     * Creates the secondary indexes of the files table, the ones used by the lookups by path, the listing of folder
+     * contents, the scan for files kept in sync and the ranges of local paths.
+     *
+     * @param db Database where table of files is included.
+     */
+    static void createFilesTableIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILE_ACCOUNT_PATH_INDEX + ON
+                + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta.FILE_ACCOUNT_OWNER + ", "
+                + ProviderTableMeta.FILE_PATH + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILE_ACCOUNT_PARENT_INDEX + ON
+                + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta.FILE_ACCOUNT_OWNER + ", "
+                + ProviderTableMeta.FILE_PARENT + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILE_KEEP_IN_SYNC_INDEX + ON
+                + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta.FILE_KEEP_IN_SYNC + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILE_STORAGE_PATH_INDEX + ON
+                + ProviderTableMeta.FILE_TABLE_NAME + "("
+                + ProviderTableMeta.FILE_STORAGE_PATH + ");"
+        );
+    }
+
+    private static void createFileSystemTableIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_PATH_INDEX + ON
+                + ProviderTableMeta.FILESYSTEM_TABLE_NAME + "("
+                + ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + ", "
+                + ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.FILESYSTEM_SENT_FOR_UPLOAD_INDEX + ON
+                + ProviderTableMeta.FILESYSTEM_TABLE_NAME + "("
+                + ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD + ");"
+        );
+    }
+
+    private static void createUploadsTableIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.UPLOADS_ACCOUNT_PATH_INDEX + ON
+                + ProviderTableMeta.UPLOADS_TABLE_NAME + "("
+                + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + ", "
+                + ProviderTableMeta.UPLOADS_REMOTE_PATH + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.UPLOADS_ACCOUNT_STATUS_INDEX + ON
+                + ProviderTableMeta.UPLOADS_TABLE_NAME + "("
+                + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + ", "
+                + ProviderTableMeta.UPLOADS_STATUS + ");"
+        );
+        db.execSQL(CREATE_INDEX + ProviderTableMeta.UPLOADS_STATUS_INDEX + ON
+                + ProviderTableMeta.UPLOADS_TABLE_NAME + "("
+                + ProviderTableMeta.UPLOADS_STATUS + ");"
+        );
+    }
+
     /**
      * Version 10 of database does not modify its scheme. It coincides with the upgrade of the ownCloud account names
      * structure to include in it the path to the server instance. Updating the account names and path to local files
@@ -1063,6 +1358,13 @@ public class FileContentProvider extends ContentProvider {
             // Create filesystem table
             createFileSystemTable(db);
 
+            // Create downloads table
+            createDownloadsTable(db);
+
+            // Create indexes
+            createFilesTableIndexes(db);
+            createFileSystemTableIndexes(db);
+            createUploadsTableIndexes(db);
         }
 
         @Override
@@ -1844,6 +2146,111 @@ public class FileContentProvider extends ContentProvider {
             if (!upgraded) {
                 Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
             }
+
+            if (oldVersion < 40 && newVersion >= 40) {
+                Log_OC.i(SQL, "Entering in the #40 add indexes to file, filesystem and uploads tables");
+                db.beginTransaction();
+                try {
+                    createFilesTableIndexes(db);
+                    createFileSystemTableIndexes(db);
+                    createUploadsTableIndexes(db);
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
+
+            if (oldVersion < 41 && newVersion >= 41) {
+                Log_OC.i(SQL, "Entering in the #41 add file size to filesystem table");
+                db.beginTransaction();
+                try {
+                    if (!checkIfColumnExists(db, ProviderTableMeta.FILESYSTEM_TABLE_NAME,
+                                             ProviderTableMeta.FILESYSTEM_FILE_SIZE)) {
+                        db.execSQL(ALTER_TABLE + ProviderTableMeta.FILESYSTEM_TABLE_NAME +
+                                       ADD_COLUMN + ProviderTableMeta.FILESYSTEM_FILE_SIZE + " LONG ");
+                    }
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
+
+            if (oldVersion < 42 && newVersion >= 42) {
+                Log_OC.i(SQL, "Entering in the #42 add index to virtual table");
+                db.beginTransaction();
+                try {
+                    createVirtualTableIndexes(db);
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
+
+            if (oldVersion < 43 && newVersion >= 43) {
+                Log_OC.i(SQL, "Entering in the #43 add chunk state to uploads table");
+                db.beginTransaction();
+                try {
+                    if (!checkIfColumnExists(db, ProviderTableMeta.UPLOADS_TABLE_NAME,
+                                             ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID)) {
+                        db.execSQL(ALTER_TABLE + ProviderTableMeta.UPLOADS_TABLE_NAME +
+                                       ADD_COLUMN + ProviderTableMeta.UPLOADS_CHUNK_TRANSFER_ID + " INTEGER ");
+                    }
+                    if (!checkIfColumnExists(db, ProviderTableMeta.UPLOADS_TABLE_NAME,
+                                             ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED)) {
+                        db.execSQL(ALTER_TABLE + ProviderTableMeta.UPLOADS_TABLE_NAME +
+                                       ADD_COLUMN + ProviderTableMeta.UPLOADS_CHUNK_FILE_MODIFIED + " INTEGER ");
+                    }
+                    if (!checkIfColumnExists(db, ProviderTableMeta.UPLOADS_TABLE_NAME,
+                                             ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED)) {
+                        db.execSQL(ALTER_TABLE + ProviderTableMeta.UPLOADS_TABLE_NAME +
+                                       ADD_COLUMN + ProviderTableMeta.UPLOADS_CHUNKS_CONFIRMED + " TEXT ");
+                    }
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
+
+            if (oldVersion < 44 && newVersion >= 44) {
+                Log_OC.i(SQL, "Entering in the #44 add downloads table");
+                db.beginTransaction();
+                try {
+                    createDownloadsTable(db);
+
+                    upgraded = true;
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+
+            if (!upgraded) {
+                Log_OC.i(SQL, String.format(Locale.ENGLISH, UPGRADE_VERSION_MSG, oldVersion, newVersion));
+            }
         }
 
         @Override
@@ -168,7 +168,7 @@ public class OperationsService extends Service {
         mOperationsHandler = new ServiceHandler(thread.getLooper(), this);
         mOperationsBinder = new OperationsServiceBinder(mOperationsHandler);
 
-        // Separated worker thread for download of folders (WIP)
+        // Separated thread dispatching the download of folders to a pool of workers (WIP)
         thread = new HandlerThread("Syncfolder thread", Process.THREAD_PRIORITY_BACKGROUND);
         thread.start();
         mSyncFolderHandler = new SyncFolderHandler(thread.getLooper(), this);
@@ -201,7 +201,7 @@ public class OperationsService extends Service {
             if (itemToQueue != null) {
                 mSyncFolderHandler.add(account, remotePath,
                         (SynchronizeFolderOperation)itemToQueue.second);
-                Message msg = mSyncFolderHandler.obtainMessage();
+                Message msg = mSyncFolderHandler.obtainMessage(SyncFolderHandler.MSG_SYNC_FOLDER);
                 msg.arg1 = startId;
                 msg.obj = itemSyncKey;
                 mSyncFolderHandler.sendMessage(msg);
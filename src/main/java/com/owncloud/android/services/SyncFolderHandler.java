@@ -37,12 +37,16 @@ import com.owncloud.android.lib.common.OwnCloudClientManagerFactory;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.operations.SynchronizeFolderOperation;
+import com.owncloud.android.operations.common.SyncScheduler;
 import com.owncloud.android.utils.FileStorageUtils;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * SyncFolder worker. Performs the pending operations in the order they were requested.
+ * SyncFolder dispatcher. Runs the pending operations on the workers of the {@link SyncScheduler}, in the order they
+ * were requested.
  *
  * Created with the Looper of a new thread, started in
  * {@link com.owncloud.android.services.OperationsService#onCreate()}.
@@ -51,13 +55,21 @@ class SyncFolderHandler extends Handler {
 
     private static final String TAG = SyncFolderHandler.class.getSimpleName();
 
+    static final int MSG_SYNC_FOLDER = 0;
+    private static final int MSG_SYNC_FINISHED = 1;
+
     private OperationsService mService;
 
     private IndexedForest<SynchronizeFolderOperation> mPendingOperations = new IndexedForest<>();
 
-    private Account mCurrentAccount;
-    private FileDataStorageManager mStorageManager;
-    private SynchronizeFolderOperation mCurrentSyncOperation;
+    /** Operations being executed by the workers, with the name of their account */
+    private final Map<SynchronizeFolderOperation, String> mCurrentSyncOperations = new ConcurrentHashMap<>();
+
+    private final Object mClientLock = new Object();
+
+    // handler thread only
+    private int mQueuedOperations;
+    private int mLastStartId;
 
 
     public SyncFolderHandler(Looper looper, OperationsService service) {
@@ -84,48 +96,68 @@ class SyncFolderHandler extends Handler {
 
     @Override
     public void handleMessage(Message msg) {
-        Pair<Account, String> itemSyncKey = (Pair<Account, String>) msg.obj;
-        doOperation(itemSyncKey.first, itemSyncKey.second);
-        Log_OC.d(TAG, "Stopping after command with id " + msg.arg1);
-        mService.stopSelf(msg.arg1);
+        switch (msg.what) {
+            case MSG_SYNC_FOLDER:
+                Pair<Account, String> itemSyncKey = (Pair<Account, String>) msg.obj;
+                mLastStartId = msg.arg1;
+                mQueuedOperations++;
+                SyncScheduler.execute(() -> {
+                    doOperation(itemSyncKey.first, itemSyncKey.second);
+                    sendEmptyMessage(MSG_SYNC_FINISHED);
+                });
+                break;
+
+            case MSG_SYNC_FINISHED:
+                mQueuedOperations--;
+                if (mQueuedOperations == 0) {
+                    Log_OC.d(TAG, "Stopping after command with id " + mLastStartId);
+                    mService.stopSelf(mLastStartId);
+                }
+                break;
+
+            default:
+                break;
+        }
     }
 
 
     /**
-     * Performs the next operation in the queue
+     * Performs an operation of the queue, on a worker.
      */
     private void doOperation(Account account, String remotePath) {
 
-        mCurrentSyncOperation = mPendingOperations.get(account.name, remotePath);
+        SynchronizeFolderOperation syncOperation = mPendingOperations.get(account.name, remotePath);
 
-        if (mCurrentSyncOperation != null) {
+        if (syncOperation != null) {
             RemoteOperationResult result;
+            mCurrentSyncOperations.put(syncOperation, account.name);
 
             try {
 
-                if (mCurrentAccount == null || !mCurrentAccount.equals(account)) {
-                    mCurrentAccount = account;
-                    mStorageManager = new FileDataStorageManager(
-                            account,
-                            mService.getContentResolver()
-                    );
-                }   // else, reuse storage manager from previous operation
+                FileDataStorageManager storageManager = new FileDataStorageManager(
+                        account,
+                        mService.getContentResolver()
+                );
 
                 // always get client from client manager, to get fresh credentials in case of update
                 OwnCloudAccount ocAccount = new OwnCloudAccount(account, mService);
-                OwnCloudClient mOwnCloudClient = OwnCloudClientManagerFactory.getDefaultSingleton().
-                        getClientFor(ocAccount, mService);
+                OwnCloudClient mOwnCloudClient;
+                synchronized (mClientLock) {
+                    mOwnCloudClient = OwnCloudClientManagerFactory.getDefaultSingleton().
+                            getClientFor(ocAccount, mService);
+                }
 
-                result = mCurrentSyncOperation.execute(mOwnCloudClient, mStorageManager);
+                result = syncOperation.execute(mOwnCloudClient, storageManager);
                 sendBroadcastFinishedSyncFolder(account, remotePath, result.isSuccess());
-                mService.dispatchResultToOperationListeners(mCurrentSyncOperation, result);
+                mService.dispatchResultToOperationListeners(syncOperation, result);
 
             } catch (AccountsException | IOException e) {
                 sendBroadcastFinishedSyncFolder(account, remotePath, false);
-                mService.dispatchResultToOperationListeners(mCurrentSyncOperation, new RemoteOperationResult(e));
-                
+                mService.dispatchResultToOperationListeners(syncOperation, new RemoteOperationResult(e));
+
                 Log_OC.e(TAG, "Error while trying to get authorization", e);
             } finally {
+                mCurrentSyncOperations.remove(syncOperation);
                 mPendingOperations.removePayload(account.name, remotePath);
             }
         }
@@ -156,12 +188,13 @@ class SyncFolderHandler extends Handler {
         SynchronizeFolderOperation synchronization = removeResult.first;
         if (synchronization != null) {
             synchronization.cancel();
-        } else {
-            // TODO synchronize?
-            if (mCurrentSyncOperation != null && mCurrentAccount != null &&
-                    mCurrentSyncOperation.getRemotePath().startsWith(file.getRemotePath()) &&
-                    account.name.equals(mCurrentAccount.name)) {
-                mCurrentSyncOperation.cancel();
+        }
+
+        // running synchronizations of descendants are no longer pending
+        for (Map.Entry<SynchronizeFolderOperation, String> current : mCurrentSyncOperations.entrySet()) {
+            if (account.name.equals(current.getValue()) &&
+                    current.getKey().getRemotePath().startsWith(file.getRemotePath())) {
+                current.getKey().cancel();
             }
         }
 
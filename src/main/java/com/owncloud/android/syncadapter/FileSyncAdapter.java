@@ -33,6 +33,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SyncResult;
 import android.os.Bundle;
+import android.util.Pair;
 
 import com.owncloud.android.R;
 import com.owncloud.android.authentication.AuthenticatorActivity;
@@ -52,10 +53,17 @@ import com.owncloud.android.utils.ThemeUtils;
 import org.apache.jackrabbit.webdav.DavException;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.PluralsRes;
 import androidx.core.app.NotificationCompat;
@@ -75,6 +83,9 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
      * the synchronization operation */
     private static final int MAX_FAILED_RESULTS = 3;
 
+    /** Maximum number of folders fetched at the same time in a delta synchronization */
+    private static final int MAX_CONCURRENT_FOLDERS = 4;
+
 
     public static final String EVENT_FULL_SYNC_START = FileSyncAdapter.class.getName() +
             ".EVENT_FULL_SYNC_START";
@@ -95,6 +106,11 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
     /** Flag made 'true' when a request to cancel the synchronization is received */
     private boolean mCancellation;
 
+    /**
+     * 'True' when only the folders whose ETag changed are fetched, see {@link #synchronizeChangedFolders(OCFile)}
+     */
+    private boolean mDeltaSync;
+
     /** Counter for failed operations in the synchronization process */
     private int mFailedResultsCounter;
 
@@ -173,11 +189,19 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
         /* When 'true' the process was requested by the user through the user interface;
            when 'false', it was requested automatically by the system */
         boolean mIsManualSync = extras.getBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, false);
+
+        // automatic synchronizations only fetch what changed; the user gets a full walk on request
+        mDeltaSync = !mIsManualSync;
         try {
             updateOCVersion();
             mCurrentSyncTime = System.currentTimeMillis();
             if (!mCancellation) {
-                synchronizeFolder(getStorageManager().getFileByPath(OCFile.ROOT_PATH));
+                OCFile rootFolder = getStorageManager().getFileByPath(OCFile.ROOT_PATH);
+                if (mDeltaSync) {
+                    synchronizeChangedFolders(rootFolder);
+                } else {
+                    synchronizeFolder(rootFolder);
+                }
 
             } else {
                 Log_OC.d(TAG, "Leaving synchronization before synchronizing the root folder " +
@@ -267,7 +291,111 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
                                                                                   );
         RemoteOperationResult result = synchFolderOp.execute(getClient());
 
+        if (processFolderResult(folder, synchFolderOp, result)) {
+            // synchronize children folders
+            List<OCFile> children = synchFolderOp.getChildren();
+            // beware of the 'hidden' recursion here!
+            syncChildren(children);
+        }
+    }
 
+    /**
+     * Synchronizes the folders of the account whose contents changed since the last synchronization.
+     *
+     * The ETag of a folder changes with any change in its subtree, so a folder whose ETag matches the stored one is
+     * skipped with all its descendants. The ETags of the child folders are read along with the contents of their
+     * parent, so that unchanged folders cost no request at all and a synchronization costs requests in proportion to
+     * the changes, not to the size of the tree. Changed folders are fetched depth first, up to
+     * {@link #MAX_CONCURRENT_FOLDERS} at the same time.
+     *
+     * Local changes in available offline files of skipped folders are left to
+     * {@link com.owncloud.android.jobs.OfflineSyncJob}.
+     *
+     * @param rootFolder Folder to start from.
+     */
+    private void synchronizeChangedFolders(OCFile rootFolder) {
+        Deque<Pair<OCFile, String>> pendingFolders = new ArrayDeque<>();
+        pendingFolders.push(new Pair<>(rootFolder, null));
+        int unchangedFolders = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_FOLDERS);
+        CompletionService<FolderResult> completionService = new ExecutorCompletionService<>(executor);
+        int running = 0;
+
+        try {
+            do {
+                while (running < MAX_CONCURRENT_FOLDERS && !pendingFolders.isEmpty() && !mCancellation &&
+                        mFailedResultsCounter <= MAX_FAILED_RESULTS && !isFinisher(mLastFailedResult)) {
+                    final Pair<OCFile, String> pending = pendingFolders.pop();
+                    final RefreshFolderOperation refreshFolderOperation =
+                            new RefreshFolderOperation(pending.first, mCurrentSyncTime, true, false,
+                                                       getStorageManager(), getAccount(), getContext());
+                    refreshFolderOperation.setRemoteFolderETag(pending.second);
+                    completionService.submit(() -> new FolderResult(pending.first, refreshFolderOperation,
+                                                                    refreshFolderOperation.execute(getClient())));
+                    running++;
+                }
+
+                if (running == 0) {
+                    break;
+                }
+
+                // results are processed by this thread only
+                FolderResult done = completionService.take().get();
+                running--;
+
+                RefreshFolderOperation refreshFolderOperation = done.operation;
+                if (!processFolderResult(done.folder, refreshFolderOperation, done.result) ||
+                        !refreshFolderOperation.isRemoteFolderChanged()) {
+                    continue;
+                }
+
+                // last child pushed first, so that children are fetched in order
+                Map<String, String> remoteETags = refreshFolderOperation.getRemoteChildFoldersETags();
+                List<OCFile> children = refreshFolderOperation.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    OCFile child = children.get(i);
+                    if (!child.isFolder()) {
+                        continue;
+                    }
+                    String remoteETag = remoteETags.get(child.getRemotePath());
+                    if (remoteETag != null && remoteETag.equalsIgnoreCase(child.getEtag())) {
+                        unchangedFolders++;
+                    } else {
+                        pendingFolders.push(new Pair<>(child, remoteETag));
+                    }
+                }
+            } while (running > 0 || !pendingFolders.isEmpty());
+
+        } catch (InterruptedException e) {
+            Log_OC.d(TAG, "Delta synchronization interrupted");
+            Thread.currentThread().interrupt();
+
+        } catch (ExecutionException e) {
+            Log_OC.e(TAG, "Delta synchronization failed", e.getCause());
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (mCancellation && !pendingFolders.isEmpty()) {
+            Log_OC.d(TAG, "Leaving synchronization before synchronizing " + pendingFolders.peek().first
+                    .getRemotePath() + " due to cancellation request");
+        }
+
+        Log_OC.d(TAG, "Delta synchronization skipped " + unchangedFolders + " unchanged folders");
+    }
+
+    /**
+     * Notifies the synchronization of a folder and updates the statistics with its result.
+     *
+     * @param folder                 Synchronized folder.
+     * @param refreshFolderOperation Operation that synchronized the folder.
+     * @param result                 Result of the operation.
+     * @return 'True' if the folder was synchronized and its children can be synchronized.
+     */
+    private boolean processFolderResult(OCFile folder, RefreshFolderOperation refreshFolderOperation,
+                                        RemoteOperationResult result) {
         // synchronized folder -> notice to UI - ALWAYS, although !result.isSuccess
         sendLocalBroadcast(EVENT_FULL_SYNC_FOLDER_CONTENTS_SYNCED, folder.getRemotePath(), result);
 
@@ -275,18 +403,13 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
         if (result.isSuccess() || result.getCode() == ResultCode.SYNC_CONFLICT) {
 
             if (result.getCode() == ResultCode.SYNC_CONFLICT) {
-                mConflictsFound += synchFolderOp.getConflictsFound();
-                mFailsInFavouritesFound += synchFolderOp.getFailsInKeptInSyncFound();
-            }
-            if (synchFolderOp.getForgottenLocalFiles().size() > 0) {
-                mForgottenLocalFiles.putAll(synchFolderOp.getForgottenLocalFiles());
+                mConflictsFound += refreshFolderOperation.getConflictsFound();
+                mFailsInFavouritesFound += refreshFolderOperation.getFailsInKeptInSyncFound();
             }
-            if (result.isSuccess()) {
-                // synchronize children folders
-                List<OCFile> children = synchFolderOp.getChildren();
-                // beware of the 'hidden' recursion here!
-                syncChildren(children);
+            if (refreshFolderOperation.getForgottenLocalFiles().size() > 0) {
+                mForgottenLocalFiles.putAll(refreshFolderOperation.getForgottenLocalFiles());
             }
+            return result.isSuccess();
 
         } else if (result.getCode() != ResultCode.FILE_NOT_FOUND) {
             // in failures, the statistics for the global result are updated
@@ -306,6 +429,7 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
           // removed from other thread or other client during the synchronization,
           // before this thread fetched its contents
 
+        return false;
     }
 
     /**
@@ -551,4 +675,19 @@ public class FileSyncAdapter extends AbstractOwnCloudSyncAdapter {
     private String getQuantityString(@PluralsRes int id, int quantity, Object... formatArgs) {
         return getContext().getResources().getQuantityString(id, quantity, formatArgs);
     }
+
+    /**
+     * Synchronization of a single folder in a delta synchronization.
+     */
+    private static class FolderResult {
+        private final OCFile folder;
+        private final RefreshFolderOperation operation;
+        private final RemoteOperationResult result;
+
+        private FolderResult(OCFile folder, RefreshFolderOperation operation, RemoteOperationResult result) {
+            this.folder = folder;
+            this.operation = operation;
+            this.result = result;
+        }
+    }
 }
@@ -29,15 +29,19 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnClickListener;
 import android.os.AsyncTask;
+import android.text.format.DateUtils;
 import android.view.View;
 
 import com.owncloud.android.MainApp;
 import com.owncloud.android.R;
 import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.utils.Log_OC;
-import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.DisplayUtils;
+import com.owncloud.android.utils.StorageMigrationEngine;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * @author Bartosz Przybylski
@@ -326,6 +330,10 @@ public class StorageMigration {
             private int getResId() { return mResId; }
         }
 
+        private StorageMigrationEngine mMigrationEngine;
+        private boolean mMovedByRename;
+        private volatile String mProgressMessage;
+
         public FileMigrationTask(Context context,
                                  String source,
                                  String target,
@@ -342,15 +350,20 @@ public class StorageMigration {
 
             try {
                 File dstFile = new File(mStorageTarget + File.separator + MainApp.getDataFolder());
-                deleteRecursive(dstFile);
-                dstFile.delete();
-
                 File srcFile = new File(mStorageSource + File.separator + MainApp.getDataFolder());
+                mMigrationEngine = new StorageMigrationEngine(srcFile, dstFile, this::onMigrationProgress);
+
+                boolean resuming = mMigrationEngine.isResumable();
+                if (!resuming) {
+                    deleteRecursive(dstFile);
+                    dstFile.delete();
+                }   // else, keep the files copied before the previous migration was interrupted
+
                 srcFile.mkdirs();
 
                 publishProgress(R.string.file_migration_checking_destination);
 
-                checkDestinationAvailability();
+                checkDestinationAvailability(resuming);
 
                 publishProgress(R.string.file_migration_saving_accounts_configuration);
                 syncState = saveAccountsSyncStatus();
@@ -360,13 +373,20 @@ public class StorageMigration {
                 waitForUnfinishedSynchronizations();
 
                 publishProgress(R.string.file_migration_migrating);
-                copyFiles();
+                mMovedByRename = !resuming && mMigrationEngine.moveByRename();
+                if (!mMovedByRename) {
+                    copyFiles();
+                }
 
                 publishProgress(R.string.file_migration_updating_index);
                 updateIndex(mContext);
 
-                publishProgress(R.string.file_migration_cleaning);
-                cleanup();
+                if (!mMovedByRename) {
+                    mMigrationEngine.complete();
+
+                    publishProgress(R.string.file_migration_cleaning);
+                    cleanup();
+                }
 
             } catch (MigrationException e) {
                 rollback();
@@ -382,7 +402,27 @@ public class StorageMigration {
         }
 
 
-        private void checkDestinationAvailability() throws MigrationException {
+        @Override
+        protected void onProgressUpdate(Integer... progress) {
+            if (progress.length > 0 && progress[0] == R.string.file_migration_progress) {
+                mProgressDialog.setMessage(mProgressMessage);
+            } else {
+                super.onProgressUpdate(progress);
+            }
+        }
+
+        private void onMigrationProgress(long migratedBytes, long totalBytes, long bytesPerSecond,
+                                         long remainingSeconds) {
+            mProgressMessage = mContext.getString(R.string.file_migration_progress,
+                                                  DisplayUtils.bytesToHumanReadable(migratedBytes),
+                                                  DisplayUtils.bytesToHumanReadable(totalBytes),
+                                                  DisplayUtils.bytesToHumanReadable(bytesPerSecond),
+                                                  remainingSeconds < 0 ? "…" :
+                                                      DateUtils.formatElapsedTime(remainingSeconds));
+            publishProgress(R.string.file_migration_progress);
+        }
+
+        private void checkDestinationAvailability(boolean resuming) throws MigrationException {
             File srcFile = new File(mStorageSource);
             File dstFile = new File(mStorageTarget);
 
@@ -394,35 +434,27 @@ public class StorageMigration {
                 throw new MigrationException(R.string.file_migration_failed_not_writable);
             }
 
-            if (new File(dstFile, MainApp.getDataFolder()).exists()) {
+            if (!resuming && new File(dstFile, MainApp.getDataFolder()).exists()) {
                 throw new MigrationException(R.string.file_migration_failed_dir_already_exists);
             }
-
-            if (dstFile.getFreeSpace() < FileStorageUtils.getFolderSize(new File(srcFile, MainApp.getDataFolder()))) {
-                throw new MigrationException(R.string.file_migration_failed_not_enough_space);
-            }
         }
 
+        /**
+         * Copies the files not moved with a rename; the space needed is only known once the files copied before an
+         * interruption are skipped.
+         */
         private void copyFiles() throws MigrationException {
-            File srcFile = new File(mStorageSource + File.separator + MainApp.getDataFolder());
-            File dstFile = new File(mStorageTarget + File.separator + MainApp.getDataFolder());
-
-            copyDirs(srcFile, dstFile);
-        }
+            try {
+                long remainingBytes = mMigrationEngine.prepare();
+                if (new File(mStorageTarget).getFreeSpace() < remainingBytes) {
+                    throw new MigrationException(R.string.file_migration_failed_not_enough_space);
+                }
 
-        private void copyDirs(File src, File dst) throws MigrationException {
-            if (!dst.mkdirs()) {
+                mMigrationEngine.copy();
+            } catch (IOException | OperationCancelledException e) {
+                Log_OC.e(TAG, "Migration of files failed", e);
                 throw new MigrationException(R.string.file_migration_failed_while_coping);
             }
-
-            for (File f : src.listFiles()) {
-                if (f.isDirectory()) {
-                    copyDirs(f, new File(dst, f.getName()));
-                } else if (!FileStorageUtils.copyFile(f, new File(dst, f.getName()))) {
-                    throw new MigrationException(R.string.file_migration_failed_while_coping);
-                }
-            }
-
         }
 
         private void updateIndex(Context context) throws MigrationException {
@@ -455,8 +487,16 @@ public class StorageMigration {
         }
 
         private void rollback() {
+            if (mMovedByRename) {
+                if (!mMigrationEngine.undoRename()) {
+                    Log_OC.w(TAG, "Rollback step failed");
+                }
+                return;
+            }
+
+            // copied files are kept with their journal, so that the next migration to the target resumes
             File dstFile = new File(mStorageTarget + File.separator + MainApp.getDataFolder());
-            if (dstFile.exists() && !dstFile.delete()) {
+            if (dstFile.exists() && !mMigrationEngine.isResumable() && !dstFile.delete()) {
                 Log_OC.w(TAG, "Rollback step failed");
             }
         }
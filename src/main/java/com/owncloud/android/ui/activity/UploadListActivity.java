@@ -176,19 +176,19 @@ public class UploadListActivity extends FileActivity {
     }
 
     private void loadItems() {
-        uploadListAdapter.loadUploadItemsFromDb();
-
-        if (uploadListAdapter.getItemCount() > 0) {
-            return;
-        }
+        // items are loaded in background, the empty state is known once they are shown
+        uploadListAdapter.loadUploadItemsFromDb(() -> {
+            if (uploadListAdapter.getItemCount() > 0) {
+                return;
+            }
 
-        swipeListRefreshLayout.setVisibility(View.VISIBLE);
-        swipeListRefreshLayout.setRefreshing(false);
+            swipeListRefreshLayout.setVisibility(View.VISIBLE);
+            swipeListRefreshLayout.setRefreshing(false);
+        });
     }
 
     private void refresh() {
-        uploadListAdapter.loadUploadItemsFromDb();
-        swipeListRefreshLayout.setRefreshing(false);
+        uploadListAdapter.loadUploadItemsFromDb(() -> swipeListRefreshLayout.setRefreshing(false));
     }
 
     @Override
@@ -206,6 +206,8 @@ public class UploadListActivity extends FileActivity {
         uploadIntentFilter.addAction(FileUploader.getUploadFinishMessage());
         registerReceiver(mUploadMessagesReceiver, uploadIntentFilter);
 
+        uploadListAdapter.startObserving();
+
         Log_OC.v(TAG, "onResume() end");
 
     }
@@ -213,6 +215,7 @@ public class UploadListActivity extends FileActivity {
     @Override
     protected void onPause() {
         Log_OC.v(TAG, "onPause() start");
+        uploadListAdapter.stopObserving();
         if (mUploadMessagesReceiver != null) {
             unregisterReceiver(mUploadMessagesReceiver);
             mUploadMessagesReceiver = null;
@@ -358,7 +361,7 @@ public class UploadListActivity extends FileActivity {
     }
 
     /**
-     * Once the file upload has changed its status -> update uploads list view
+     * Removes the sticky upload messages; the uploads list view follows the changes of the uploads by itself
      */
     private class UploadMessagesReceiver extends BroadcastReceiver {
         /**
@@ -366,14 +369,9 @@ public class UploadListActivity extends FileActivity {
          */
         @Override
         public void onReceive(Context context, Intent intent) {
-            try {
-                uploadListAdapter.loadUploadItemsFromDb();
-            } finally {
-                if (intent != null) {
-                    removeStickyBroadcast(intent);
-                }
+            if (intent != null) {
+                removeStickyBroadcast(intent);
             }
-
         }
     }
 
@@ -30,11 +30,17 @@ import com.owncloud.android.BuildConfig;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DiskLruImageCache {
 
@@ -45,75 +51,126 @@ public class DiskLruImageCache {
     private static final int VALUE_COUNT = 1;
     private static final int IO_BUFFER_SIZE = 8 * 1024;
     private static final String CACHE_TEST_DISK = "cache_test_DISK_";
+    private static final int LOCK_STRIPES = 32;
+    private static final int FLUSH_WRITE_COUNT = 32;
+    private static final long FLUSH_DELAY_MS = 2000;
 
     private static final String TAG = DiskLruImageCache.class.getSimpleName();
 
+    private final Object[] mKeyLocks = new Object[LOCK_STRIPES];
+    private final AtomicInteger mPendingWrites = new AtomicInteger();
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService mFlushExecutor = Executors.newSingleThreadScheduledExecutor();
+
     public DiskLruImageCache(File diskCacheDir, int diskCacheSize, CompressFormat compressFormat, int quality)
             throws IOException {
         mDiskCache = DiskLruCache.open(diskCacheDir, CACHE_VERSION, VALUE_COUNT, diskCacheSize);
         mCompressFormat = compressFormat;
         mCompressQuality = quality;
-    }
 
-    private boolean writeBitmapToFile(Bitmap bitmap, DiskLruCache.Editor editor) throws IOException {
-        OutputStream out = null;
-        try {
-            out = new BufferedOutputStream(editor.newOutputStream(0), IO_BUFFER_SIZE);
-            return bitmap.compress(mCompressFormat, mCompressQuality, out);
-        } finally {
-            if (out != null) {
-                out.close();
-            }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mKeyLocks[i] = new Object();
         }
     }
 
-    public void put(String key, Bitmap data) {
+    /**
+     * Keys are owned by one of a fixed set of locks, so that only writers of the same key wait for each other.
+     */
+    private Object getKeyLock(String validKey) {
+        return mKeyLocks[(validKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
 
-        DiskLruCache.Editor editor = null;
+    public void put(String key, Bitmap data) {
         String validKey = convertToValidKey(key);
-        try {
-            editor = mDiskCache.edit(validKey);
-            if (editor == null) {
-                return;
+
+        // compress outside of any lock, only the write of the encoded bytes is serialized per key
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(IO_BUFFER_SIZE);
+        if (!data.compress(mCompressFormat, mCompressQuality, encoded)) {
+            if (BuildConfig.DEBUG) {
+                Log_OC.d(CACHE_TEST_DISK, "ERROR on: image put on disk cache " + validKey);
             }
+            return;
+        }
+
+        synchronized (getKeyLock(validKey)) {
+            DiskLruCache.Editor editor = null;
+            try {
+                editor = mDiskCache.edit(validKey);
+                if (editor == null) {
+                    return;
+                }
 
-            if (writeBitmapToFile(data, editor)) {
-                mDiskCache.flush();
+                try (OutputStream out = editor.newOutputStream(0)) {
+                    encoded.writeTo(out);
+                }
                 editor.commit();
                 if (BuildConfig.DEBUG) {
                     Log_OC.d(CACHE_TEST_DISK, "image put on disk cache " + validKey);
                 }
-            } else {
-                editor.abort();
+            } catch (IOException e) {
                 if (BuildConfig.DEBUG) {
                     Log_OC.d(CACHE_TEST_DISK, "ERROR on: image put on disk cache " + validKey);
                 }
+                try {
+                    if (editor != null) {
+                        editor.abort();
+                    }
+                } catch (IOException ex) {
+                    Log_OC.d(TAG, "Error aborting editor", ex);
+                }
+                return;
             }
-        } catch (IOException e) {
-            if (BuildConfig.DEBUG) {
-                Log_OC.d(CACHE_TEST_DISK, "ERROR on: image put on disk cache " + validKey);
-            }
+        }
+
+        onWrite();
+    }
+
+    /**
+     * Flushes the journal every {@link #FLUSH_WRITE_COUNT} writes, or {@link #FLUSH_DELAY_MS} after the first
+     * unflushed one, instead of on every write.
+     */
+    private void onWrite() {
+        if (mPendingWrites.incrementAndGet() >= FLUSH_WRITE_COUNT) {
+            flush();
+        } else if (mFlushScheduled.compareAndSet(false, true)) {
             try {
-                if (editor != null) {
-                    editor.abort();
-                }
-            } catch (IOException ex) {
-                Log_OC.d(TAG, "Error aborting editor", ex);
+                mFlushExecutor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                mFlushScheduled.set(false);
             }
         }
     }
 
+    /**
+     * Writes the journal of pending entries to disk.
+     */
+    public void flush() {
+        mFlushScheduled.set(false);
+        if (mPendingWrites.getAndSet(0) == 0) {
+            return;
+        }
+
+        try {
+            mDiskCache.flush();
+        } catch (IOException | IllegalStateException e) {
+            Log_OC.d(TAG, "Error flushing disk cache journal", e);
+        }
+    }
+
     public Bitmap getBitmap(String key) {
 
         Bitmap bitmap = null;
         DiskLruCache.Snapshot snapshot = null;
         String validKey = convertToValidKey(key);
-        
+
         try {
-            snapshot = mDiskCache.get(validKey);
+            synchronized (getKeyLock(validKey)) {
+                snapshot = mDiskCache.get(validKey);
+            }
             if (snapshot == null) {
                 return null;
             }
+            // a snapshot keeps its stream valid even if the entry is edited meanwhile, decode outside of the lock
             final InputStream in = snapshot.getInputStream(0);
             if (in != null) {
                 final BufferedInputStream buffIn =
@@ -182,11 +239,13 @@ public class DiskLruImageCache {
      */
     public void removeKey(String key) {
         String validKey = convertToValidKey(key);
-        try {
-            mDiskCache.remove(validKey);
-            Log_OC.d(TAG, "removeKey from cache: " + validKey);
-        } catch (IOException e) {
-            Log_OC.d(TAG, e.getMessage(), e);
+        synchronized (getKeyLock(validKey)) {
+            try {
+                mDiskCache.remove(validKey);
+                Log_OC.d(TAG, "removeKey from cache: " + validKey);
+            } catch (IOException e) {
+                Log_OC.d(TAG, e.getMessage(), e);
+            }
         }
     }
 }
\ No newline at end of file
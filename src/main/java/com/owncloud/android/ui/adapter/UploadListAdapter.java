@@ -24,8 +24,12 @@ package com.owncloud.android.ui.adapter;
 import android.accounts.Account;
 import android.content.ActivityNotFoundException;
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -42,9 +46,11 @@ import com.owncloud.android.R;
 import com.owncloud.android.authentication.AccountUtils;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
+import com.owncloud.android.datamodel.UploadsChangeBus;
 import com.owncloud.android.datamodel.UploadsStorageManager;
 import com.owncloud.android.datamodel.UploadsStorageManager.UploadStatus;
 import com.owncloud.android.db.OCUpload;
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta;
 import com.owncloud.android.db.UploadResult;
 import com.owncloud.android.files.services.FileUploader;
 import com.owncloud.android.lib.common.utils.Log_OC;
@@ -54,19 +60,43 @@ import com.owncloud.android.utils.MimeTypeUtil;
 import com.owncloud.android.utils.ThemeUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * This Adapter populates a ListView with following types of uploads: pending,active, completed. Filtering possible.
+ *
+ * Uploads are loaded in background. While observing, only the uploads notified as changed are loaded again, and the
+ * list is updated with the differences to the rows shown.
  */
 public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
 
     private static final String TAG = UploadListAdapter.class.getSimpleName();
 
+    private static final long LOAD_DELAY_MILLIS = 200;
+    private static final int MAX_CHANGED_UPLOADS = 500;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Loads the uploads and computes the changes of the list, one load after the other.
+     */
+    private static final ThreadPoolExecutor loadExecutor = createLoadExecutor();
+
     private ProgressListener mProgressListener;
 
     private FileActivity mParentActivity;
@@ -75,6 +105,21 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
 
     private UploadGroup[] mUploadGroups;
 
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ContentObserver mUploadsObserver;
+
+    // coalesces bursts of changes, e.g. of a batch of uploads being stored
+    private final UploadsChangeBus mChangeBus = new UploadsChangeBus(LOAD_DELAY_MILLIS,
+            change -> mMainHandler.post(() -> onUploadsChanged(change)));
+
+    // main thread only, changes to load with the next load
+    private final Set<Long> mChangedUploadIds = new HashSet<>();
+    private boolean mReloadAll;
+    private boolean mObservingStopped;
+
+    // load executor only, rows shown once the last load is applied
+    private List<Row> mLoadedRows = new ArrayList<>();
+
     @Override
     public int getSectionCount() {
         return mUploadGroups.length;
@@ -112,25 +157,83 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
 
         mUploadGroups[0] = new UploadGroup(mParentActivity.getString(R.string.uploads_view_group_current_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(mUploadsStorageManager.getCurrentAndPendingUploadsForCurrentAccount());
+            public OCUpload[] refresh(@Nullable Collection<Long> uploadIds) {
+                return mUploadsStorageManager.getCurrentAndPendingUploadsForCurrentAccount(uploadIds);
             }
         };
 
         mUploadGroups[1] = new UploadGroup(mParentActivity.getString(R.string.uploads_view_group_failed_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(mUploadsStorageManager.getFailedButNotDelayedUploadsForCurrentAccount());
+            public OCUpload[] refresh(@Nullable Collection<Long> uploadIds) {
+                return mUploadsStorageManager.getFailedButNotDelayedUploadsForCurrentAccount(uploadIds);
             }
         };
 
         mUploadGroups[2] = new UploadGroup(mParentActivity.getString(R.string.uploads_view_group_finished_uploads)) {
             @Override
-            public void refresh() {
-                fixAndSortItems(mUploadsStorageManager.getFinishedUploadsForCurrentAccount());
+            public OCUpload[] refresh(@Nullable Collection<Long> uploadIds) {
+                return mUploadsStorageManager.getFinishedUploadsForCurrentAccount(uploadIds);
+            }
+        };
+
+        mUploadsObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChange(selfChange, null);
+            }
+
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                long uploadId = UploadsStorageManager.getUploadId(uri);
+                if (uploadId < 0) {
+                    mChangeBus.postAll();
+                } else {
+                    mChangeBus.post(uploadId);
+                }
             }
         };
-        loadUploadItemsFromDb();
+    }
+
+    private static ThreadPoolExecutor createLoadExecutor() {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                                       new LinkedBlockingQueue<>());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Starts listening to changes of the uploads, loading the changed ones only. Uploads changed while not listening
+     * are caught up with a full load.
+     */
+    public void startObserving() {
+        mParentActivity.getContentResolver().registerContentObserver(ProviderTableMeta.CONTENT_URI_UPLOADS, true,
+                                                                     mUploadsObserver);
+        if (mObservingStopped) {
+            mObservingStopped = false;
+            loadUploadItemsFromDb();
+        }
+    }
+
+    public void stopObserving() {
+        mParentActivity.getContentResolver().unregisterContentObserver(mUploadsObserver);
+        mObservingStopped = true;
+        Log_OC.d(TAG, "Uploads changes: " + mChangeBus.getEmittedEvents() + " loads, " +
+                mChangeBus.getSuppressedEvents() + " changes merged into them");
+    }
+
+    private void onUploadsChanged(UploadsChangeBus.Change change) {
+        if (mObservingStopped) {
+            // caught up with a full load once observing again
+            return;
+        }
+
+        Set<Long> uploadIds = change.getUploadIds();
+        if (uploadIds == null || mChangedUploadIds.size() + uploadIds.size() > MAX_CHANGED_UPLOADS) {
+            mReloadAll = true;
+        } else {
+            mChangedUploadIds.addAll(uploadIds);
+        }
+        startLoad(null);
     }
 
     @Override
@@ -502,16 +605,66 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
     }
 
     /**
-     * Load upload items from {@link UploadsStorageManager}.
+     * Load upload items from {@link UploadsStorageManager}, in background. The list is updated with the changes.
      */
     public void loadUploadItemsFromDb() {
+        loadUploadItemsFromDb(null);
+    }
+
+    /**
+     * Load upload items from {@link UploadsStorageManager}, in background. The list is updated with the changes.
+     *
+     * @param onLoaded run on the main thread once the list shows the loaded items
+     */
+    public void loadUploadItemsFromDb(@Nullable Runnable onLoaded) {
         Log_OC.d(TAG, "loadUploadItemsFromDb");
+        mReloadAll = true;
+        startLoad(onLoaded);
+    }
 
-        for (UploadGroup group : mUploadGroups) {
-            group.refresh();
+    private void startLoad(@Nullable Runnable onLoaded) {
+        Set<Long> changedUploadIds = mReloadAll ? null : new HashSet<>(mChangedUploadIds);
+        mReloadAll = false;
+        mChangedUploadIds.clear();
+
+        loadExecutor.execute(() -> load(changedUploadIds, onLoaded));
+    }
+
+    /**
+     * Runs on the load executor: reloads the changed uploads of every group and posts the changes of the list.
+     *
+     * @param changedUploadIds uploads to reload, or null to reload all of them
+     * @param onLoaded         run once the changes are applied
+     */
+    private void load(@Nullable Set<Long> changedUploadIds, @Nullable Runnable onLoaded) {
+        FileUploader.FileUploaderBinder binder = mParentActivity.getFileUploaderBinder();
+
+        OCUpload[][] items = new OCUpload[mUploadGroups.length][];
+        List<Row> rows = new ArrayList<>(mLoadedRows.size());
+        for (int section = 0; section < mUploadGroups.length; section++) {
+            items[section] = mUploadGroups[section].reload(changedUploadIds, binder);
+
+            // rows as laid out by the sectioned adapter, without headers of empty sections
+            if (items[section].length > 0) {
+                rows.add(new Row(section, null, items[section].length));
+                for (OCUpload upload : items[section]) {
+                    rows.add(new Row(section, upload, 0));
+                }
+            }
         }
 
-        notifyDataSetChanged();
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new RowsDiffCallback(mLoadedRows, rows), false);
+        mLoadedRows = rows;
+
+        mMainHandler.post(() -> {
+            for (int section = 0; section < mUploadGroups.length; section++) {
+                mUploadGroups[section].setItems(items[section]);
+            }
+            diffResult.dispatchUpdatesTo(this);
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        });
     }
 
     private boolean onUploadItemClick(OCUpload file) {
@@ -580,14 +733,95 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
         }
     }
 
+    /**
+     * Row of the list, either the header of a group or an upload.
+     */
+    private static class Row {
+        private final int section;
+        @Nullable private final OCUpload upload;
+        private final int count;
+
+        private Row(int section, @Nullable OCUpload upload, int count) {
+            this.section = section;
+            this.upload = upload;
+            this.count = count;
+        }
+    }
+
+    private static class RowsDiffCallback extends DiffUtil.Callback {
+        private final List<Row> oldRows;
+        private final List<Row> newRows;
+
+        private RowsDiffCallback(List<Row> oldRows, List<Row> newRows) {
+            this.oldRows = oldRows;
+            this.newRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldRows.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newRows.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            Row oldRow = oldRows.get(oldItemPosition);
+            Row newRow = newRows.get(newItemPosition);
+
+            if (oldRow.section != newRow.section) {
+                return false;
+            }
+            if (oldRow.upload == null || newRow.upload == null) {
+                return oldRow.upload == newRow.upload;
+            }
+            return oldRow.upload.getUploadId() == newRow.upload.getUploadId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Row oldRow = oldRows.get(oldItemPosition);
+            Row newRow = newRows.get(newItemPosition);
+
+            if (oldRow.upload == null || newRow.upload == null) {
+                return oldRow.count == newRow.count;
+            }
+            if (oldRow.upload == newRow.upload) {
+                return true;
+            }
+
+            // everything shown by the row
+            OCUpload oldUpload = oldRow.upload;
+            OCUpload newUpload = newRow.upload;
+            return oldUpload.getUploadStatus() == newUpload.getUploadStatus() &&
+                oldUpload.getLastResult() == newUpload.getLastResult() &&
+                oldUpload.isFixedUploadingNow() == newUpload.isFixedUploadingNow() &&
+                oldUpload.getFileSize() == newUpload.getFileSize() &&
+                oldUpload.getUploadEndTimestamp() == newUpload.getUploadEndTimestamp() &&
+                TextUtils.equals(oldUpload.getLocalPath(), newUpload.getLocalPath()) &&
+                TextUtils.equals(oldUpload.getRemotePath(), newUpload.getRemotePath()) &&
+                TextUtils.equals(oldUpload.getAccountName(), newUpload.getAccountName());
+        }
+    }
+
     interface Refresh {
-        void refresh();
+        /**
+         * @param uploadIds uploads to restrict the result to, or null for all of them
+         * @return uploads of the group
+         */
+        OCUpload[] refresh(@Nullable Collection<Long> uploadIds);
     }
 
     abstract class UploadGroup implements Refresh {
         private OCUpload[] items;
         private String name;
 
+        // load executor only
+        private final Map<Long, OCUpload> loadedItems = new HashMap<>();
+
         UploadGroup(String groupName) {
             this.name = groupName;
             items = new OCUpload[0];
@@ -609,15 +843,27 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
             this.items = items;
         }
 
-        void fixAndSortItems(OCUpload... array) {
-            FileUploader.FileUploaderBinder binder = mParentActivity.getFileUploaderBinder();
+        /**
+         * Runs on the load executor: replaces the changed uploads with their current state.
+         *
+         * @param uploadIds uploads to reload, or null to reload all of them
+         * @return sorted uploads of the group
+         */
+        OCUpload[] reload(@Nullable Collection<Long> uploadIds, FileUploader.FileUploaderBinder binder) {
+            if (uploadIds == null) {
+                loadedItems.clear();
+            } else {
+                loadedItems.keySet().removeAll(uploadIds);
+            }
 
-            for (OCUpload upload : array) {
+            for (OCUpload upload : refresh(uploadIds)) {
                 upload.setDataFixed(binder);
+                loadedItems.put(upload.getUploadId(), upload);
             }
-            Arrays.sort(array, comparator);
 
-            setItems(array);
+            OCUpload[] array = loadedItems.values().toArray(new OCUpload[0]);
+            Arrays.sort(array, comparator);
+            return array;
         }
 
         private int getGroupItemCount() {
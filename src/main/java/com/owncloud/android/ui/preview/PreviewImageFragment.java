@@ -228,9 +228,9 @@ public class PreviewImageFragment extends FileFragment {
                         String.valueOf(ThumbnailsCacheManager.PREFIX_RESIZED_IMAGE + getFile().getRemoteId()));
 
                 if (resizedImage != null && !getFile().isUpdateThumbnailNeeded()) {
+                    // cached bitmaps are shared through the memory cache, they must not be recycled here
                     mImageView.setImageBitmap(resizedImage);
                     mImageView.setVisibility(View.VISIBLE);
-                    mBitmap = resizedImage;
                 } else {
                     // show thumbnail while loading resized image
                     Bitmap thumbnail = ThumbnailsCacheManager.getBitmapFromDiskCache(
@@ -239,7 +239,6 @@ public class PreviewImageFragment extends FileFragment {
                     if (thumbnail != null) {
                         mImageView.setImageBitmap(thumbnail);
                         mImageView.setVisibility(View.VISIBLE);
-                        mBitmap = thumbnail;
                     } else {
                         thumbnail = ThumbnailsCacheManager.mDefaultImg;
                     }
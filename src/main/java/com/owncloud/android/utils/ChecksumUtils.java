@@ -0,0 +1,133 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import android.os.Build;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Block based CRC32 checksums of local files, used by auto upload to detect changed files.
+ */
+public final class ChecksumUtils {
+    public static final long NO_CHECKSUM = -1;
+
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            // CRC32.update(ByteBuffer) is only available since Oreo, older devices digest the backing array
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                return ByteBuffer.allocateDirect(BUFFER_SIZE);
+            } else {
+                return ByteBuffer.allocate(BUFFER_SIZE);
+            }
+        }
+    };
+
+    private static ExecutorService executor;
+
+    private ChecksumUtils() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * @param path absolute path of a local file
+     * @return CRC32 checksum of the file, or {@link #NO_CHECKSUM} if it could not be read
+     */
+    public static long getCRC32(String path) {
+        ByteBuffer buffer = buffers.get();
+        CRC32 crc = new CRC32();
+
+        try (FileInputStream inputStream = new FileInputStream(path)) {
+            FileChannel channel = inputStream.getChannel();
+
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                update(crc, buffer);
+                buffer.clear();
+            }
+
+            return crc.getValue();
+        } catch (IOException e) {
+            return NO_CHECKSUM;
+        }
+    }
+
+    private static void update(CRC32 crc, ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            crc.update(buffer);
+        }
+    }
+
+    /**
+     * Computes the CRC32 checksums of several files in parallel, on a bounded pool of workers.
+     *
+     * @param paths absolute paths of local files
+     * @return checksum of every path, {@link #NO_CHECKSUM} for files that could not be read
+     */
+    public static Map<String, Long> getCRC32s(Collection<String> paths) {
+        Map<String, Future<Long>> futures = new LinkedHashMap<>();
+        ExecutorService executorService = getExecutor();
+        for (String path : paths) {
+            futures.put(path, executorService.submit(() -> getCRC32(path)));
+        }
+
+        Map<String, Long> checksums = new HashMap<>();
+        for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+            long checksum;
+            try {
+                checksum = entry.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                checksum = NO_CHECKSUM;
+            } catch (ExecutionException e) {
+                checksum = NO_CHECKSUM;
+            }
+            checksums.put(entry.getKey(), checksum);
+        }
+
+        return checksums;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(MAX_WORKERS);
+        }
+        return executor;
+    }
+}
@@ -38,15 +38,23 @@ import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.e2ee.GetMetadataRemoteOperation;
 
 import org.apache.commons.codec.binary.Hex;
+import org.spongycastle.crypto.InvalidCipherTextException;
+import org.spongycastle.crypto.engines.AESEngine;
+import org.spongycastle.crypto.modes.GCMBlockCipher;
+import org.spongycastle.crypto.params.AEADParameters;
+import org.spongycastle.crypto.params.KeyParameter;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -106,6 +114,8 @@ public final class EncryptionUtils {
     private static final String AES = "AES";
     private static final String RSA_CIPHER = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
     private static final String RSA = "RSA";
+    private static final int AUTHENTICATION_TAG_LENGTH = 128 / 8;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     private EncryptionUtils() {
         // utility class -> private constructor
@@ -354,6 +364,101 @@ public final class EncryptionUtils {
         return cipher.doFinal(fileBytes);
     }
 
+    /**
+     * Encrypts a file into another one with fixed size buffers, so that memory use does not depend on the file size.
+     *
+     * @param inputFile          file to crypt
+     * @param outputFile         file to write the encrypted content and the appended authentication tag to
+     * @param encryptionKeyBytes key, either from metadata or {@link EncryptionUtils#generateKey()}
+     * @param iv                 initialization vector, either from metadata or {@link EncryptionUtils#randomBytes(int)}
+     * @return base64 encoded authenticationTag
+     */
+    public static String encryptFile(File inputFile, File outputFile, byte[] encryptionKeyBytes, byte[] iv)
+            throws IOException, InvalidCipherTextException {
+        GCMBlockCipher cipher = createStreamCipher(true, encryptionKeyBytes, iv);
+
+        try (FileInputStream inputStream = new FileInputStream(inputFile);
+             FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+            byte[] tag = processStream(cipher, inputStream.getChannel(), outputStream.getChannel());
+
+            return encodeBytesToBase64String(tag);
+        }
+    }
+
+    /**
+     * Decrypts a file into another one with fixed size buffers, verifying the authentication tag while decrypting.
+     * The output file must only be used if no exception is thrown.
+     *
+     * @param inputFile          encrypted file
+     * @param outputFile         file to write the decrypted content to
+     * @param encryptionKeyBytes key from metadata
+     * @param iv                 initialization vector from metadata
+     * @param authenticationTag  authenticationTag from metadata
+     */
+    public static void decryptFile(File inputFile, File outputFile, byte[] encryptionKeyBytes, byte[] iv,
+                                   byte[] authenticationTag) throws IOException, InvalidCipherTextException {
+        GCMBlockCipher cipher = createStreamCipher(false, encryptionKeyBytes, iv);
+
+        try (FileInputStream inputStream = new FileInputStream(inputFile);
+             FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+            FileChannel inputChannel = inputStream.getChannel();
+
+            // check authentication tag
+            long size = inputChannel.size();
+            if (size < AUTHENTICATION_TAG_LENGTH) {
+                throw new SecurityException("Tag not correct");
+            }
+            ByteBuffer extractedAuthenticationTag = ByteBuffer.allocate(AUTHENTICATION_TAG_LENGTH);
+            while (extractedAuthenticationTag.hasRemaining()) {
+                long position = size - extractedAuthenticationTag.remaining();
+                if (inputChannel.read(extractedAuthenticationTag, position) == -1) {
+                    throw new SecurityException("Tag not correct");
+                }
+            }
+            if (!Arrays.equals(extractedAuthenticationTag.array(), authenticationTag)) {
+                throw new SecurityException("Tag not correct");
+            }
+
+            processStream(cipher, inputChannel, outputStream.getChannel());
+        }
+    }
+
+    private static GCMBlockCipher createStreamCipher(boolean forEncryption, byte[] encryptionKeyBytes, byte[] iv) {
+        // the platform GCM cipher buffers the whole content until doFinal, this one only the tag while decrypting
+        GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(forEncryption, new AEADParameters(new KeyParameter(encryptionKeyBytes),
+                                                      AUTHENTICATION_TAG_LENGTH * 8, iv));
+        return cipher;
+    }
+
+    /**
+     * @return computed authentication tag
+     */
+    private static byte[] processStream(GCMBlockCipher cipher, FileChannel input, FileChannel output)
+            throws IOException, InvalidCipherTextException {
+        byte[] inputBuffer = new byte[STREAM_BUFFER_SIZE];
+        byte[] outputBuffer = new byte[cipher.getUpdateOutputSize(STREAM_BUFFER_SIZE) + AUTHENTICATION_TAG_LENGTH];
+        ByteBuffer inputByteBuffer = ByteBuffer.wrap(inputBuffer);
+
+        int read;
+        while ((read = input.read(inputByteBuffer)) != -1) {
+            int length = cipher.processBytes(inputBuffer, 0, read, outputBuffer, 0);
+            writeFully(output, outputBuffer, length);
+            inputByteBuffer.clear();
+        }
+
+        writeFully(output, outputBuffer, cipher.doFinal(outputBuffer, 0));
+
+        return cipher.getMac();
+    }
+
+    private static void writeFully(FileChannel output, byte[] bytes, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
     public static class EncryptedFile {
         public byte[] encryptedBytes;
         public String authenticationTag;
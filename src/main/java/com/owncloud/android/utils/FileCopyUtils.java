@@ -0,0 +1,157 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Copies local files and documents into the app storage.
+ *
+ * Files are copied by the kernel with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * in slices, so that the copy can be cancelled and its progress reported between them. Documents are read through
+ * their file descriptor, which is copied the same way when it refers to a regular file and through a buffer otherwise,
+ * e.g. for pipes of virtual documents.
+ */
+public final class FileCopyUtils {
+    static final long TRANSFER_SLICE_SIZE = 8 * 1024 * 1024;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileCopyUtils() {
+        // utility class -> private constructor
+    }
+
+    /**
+     * Copies a file, replacing the target.
+     *
+     * @param cancellationRequested checked between slices, the copy stops once it is set
+     */
+    public static void copy(File source, File target, AtomicBoolean cancellationRequested)
+            throws IOException, OperationCancelledException {
+        copy(source, target, cancellationRequested, null);
+    }
+
+    /**
+     * Copies a file, replacing the target.
+     *
+     * @param cancellationRequested checked between slices, the copy stops once it is set
+     * @param listener              optional listener of the copy progress
+     */
+    public static void copy(File source, File target, AtomicBoolean cancellationRequested,
+                            @Nullable OnDatatransferProgressListener listener)
+            throws IOException, OperationCancelledException {
+        try (FileInputStream in = new FileInputStream(source)) {
+            copy(in, in.getChannel().size(), target, source.getName(), cancellationRequested, listener);
+        }
+    }
+
+    /**
+     * Copies a document, e.g. with 'content://' scheme, replacing the target.
+     *
+     * @param cancellationRequested checked between slices, the copy stops once it is set
+     */
+    public static void copy(ContentResolver contentResolver, Uri source, File target,
+                            AtomicBoolean cancellationRequested)
+            throws IOException, OperationCancelledException {
+        ParcelFileDescriptor descriptor = contentResolver.openFileDescriptor(source, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException("No descriptor for " + source);
+        }
+
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor)) {
+            // -1 if the descriptor is not a regular file
+            copy(in, descriptor.getStatSize(), target, source.getLastPathSegment(), cancellationRequested, null);
+        }
+    }
+
+    private static void copy(FileInputStream in, long size, File target, String name,
+                             AtomicBoolean cancellationRequested, @Nullable OnDatatransferProgressListener listener)
+            throws IOException, OperationCancelledException {
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            if (size >= 0) {
+                transfer(in.getChannel(), size, out.getChannel(), name, cancellationRequested, listener);
+            } else {
+                stream(in, out, name, cancellationRequested, listener);
+            }
+        }
+    }
+
+    private static void transfer(FileChannel in, long size, FileChannel out, String name,
+                                 AtomicBoolean cancellationRequested, @Nullable OnDatatransferProgressListener listener)
+            throws IOException, OperationCancelledException {
+        long position = in.position();
+        long transferred = 0;
+
+        while (transferred < size) {
+            if (cancellationRequested.get()) {
+                throw new OperationCancelledException();
+            }
+
+            long count = in.transferTo(position + transferred, Math.min(TRANSFER_SLICE_SIZE, size - transferred),
+                                       out);
+            if (count <= 0) {
+                // file shrunk while copying
+                break;
+            }
+            transferred += count;
+
+            if (listener != null) {
+                listener.onTransferProgress(count, transferred, size, name);
+            }
+        }
+    }
+
+    private static void stream(InputStream in, FileOutputStream out, String name, AtomicBoolean cancellationRequested,
+                               @Nullable OnDatatransferProgressListener listener)
+            throws IOException, OperationCancelledException {
+        // only streamed documents need a buffer, it is not kept between copies
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long transferred = 0;
+        int count;
+        while ((count = in.read(buffer)) > -1) {
+            if (cancellationRequested.get()) {
+                throw new OperationCancelledException();
+            }
+
+            out.write(buffer, 0, count);
+            transferred += count;
+
+            if (listener != null) {
+                // size of streamed documents is unknown
+                listener.onTransferProgress(count, transferred, -1, name);
+            }
+        }
+    }
+}
@@ -40,9 +40,9 @@ import com.owncloud.android.MainApp;
 import com.owncloud.android.authentication.AccountUtils;
 import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.FilesystemDataProvider;
+import com.owncloud.android.datamodel.FilesystemIndexer;
 import com.owncloud.android.datamodel.MediaFolderType;
 import com.owncloud.android.datamodel.SyncedFolder;
-import com.owncloud.android.datamodel.SyncedFolderProvider;
 import com.owncloud.android.datamodel.UploadsStorageManager;
 import com.owncloud.android.db.OCUpload;
 import com.owncloud.android.files.services.FileUploader;
@@ -97,10 +97,13 @@ public final class FilesSyncHelper {
                 arbitraryDataProvider.storeOrUpdateKeyValue(GLOBAL, syncedFolderInitiatedKey,
                         currentTimeString);
             } else {
+                FilesystemIndexer indexer = new FilesystemIndexer(new FilesystemDataProvider(contentResolver),
+                                                                  syncedFolder);
                 FilesSyncHelper.insertContentIntoDB(android.provider.MediaStore.Images.Media.INTERNAL_CONTENT_URI
-                        , syncedFolder);
+                        , syncedFolder, indexer);
                 FilesSyncHelper.insertContentIntoDB(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                        syncedFolder);
+                        syncedFolder, indexer);
+                indexer.commit();
             }
 
         } else if (MediaFolderType.VIDEO == syncedFolder.getType()) {
@@ -109,10 +112,13 @@ public final class FilesSyncHelper {
                 arbitraryDataProvider.storeOrUpdateKeyValue(GLOBAL, syncedFolderInitiatedKey,
                         currentTimeString);
             } else {
+                FilesystemIndexer indexer = new FilesystemIndexer(new FilesystemDataProvider(contentResolver),
+                                                                  syncedFolder);
                 FilesSyncHelper.insertContentIntoDB(android.provider.MediaStore.Video.Media.INTERNAL_CONTENT_URI,
-                        syncedFolder);
+                        syncedFolder, indexer);
                 FilesSyncHelper.insertContentIntoDB(MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                        syncedFolder);
+                        syncedFolder, indexer);
+                indexer.commit();
             }
 
         } else {
@@ -121,7 +127,8 @@ public final class FilesSyncHelper {
                     arbitraryDataProvider.storeOrUpdateKeyValue(GLOBAL, syncedFolderInitiatedKey,
                             currentTimeString);
                 } else {
-                    FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
+                    FilesystemIndexer indexer = new FilesystemIndexer(new FilesystemDataProvider(contentResolver),
+                                                                      syncedFolder);
                     Path path = Paths.get(syncedFolder.getLocalPath());
 
                     String dateInitiated = arbitraryDataProvider.getValue(GLOBAL,
@@ -132,9 +139,12 @@ public final class FilesSyncHelper {
                         public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
 
                             File file = path.toFile();
+                            String localPath = path.toAbsolutePath().toString();
                             if (attrs.lastModifiedTime().toMillis() >= Long.parseLong(dateInitiated) * 1000) {
-                                filesystemDataProvider.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
-                                        attrs.lastModifiedTime().toMillis(), file.isDirectory(), syncedFolder);
+                                indexer.onFileFound(localPath, attrs.lastModifiedTime().toMillis(), attrs.size(),
+                                                    file.isDirectory());
+                            } else {
+                                indexer.onFileSkipped(localPath);
                             }
 
                             return FileVisitResult.CONTINUE;
@@ -142,10 +152,14 @@ public final class FilesSyncHelper {
 
                         @Override
                         public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            indexer.onFileSkipped(file.toAbsolutePath().toString());
+                            indexer.onScanFailed();
                             return FileVisitResult.CONTINUE;
                         }
                     });
 
+                    indexer.commit();
+
                 }
 
             } catch (IOException e) {
@@ -154,19 +168,7 @@ public final class FilesSyncHelper {
         }
     }
 
-    public static void insertAllDBEntries(boolean skipCustom) {
-        final Context context = MainApp.getAppContext();
-        final ContentResolver contentResolver = context.getContentResolver();
-        SyncedFolderProvider syncedFolderProvider = new SyncedFolderProvider(contentResolver);
-
-        for (SyncedFolder syncedFolder : syncedFolderProvider.getSyncedFolders()) {
-            if (syncedFolder.isEnabled() && (MediaFolderType.CUSTOM != syncedFolder.getType() || !skipCustom)) {
-                insertAllDBEntriesForSyncedFolder(syncedFolder);
-            }
-        }
-    }
-
-    private static void insertContentIntoDB(Uri uri, SyncedFolder syncedFolder) {
+    private static void insertContentIntoDB(Uri uri, SyncedFolder syncedFolder, FilesystemIndexer indexer) {
         final Context context = MainApp.getAppContext();
         final ContentResolver contentResolver = context.getContentResolver();
         ArbitraryDataProvider arbitraryDataProvider = new ArbitraryDataProvider(contentResolver);
@@ -175,8 +177,6 @@ public final class FilesSyncHelper {
         int column_index_data;
         int column_index_date_modified;
 
-        final FilesystemDataProvider filesystemDataProvider = new FilesystemDataProvider(contentResolver);
-
         String contentPath;
         boolean isFolder;
 
@@ -200,13 +200,18 @@ public final class FilesSyncHelper {
             column_index_date_modified = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED);
             while (cursor.moveToNext()) {
                 contentPath = cursor.getString(column_index_data);
-                isFolder = new File(contentPath).isDirectory();
+                File file = new File(contentPath);
+                isFolder = file.isDirectory();
                 if (cursor.getLong(column_index_date_modified) >= Long.parseLong(dateInitiated)) {
-                    filesystemDataProvider.storeOrUpdateFileValue(contentPath,
-                            cursor.getLong(column_index_date_modified), isFolder, syncedFolder);
+                    indexer.onFileFound(contentPath, cursor.getLong(column_index_date_modified), file.length(),
+                                        isFolder);
+                } else {
+                    indexer.onFileSkipped(contentPath);
                 }
             }
             cursor.close();
+        } else {
+            indexer.onScanFailed();
         }
     }
 
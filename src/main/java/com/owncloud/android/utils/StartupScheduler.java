@@ -0,0 +1,152 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the initialization of the app in stages, so that only what the first activity needs delays its first frame.
+ *
+ * Critical stages run right away on the calling thread. Deferred stages run once {@link #start()} is called, on
+ * background threads, each of them after the stages it depends on finished, successfully or not. The duration of
+ * every stage is logged.
+ */
+public class StartupScheduler {
+    private static final String TAG = StartupScheduler.class.getSimpleName();
+
+    private static final int MAX_WORKERS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    // guarded by this
+    private final Map<String, Stage> deferredStages = new LinkedHashMap<>();
+    private ThreadPoolExecutor executor;
+    private int pendingStages;
+    private long deferredStart;
+
+    private long criticalDuration;
+
+    /**
+     * Runs a stage on the calling thread.
+     */
+    public void runCritical(String name, Runnable stage) {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            stage.run();
+        } finally {
+            long duration = SystemClock.elapsedRealtime() - start;
+            criticalDuration += duration;
+            Log_OC.d(TAG, String.format(Locale.ENGLISH, "Critical stage '%s' took %d ms", name, duration));
+        }
+    }
+
+    /**
+     * Adds a stage to run in background once started.
+     *
+     * @param dependencies names of the stages to finish before this one, which have to be added before
+     */
+    public synchronized StartupScheduler defer(String name, Runnable stage, String... dependencies) {
+        if (executor != null) {
+            throw new IllegalStateException("Startup stage '" + name + "' added after start");
+        }
+
+        Stage deferredStage = new Stage(name, stage);
+        for (String dependency : dependencies) {
+            Stage requiredStage = deferredStages.get(dependency);
+            if (requiredStage == null) {
+                throw new IllegalArgumentException("Unknown startup stage '" + dependency + "' required by '" +
+                        name + "'");
+            }
+            requiredStage.dependents.add(deferredStage);
+            deferredStage.pendingDependencies++;
+        }
+        deferredStages.put(name, deferredStage);
+
+        return this;
+    }
+
+    /**
+     * Starts the deferred stages.
+     */
+    public synchronized void start() {
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, "Critical stages took %d ms", criticalDuration));
+
+        executor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        pendingStages = deferredStages.size();
+        deferredStart = SystemClock.elapsedRealtime();
+
+        for (Stage stage : deferredStages.values()) {
+            if (stage.pendingDependencies == 0) {
+                executor.execute(() -> run(stage));
+            }
+        }
+    }
+
+    private void run(Stage stage) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        long start = SystemClock.elapsedRealtime();
+        try {
+            stage.runnable.run();
+        } catch (RuntimeException e) {
+            // dependent stages still run, as they did when all stages ran one after the other
+            Log_OC.e(TAG, "Deferred stage '" + stage.name + "' failed", e);
+        }
+        Log_OC.d(TAG, String.format(Locale.ENGLISH, "Deferred stage '%s' took %d ms", stage.name,
+                                    SystemClock.elapsedRealtime() - start));
+
+        synchronized (this) {
+            for (Stage dependent : stage.dependents) {
+                if (--dependent.pendingDependencies == 0) {
+                    executor.execute(() -> run(dependent));
+                }
+            }
+
+            if (--pendingStages == 0) {
+                Log_OC.d(TAG, String.format(Locale.ENGLISH, "Deferred stages finished after %d ms",
+                                            SystemClock.elapsedRealtime() - deferredStart));
+            }
+        }
+    }
+
+    private static class Stage {
+        private final String name;
+        private final Runnable runnable;
+        private final List<Stage> dependents = new ArrayList<>();
+        private int pendingDependencies;
+
+        private Stage(String name, Runnable runnable) {
+            this.name = name;
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.utils;
+
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Moves a data folder of the app to another storage.
+ *
+ * Within a volume the folder is moved with a single rename. Across volumes its files are copied with channel
+ * transfers, the small ones by several workers and the large ones one after the other. Every copied file is recorded
+ * in a journal in the target folder, so that an interrupted migration resumes where it stopped instead of starting
+ * over; the journal is removed with {@link #complete()} once the index of stored files points to the target.
+ */
+public class StorageMigrationEngine {
+    private static final String TAG = StorageMigrationEngine.class.getSimpleName();
+
+    private static final String JOURNAL_FILE_NAME = ".migration_journal";
+    private static final long SMALL_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+
+    /**
+     * Listener of the progress of the copy, called from the copying threads.
+     */
+    public interface ProgressListener {
+        /**
+         * @param migratedBytes    bytes copied so far
+         * @param totalBytes       bytes to copy, excluding the ones copied before an interruption
+         * @param bytesPerSecond   average copy rate
+         * @param remainingSeconds estimated time left, -1 if still unknown
+         */
+        void onMigrationProgress(long migratedBytes, long totalBytes, long bytesPerSecond, long remainingSeconds);
+    }
+
+    private final File sourceFolder;
+    private final File targetFolder;
+    private final File journalFile;
+    @Nullable private final ProgressListener listener;
+
+    private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
+    private final AtomicLong migratedBytes = new AtomicLong();
+    private final List<String> pendingFiles = new ArrayList<>();
+    private long totalBytes;
+    private long startTime;
+    private long lastProgressTime; // guarded by this
+    private Writer journal;
+
+    public StorageMigrationEngine(File sourceFolder, File targetFolder, @Nullable ProgressListener listener) {
+        this.sourceFolder = sourceFolder;
+        this.targetFolder = targetFolder;
+        this.listener = listener;
+        journalFile = new File(targetFolder, JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * @return true if the target folder holds the files of an interrupted migration from the same source folder
+     */
+    public boolean isResumable() {
+        return readJournal() != null;
+    }
+
+    /**
+     * Moves the source folder with a rename, only possible within a volume and to a target that does not exist yet.
+     *
+     * @return true if the folder was moved, otherwise its files have to be copied
+     */
+    public boolean moveByRename() {
+        if (targetFolder.exists()) {
+            return false;
+        }
+
+        boolean moved = sourceFolder.renameTo(targetFolder);
+        Log_OC.d(TAG, moved ? "Moved " + sourceFolder + " with a rename" : "Copying files of " + sourceFolder);
+        return moved;
+    }
+
+    /**
+     * Reverts {@link #moveByRename()}.
+     *
+     * @return true if the folder is back in its source
+     */
+    public boolean undoRename() {
+        return targetFolder.renameTo(sourceFolder);
+    }
+
+    /**
+     * Creates the folder tree in the target and finds the files to copy, skipping the ones copied before an
+     * interruption.
+     *
+     * @return bytes to copy
+     */
+    public long prepare() throws IOException {
+        Set<String> copiedFiles = readJournal();
+
+        if (!targetFolder.isDirectory() && !targetFolder.mkdirs()) {
+            throw new IOException("Could not create " + targetFolder);
+        }
+
+        pendingFiles.clear();
+        totalBytes = 0;
+        scan(sourceFolder, "", copiedFiles == null ? new HashSet<>() : copiedFiles);
+
+        if (copiedFiles == null) {
+            journal = new BufferedWriter(new FileWriter(journalFile, false));
+            journal.write(sourceFolder.getAbsolutePath());
+            journal.write('\n');
+            journal.flush();
+        } else {
+            Log_OC.d(TAG, "Resuming migration, " + copiedFiles.size() + " files already copied");
+            journal = new BufferedWriter(new FileWriter(journalFile, true));
+        }
+
+        return totalBytes;
+    }
+
+    private void scan(File folder, String relativePath, Set<String> copiedFiles) throws IOException {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list " + folder);
+        }
+
+        for (File file : files) {
+            String relativeFilePath = relativePath + file.getName();
+            if (file.isDirectory()) {
+                File targetSubfolder = new File(targetFolder, relativeFilePath);
+                if (!targetSubfolder.isDirectory() && !targetSubfolder.mkdirs()) {
+                    throw new IOException("Could not create " + targetSubfolder);
+                }
+                scan(file, relativeFilePath + File.separator, copiedFiles);
+
+            } else if (!copiedFiles.contains(relativeFilePath) ||
+                    new File(targetFolder, relativeFilePath).length() != file.length()) {
+                pendingFiles.add(relativeFilePath);
+                totalBytes += file.length();
+            }
+        }
+    }
+
+    /**
+     * Copies the files found by {@link #prepare()}. Small files are copied by workers while the calling thread copies
+     * the large ones.
+     */
+    public void copy() throws IOException, OperationCancelledException {
+        startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_WORKERS);
+        List<Future<Void>> smallFileCopies = new ArrayList<>();
+
+        try {
+            for (final String relativePath : pendingFiles) {
+                if (new File(sourceFolder, relativePath).length() <= SMALL_FILE_SIZE) {
+                    smallFileCopies.add(executor.submit((Callable<Void>) () -> {
+                        copyFile(relativePath);
+                        return null;
+                    }));
+                }
+            }
+
+            for (String relativePath : pendingFiles) {
+                if (new File(sourceFolder, relativePath).length() > SMALL_FILE_SIZE) {
+                    copyFile(relativePath);
+                }
+            }
+
+            for (Future<Void> copy : smallFileCopies) {
+                waitFor(copy);
+            }
+
+        } catch (IOException | OperationCancelledException e) {
+            // stop the workers between slices, the journal keeps what they completed
+            cancellationRequested.set(true);
+            throw e;
+
+        } finally {
+            executor.shutdownNow();
+            journal.close();
+        }
+
+        Log_OC.d(TAG, "Copied " + pendingFiles.size() + " files in " + (System.currentTimeMillis() - startTime) +
+                " ms");
+    }
+
+    private void waitFor(Future<Void> copy) throws IOException, OperationCancelledException {
+        try {
+            copy.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCancelledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof OperationCancelledException) {
+                throw (OperationCancelledException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void copyFile(String relativePath) throws IOException, OperationCancelledException {
+        File source = new File(sourceFolder, relativePath);
+        File target = new File(targetFolder, relativePath);
+
+        OnDatatransferProgressListener progressListener =
+                (progressRate, totalTransferredSoFar, totalToTransfer, fileName) -> onBytesCopied(progressRate);
+        FileCopyUtils.copy(source, target, cancellationRequested, progressListener);
+
+        synchronized (journalFile) {
+            journal.write(relativePath);
+            journal.write('\n');
+            // survives the process being killed
+            journal.flush();
+        }
+    }
+
+    private void onBytesCopied(long count) {
+        long migrated = migratedBytes.addAndGet(count);
+        if (listener == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastProgressTime < PROGRESS_INTERVAL_MILLIS && migrated < totalBytes) {
+                return;
+            }
+            lastProgressTime = now;
+        }
+
+        long bytesPerSecond = migrated * 1000 / Math.max(1, now - startTime);
+        long remainingSeconds = bytesPerSecond > 0 ? (totalBytes - migrated) / bytesPerSecond : -1;
+        listener.onMigrationProgress(migrated, totalBytes, bytesPerSecond, remainingSeconds);
+    }
+
+    /**
+     * Stops an ongoing copy.
+     */
+    public void cancel() {
+        cancellationRequested.set(true);
+    }
+
+    /**
+     * Removes the journal, once the index of stored files points to the target.
+     */
+    public void complete() {
+        if (journalFile.exists() && !journalFile.delete()) {
+            Log_OC.w(TAG, "Could not remove migration journal " + journalFile);
+        }
+    }
+
+    /**
+     * @return paths relative to the source of the files already copied, or null if there is no journal of a migration
+     * from the source
+     */
+    @Nullable
+    private Set<String> readJournal() {
+        if (!journalFile.exists()) {
+            return null;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalFile))) {
+            if (!sourceFolder.getAbsolutePath().equals(reader.readLine())) {
+                return null;
+            }
+
+            Set<String> copiedFiles = new HashSet<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                copiedFiles.add(line);
+            }
+            return copiedFiles;
+
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Could not read migration journal " + journalFile, e);
+            return null;
+        }
+    }
+}
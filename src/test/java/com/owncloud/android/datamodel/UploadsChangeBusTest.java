@@ -0,0 +1,128 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.datamodel;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link UploadsChangeBus} merges the changes posted within a window into one event.
+ */
+public class UploadsChangeBusTest {
+
+    private static final long WINDOW_MILLIS = 200;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final List<UploadsChangeBus.Change> changes = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testChangesWithinWindowDeliveredOnce() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        UploadsChangeBus bus = new UploadsChangeBus(WINDOW_MILLIS, change -> {
+            changes.add(change);
+            delivered.countDown();
+        });
+
+        bus.post(1);
+        bus.post(2);
+        bus.post(2);
+        bus.post(3);
+
+        assertTrue(delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Thread.sleep(2 * WINDOW_MILLIS);
+
+        assertEquals(1, changes.size());
+        assertFalse(changes.get(0).isAllUploads());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), changes.get(0).getUploadIds());
+        assertEquals(1, bus.getEmittedEvents());
+        assertEquals(3, bus.getSuppressedEvents());
+    }
+
+    @Test
+    public void testAllUploadsOverridesIds() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        UploadsChangeBus bus = new UploadsChangeBus(WINDOW_MILLIS, change -> {
+            changes.add(change);
+            delivered.countDown();
+        });
+
+        bus.post(1);
+        bus.postAll();
+
+        assertTrue(delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertTrue(changes.get(0).isAllUploads());
+        assertNull(changes.get(0).getUploadIds());
+    }
+
+    @Test
+    public void testChangesAfterDeliveryStartNewEvent() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(2);
+        UploadsChangeBus bus = new UploadsChangeBus(WINDOW_MILLIS, change -> {
+            changes.add(change);
+            first.countDown();
+            second.countDown();
+        });
+
+        bus.post(1);
+        assertTrue(first.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        bus.post(2);
+        assertTrue(second.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals(2, changes.size());
+        assertEquals(new HashSet<>(Arrays.asList(1L)), changes.get(0).getUploadIds());
+        assertEquals(new HashSet<>(Arrays.asList(2L)), changes.get(1).getUploadIds());
+        assertEquals(2, bus.getEmittedEvents());
+        assertEquals(0, bus.getSuppressedEvents());
+    }
+
+    @Test
+    public void testZeroWindowDeliversEveryChangeOnPostingThread() {
+        Thread postingThread = Thread.currentThread();
+        List<Thread> deliveringThreads = new CopyOnWriteArrayList<>();
+        UploadsChangeBus bus = new UploadsChangeBus(0, change -> {
+            changes.add(change);
+            deliveringThreads.add(Thread.currentThread());
+        });
+
+        bus.post(1);
+        bus.post(1);
+        bus.postAll();
+
+        assertEquals(3, changes.size());
+        assertEquals(new HashSet<>(Arrays.asList(1L)), changes.get(1).getUploadIds());
+        assertTrue(changes.get(2).isAllUploads());
+        assertEquals(Arrays.asList(postingThread, postingThread, postingThread), deliveringThreads);
+        assertEquals(3, bus.getEmittedEvents());
+        assertEquals(0, bus.getSuppressedEvents());
+    }
+}
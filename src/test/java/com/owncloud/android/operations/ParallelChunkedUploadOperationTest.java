@@ -0,0 +1,195 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU AFFERO GENERAL PUBLIC LICENSE
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU AFFERO GENERAL PUBLIC LICENSE for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.operations;
+
+import android.util.Log;
+
+import com.owncloud.android.datamodel.ChunkedUploadState;
+import com.owncloud.android.datamodel.UploadsStorageManager;
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the order chunks are sent in by {@link ParallelChunkedUploadOperation}, and the retry of an upload whose
+ * stored chunks expired on the server.
+ */
+public class ParallelChunkedUploadOperationTest {
+
+    private static final int CHUNKS = 5;
+    private static final long UPLOAD_ID = 7;
+    private static final long EXPIRED_TRANSFER_ID = 42;
+
+    private File file;
+    private UploadsStorageManager uploadsStorageManager;
+    private OwnCloudClient client;
+    private MockedStatic<Log> log;
+    private MockedStatic<Log_OC> logOC;
+
+    @Before
+    public void setUp() throws IOException {
+        // logging is stubbed by the Android SDK of local unit tests
+        log = mockStatic(Log.class);
+        logOC = mockStatic(Log_OC.class);
+
+        file = File.createTempFile("chunked", ".bin");
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[(int) ((CHUNKS - 1) * ParallelChunkedUploadOperation.CHUNK_SIZE + 100)]);
+        }
+
+        uploadsStorageManager = mock(UploadsStorageManager.class);
+        client = mock(OwnCloudClient.class);
+    }
+
+    @Test
+    public void testLastChunkSentLast() {
+        FakeChunkedUpload upload = new FakeChunkedUpload();
+
+        RemoteOperationResult result = upload.run(client);
+
+        assertTrue(result.isSuccess());
+        assertEquals(CHUNKS, upload.sentChunks.size());
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), new HashSet<>(upload.sentChunks));
+        assertEquals(CHUNKS - 1, (int) upload.sentChunks.get(CHUNKS - 1));
+        verify(uploadsStorageManager).updateChunkedUploadState(eq(UPLOAD_ID), isNull());
+    }
+
+    @Test
+    public void testExpiredChunksUploadedAgain() {
+        ChunkedUploadState storedState = new ChunkedUploadState(EXPIRED_TRANSFER_ID, file.lastModified(),
+                                                                new HashSet<>(Arrays.asList(0, 1, 2)));
+        when(uploadsStorageManager.getChunkedUploadState(UPLOAD_ID)).thenReturn(storedState);
+        FakeChunkedUpload upload = new FakeChunkedUpload();
+
+        RemoteOperationResult result = upload.run(client);
+
+        assertTrue(result.isSuccess());
+
+        // first attempt resumes the stored transfer, its last chunk is not assembled
+        assertEquals(Arrays.asList(3, 4), upload.sentChunksOf(EXPIRED_TRANSFER_ID));
+
+        // second attempt sends every chunk of a new transfer, the last one after all the others
+        assertEquals(2, upload.transfers.size());
+        List<Integer> retried = upload.sentChunksOf(upload.transfers.get(1));
+        assertEquals(CHUNKS, retried.size());
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), new HashSet<>(retried));
+        assertEquals(CHUNKS - 1, (int) retried.get(CHUNKS - 1));
+
+        verify(uploadsStorageManager).updateChunkedUploadState(eq(UPLOAD_ID), isNull());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        logOC.close();
+        log.close();
+    }
+
+    /**
+     * Confirms every chunk without network; the last chunk of the expired transfer is answered with Not Found, as by
+     * a server that dropped the other chunks.
+     */
+    private class FakeChunkedUpload extends ParallelChunkedUploadOperation {
+        private final List<Integer> sentChunks = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> sentTransfers = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> transfers = new ArrayList<>();
+
+        private FakeChunkedUpload() {
+            super(file.getAbsolutePath(), "/chunked.bin", "application/octet-stream", null,
+                  String.valueOf(file.lastModified() / 1000), UPLOAD_ID, uploadsStorageManager);
+        }
+
+        @Override
+        String getChunkUriPrefix(OwnCloudClient client, ChunkedUploadState state, int chunkCount) {
+            if (!transfers.contains(state.getTransferId())) {
+                transfers.add(state.getTransferId());
+            }
+            return state.getTransferId() + "/";
+        }
+
+        @Override
+        RemoteOperationResult sendChunk(OwnCloudClient client, String uri, ByteBuffer buffer, long fileLength) {
+            long transferId = Long.parseLong(uri.substring(0, uri.indexOf('/')));
+            int chunk = Integer.parseInt(uri.substring(uri.indexOf('/') + 1));
+
+            if (chunk == 0) {
+                // a slow first chunk must still be confirmed before the last one is sent
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            synchronized (sentChunks) {
+                sentChunks.add(chunk);
+                sentTransfers.add(transferId);
+            }
+
+            if (chunk == CHUNKS - 1 && transferId == EXPIRED_TRANSFER_ID) {
+                PutMethod putMethod = mock(PutMethod.class);
+                when(putMethod.getStatusCode()).thenReturn(HttpStatus.SC_NOT_FOUND);
+                when(putMethod.getStatusText()).thenReturn("Not Found");
+                when(putMethod.getResponseHeaders()).thenReturn(new Header[0]);
+                return new RemoteOperationResult(false, putMethod);
+            }
+            return new RemoteOperationResult(RemoteOperationResult.ResultCode.OK);
+        }
+
+        private List<Integer> sentChunksOf(long transferId) {
+            List<Integer> chunks = new ArrayList<>();
+            synchronized (sentChunks) {
+                for (int i = 0; i < sentChunks.size(); i++) {
+                    if (sentTransfers.get(i) == transferId) {
+                        chunks.add(sentChunks.get(i));
+                    }
+                }
+            }
+            return chunks;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Nextcloud Android client application
+ *
+ * Copyright (C) 2019 Nextcloud GmbH.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.utils;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link ChecksumUtils} against known CRC32 vectors and the former byte per byte checksum, and reports their
+ * throughput.
+ */
+public class ChecksumUtilsTest {
+
+    private static final int FILE_SIZE = 4 * 1024 * 1024 + 17;
+    private static final int SMALL_FILES = 8;
+    private static final int BENCHMARK_FILE_SIZE = 32 * 1024 * 1024;
+
+    private static File file;
+    private static List<File> smallFiles = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        file = createFile(FILE_SIZE);
+
+        for (int i = 0; i < SMALL_FILES; i++) {
+            smallFiles.add(createFile(ChecksumUtils.BUFFER_SIZE * 3 + i));
+        }
+    }
+
+    private static File createFile(int size) throws IOException {
+        File tempFile = File.createTempFile("checksum", ".bin");
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(data);
+        }
+
+        return tempFile;
+    }
+
+    private static File createFile(String content) throws IOException {
+        File tempFile = File.createTempFile("checksum", ".txt");
+        tempFile.deleteOnExit();
+
+        try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            outputStream.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        return tempFile;
+    }
+
+    /**
+     * Former implementation, kept as baseline.
+     */
+    private static long getByteByByteCRC32(String path) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(path))) {
+            CRC32 crc = new CRC32();
+            int cnt;
+            while ((cnt = inputStream.read()) != -1) {
+                crc.update(cnt);
+            }
+
+            return crc.getValue();
+        }
+    }
+
+    @Test
+    public void testSameChecksum() throws IOException {
+        assertEquals(getByteByByteCRC32(file.getAbsolutePath()), ChecksumUtils.getCRC32(file.getAbsolutePath()));
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertEquals(ChecksumUtils.NO_CHECKSUM, ChecksumUtils.getCRC32("/nonExisting/file.bin"));
+    }
+
+    @Test
+    public void testParallelChecksums() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (File smallFile : smallFiles) {
+            paths.add(smallFile.getAbsolutePath());
+        }
+
+        Map<String, Long> checksums = ChecksumUtils.getCRC32s(paths);
+
+        assertEquals(SMALL_FILES, checksums.size());
+        for (String path : paths) {
+            assertEquals(getByteByByteCRC32(path), (long) checksums.get(path));
+        }
+    }
+
+    @Test
+    public void testKnownVectors() throws IOException {
+        assertEquals(0x00000000L, ChecksumUtils.getCRC32(createFile("").getAbsolutePath()));
+        assertEquals(0xCBF43926L, ChecksumUtils.getCRC32(createFile("123456789").getAbsolutePath()));
+        assertEquals(0x414FA339L, ChecksumUtils.getCRC32(
+                createFile("The quick brown fox jumps over the lazy dog").getAbsolutePath()));
+    }
+
+    /**
+     * Only reports the throughput: timings depend on the machine running the tests and are not asserted.
+     */
+    @Test
+    public void testThroughput() throws IOException {
+        File benchmarkFile = createFile(BENCHMARK_FILE_SIZE);
+        String path = benchmarkFile.getAbsolutePath();
+
+        try {
+            // warm up
+            long expected = getByteByByteCRC32(path);
+            ChecksumUtils.getCRC32(path);
+
+            long start = System.nanoTime();
+            getByteByByteCRC32(path);
+            long byteByByte = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long checksum = ChecksumUtils.getCRC32(path);
+            long blocks = System.nanoTime() - start;
+
+            System.out.println(String.format(Locale.ENGLISH,
+                                             "CRC32 of %d MB: byte per byte %.1f MB/s, blocks %.1f MB/s",
+                                             BENCHMARK_FILE_SIZE / 1024 / 1024, throughput(byteByByte),
+                                             throughput(blocks)));
+
+            assertEquals(expected, checksum);
+        } finally {
+            benchmarkFile.delete();
+        }
+    }
+
+    private static double throughput(long nanos) {
+        return BENCHMARK_FILE_SIZE / 1024.0 / 1024.0 / (nanos / 1e9);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        file.delete();
+        for (File smallFile : smallFiles) {
+            smallFile.delete();
+        }
+    }
+}